@@ -0,0 +1,174 @@
+package com.example.tunestacker2.Data;
+
+import android.database.CharArrayBuffer;
+import android.database.Cursor;
+import android.provider.DocumentsContract;
+
+
+/**
+ * Decodes the rows of a SAF child-document query.
+ * <p>
+ * Column indices are resolved once per query instead of once per row, and string columns are
+ * copied into a reusable buffer so that unchanged display names can be compared without
+ * allocating. MIME types are interned, a folder only ever holds a handful of distinct types.
+ */
+final class CursorRowDecoder {
+
+    // Projection understood by the decoder
+    static final String[] PROJECTION = new String[]{
+            DocumentsContract.Document.COLUMN_DOCUMENT_ID,
+            DocumentsContract.Document.COLUMN_MIME_TYPE,
+            DocumentsContract.Document.COLUMN_DISPLAY_NAME,
+            DocumentsContract.Document.COLUMN_LAST_MODIFIED,
+            DocumentsContract.Document.COLUMN_SIZE
+    };
+
+    private static final String MIME_TYPE_UNKNOWN = "application/octet-stream";
+    private static final int MAX_INTERNED_MIME_TYPES = 64;
+
+    // Interned MIME types, replaced as a whole when a new type shows up
+    private static volatile String[] knownMimeTypes = new String[]{
+            MIME_TYPE_UNKNOWN,
+            DocumentsContract.Document.MIME_TYPE_DIR,
+            "application/json",
+            "audio/mpeg",
+            "audio/mp4",
+            "audio/ogg",
+            "audio/flac",
+            "audio/x-wav",
+            "audio/webm"
+    };
+
+    // --- Data Members ---
+    private final Cursor cursor;
+    private final int documentIdIndex;
+    private final int mimeTypeIndex;
+    private final int displayNameIndex;
+    private final int lastModifiedIndex;
+    private final int sizeIndex;
+    private final CharArrayBuffer buffer = new CharArrayBuffer(128);
+
+
+    /**
+     * Resolves the column indices of a cursor queried with {@link #PROJECTION}.
+     *
+     * @param cursor The cursor to decode.
+     * @throws IllegalArgumentException If a column of the projection is missing.
+     */
+    CursorRowDecoder(Cursor cursor) {
+        this.cursor = cursor;
+        this.documentIdIndex = cursor.getColumnIndexOrThrow(DocumentsContract.Document.COLUMN_DOCUMENT_ID);
+        this.mimeTypeIndex = cursor.getColumnIndexOrThrow(DocumentsContract.Document.COLUMN_MIME_TYPE);
+        this.displayNameIndex = cursor.getColumnIndexOrThrow(DocumentsContract.Document.COLUMN_DISPLAY_NAME);
+        this.lastModifiedIndex = cursor.getColumnIndexOrThrow(DocumentsContract.Document.COLUMN_LAST_MODIFIED);
+        this.sizeIndex = cursor.getColumnIndexOrThrow(DocumentsContract.Document.COLUMN_SIZE);
+    }
+
+    // --- Row Accessors ---
+
+    String getDocumentId() {
+        return cursor.getString(documentIdIndex);
+    }
+
+    String getDisplayName() {
+        return cursor.getString(displayNameIndex);
+    }
+
+    long getLastModified() {
+        return cursor.getLong(lastModifiedIndex);
+    }
+
+    long getSize() {
+        return cursor.getLong(sizeIndex);
+    }
+
+    /**
+     * Compares the display name of the current row without allocating a String.
+     *
+     * @param displayName The display name to compare against.
+     * @return True if the current row has exactly this display name.
+     */
+    boolean displayNameEquals(String displayName) {
+        if (displayName == null || cursor.isNull(displayNameIndex)) return false;
+
+        cursor.copyStringToBuffer(displayNameIndex, buffer);
+        if (buffer.sizeCopied != displayName.length()) return false;
+        for (int i = 0; i < buffer.sizeCopied; i++) {
+            if (buffer.data[i] != displayName.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the interned MIME type of the current row, falling back to the file extension
+     * when the provider does not report a useful type.
+     *
+     * @param displayName The display name of the current row.
+     * @return The MIME type, or null if unknown.
+     */
+    String getMimeType(String displayName) {
+        String mimeType = null;
+        if (!cursor.isNull(mimeTypeIndex)) {
+            cursor.copyStringToBuffer(mimeTypeIndex, buffer);
+            mimeType = internMimeType(buffer.data, buffer.sizeCopied);
+        }
+
+        // Fallback: try detecting mime type from file fails
+        if (mimeType == null || mimeType.equals(MIME_TYPE_UNKNOWN)) {
+            mimeType = FileUtils.getMimeType(displayName);
+        }
+        return mimeType;
+    }
+
+    // --- MIME Interning ---
+
+    /**
+     * Returns the canonical instance of a MIME type read from somewhere other than a cursor.
+     *
+     * @param mimeType The MIME type.
+     * @return The interned MIME type, or null if the input is null.
+     */
+    static String internMimeType(String mimeType) {
+        if (mimeType == null) return null;
+        return internMimeType(mimeType.toCharArray(), mimeType.length());
+    }
+
+    /**
+     * Returns the canonical instance of a MIME type held in a character buffer.
+     *
+     * @param data   The buffer holding the MIME type.
+     * @param length The number of valid characters in the buffer.
+     * @return The interned MIME type.
+     */
+    private static String internMimeType(char[] data, int length) {
+        String[] known = knownMimeTypes;
+        for (String mimeType : known) {
+            if (regionEquals(mimeType, data, length)) return mimeType;
+        }
+
+        synchronized (CursorRowDecoder.class) {
+            // Another thread may have added it in the meantime
+            known = knownMimeTypes;
+            for (String mimeType : known) {
+                if (regionEquals(mimeType, data, length)) return mimeType;
+            }
+
+            String mimeType = new String(data, 0, length);
+            if (known.length >= MAX_INTERNED_MIME_TYPES) return mimeType;
+
+            String[] grown = new String[known.length + 1];
+            System.arraycopy(known, 0, grown, 0, known.length);
+            grown[known.length] = mimeType;
+            knownMimeTypes = grown;
+            return mimeType;
+        }
+    }
+
+    private static boolean regionEquals(String value, char[] data, int length) {
+        if (value.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) != data[i]) return false;
+        }
+        return true;
+    }
+}
@@ -7,20 +7,27 @@ import android.os.Looper;
 import android.util.Log;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import com.example.tunestacker2.MusicPlayer.Playlist;
 import com.example.tunestacker2.MusicPlayer.Song;
+import com.example.tunestacker2.MusicPlayer.SongRegistry;
+import com.example.tunestacker2.MusicPlayer.SongSearchIndex;
+import com.example.tunestacker2.MusicPlayer.SongTable;
 import com.yausername.ffmpeg.FFmpeg;
 import com.yausername.youtubedl_android.YoutubeDL;
 import com.yausername.youtubedl_android.YoutubeDLException;
 
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 
 /**
@@ -33,18 +40,29 @@ public class DataManager {
     private static final String LOG = "DataManager";
     private static final String SHARED_PREFERENCE_NAME = "tunestacker2_prefs1";
     private static final String PREF_KEY_LAST_UPDATED = "last_updated";
+    private static final String SCAN_SONGS = "scan_songs";         // Latest-wins key of song list scans
+    private static final String SCAN_PLAYLISTS = "scan_playlists"; // Latest-wins key of playlist loads
+    private static final String SCAN_SONG_TABLE = "scan_song_table"; // Latest-wins key of song table scans
+    private static final String SEARCH_SONGS = "search_songs";        // Latest-wins key of library searches
+    private static final String RANK_SONGS = "rank_songs";            // Latest-wins key of ranked library searches
 
     // --- Singleton Instance ---
     private static DataManager instance = null;
 
     // --- Data Members ---
-    private List<Playlist> playlists = new ArrayList<>();
+    private final AtomicReference<PlaylistState> playlistState = new AtomicReference<>(PlaylistState.EMPTY);
     private Context context;
 
     // --- Background Operations ---
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final TaskScheduler scheduler = new TaskScheduler();
     private final Handler handler = new Handler(Looper.getMainLooper());
-    private final Object playlistLock = new Object();
+    private final PlaylistWriteQueue writeQueue;
+    // Playlist edits hold the read lock from publishing to queueing their write, a reload
+    // from disk holds the write lock while it checks and publishes its result
+    private final ReentrantReadWriteLock playlistLock = new ReentrantReadWriteLock();
+    // Held while a playlist name is checked for uniqueness and taken
+    private final Object playlistNameLock = new Object();
+    private final ThumbnailPreloader thumbnailPreloader;
 
 
     /**
@@ -54,6 +72,9 @@ public class DataManager {
      */
     private DataManager(Context context) {
         this.context = context.getApplicationContext();
+        this.writeQueue = new PlaylistWriteQueue(this.context, scheduler.executorFor(TaskScheduler.Lane.BULK_IO),
+                this::publishMovedFile);
+        this.thumbnailPreloader = new ThumbnailPreloader(this.context, scheduler.executorFor(TaskScheduler.Lane.PRELOAD));
 
         try {
             YoutubeDL.getInstance().init(this.context);
@@ -112,6 +133,10 @@ public class DataManager {
 
     /**
      * Asynchronously loads playlists from the audio directory and returns via callback.
+     * A fresh fetch runs on the scan lane and supersedes a fresh fetch that has not finished yet.
+     * Edits made while the files are read are never replaced by the copies read from disk.
+     * The list handed to the callback is immutable, it is the list of the current {@link PlaylistState}.
+     * If the files could not be read, the callback receives the playlists loaded before.
      *
      * @param freshFetch If true, fetches playlists from the audio directory using IO.
      * @param callback Consumer to receive the playlist list on the main thread.
@@ -119,11 +144,17 @@ public class DataManager {
     public void getPlaylistsAsync(boolean freshFetch, Consumer<List<Playlist>> callback) {
         if (Settings.GetAudioDirectory() == null) return;
 
-        executor.execute(() -> {
-            // Fetch playlists from IO
-            if (freshFetch) {
-                playlists = FileUtils.batchedPlaylistsFromJsonFiles(context, Settings.GetAudioDirectory());
-            }
+        if (!freshFetch) {
+            if(callback != null) handler.post(() -> callback.accept(playlistState.get().getPlaylists()));
+            return;
+        }
+
+        scheduler.executeLatest(TaskScheduler.Lane.SCAN, SCAN_PLAYLISTS, () -> {
+            // Read without holding off edits, unless an edit raced the read
+            List<Playlist> published = reloadPlaylists(false);
+            return published != null ? published : reloadPlaylists(true);
+        }, loaded -> {
+            List<Playlist> playlists = loaded != null ? loaded : playlistState.get().getPlaylists();
 
             // Post result to UI thread
             if(callback != null) handler.post(() -> callback.accept(playlists));
@@ -136,15 +167,20 @@ public class DataManager {
      * @return List of playlist titles.
      */
     public List<String> getAllPlaylistNames() {
-        synchronized (playlistLock) {
-            if (playlists == null) return new ArrayList<>();
-
-            List<String> names = new ArrayList<>();
-            for (Playlist playlist : playlists) {
-                names.add(playlist.getTitle());
-            }
-            return names;
+        List<String> names = new ArrayList<>();
+        for (Playlist playlist : playlistState.get().getPlaylists()) {
+            names.add(playlist.getTitle());
         }
+        return names;
+    }
+
+    /**
+     * Returns the current state of the loaded playlists without blocking.
+     *
+     * @return The current playlist state.
+     */
+    public PlaylistState getPlaylistState() {
+        return playlistState.get();
     }
 
     /**
@@ -159,34 +195,36 @@ public class DataManager {
         String playlistName = FileUtils.sanitizeFilename(rawTitle);
         Uri audioDir = Settings.GetAudioDirectory();
 
-        executor.execute(() -> {
-            List<Playlist> existingPlaylists = FileUtils.batchedPlaylistsFromJsonFiles(context, audioDir);
-
-            // Check for duplicates display names
-            for (Playlist playlist : existingPlaylists) {
-                if (playlist.getTitle().equals(playlistName)) {
+        executePlaylistEdit(keyOf(playlistName), () -> {
+            // A rename to the same name must not take it in between the checks and the publish
+            synchronized (playlistNameLock) {
+                // Check for duplicates display names
+                if (playlistState.get().find(playlistName) != null) {
                     if(callback != null) handler.post(() -> callback.accept("Playlist name already exists."));
                     return;
                 }
-            }
 
-            // Check for duplicate file names
-            for (Playlist playlist : existingPlaylists) {
-                if (FileUtils.getFileNameWithoutExtensionFromUri(context, playlist.getJsonUri()).equals(playlistName)) {
+                // Check for duplicate file names
+                Boolean fileExists = playlistFileExists(audioDir, playlistName);
+                if (fileExists == null) {
+                    if(callback != null) handler.post(() -> callback.accept("Failed to check playlist files."));
+                    return;
+                }
+                if (fileExists) {
                     if(callback != null) handler.post(() -> callback.accept("Playlist File of this name already exists."));
                     return;
                 }
-            }
 
-            // Create new playlist
-            Playlist newPlaylist = new Playlist(null, null, playlistName, new Date().getTime());
-            boolean result = FileUtils.writePlaylistToJsonFile(context, newPlaylist, audioDir);
+                // Create new playlist
+                Playlist newPlaylist = new Playlist(null, null, playlistName, new Date().getTime());
+                boolean result = writeQueue.writeNow(newPlaylist, audioDir);
 
-            if (result) {
-                playlists.add(newPlaylist);
-                if(callback != null) handler.post(() -> callback.accept(null));
-            } else {
-                if(callback != null) handler.post(() -> callback.accept("Failed to write json file."));
+                if (result) {
+                    playlistState.updateAndGet(state -> state.withAdded(newPlaylist));
+                    if(callback != null) handler.post(() -> callback.accept(null));
+                } else {
+                    if(callback != null) handler.post(() -> callback.accept("Failed to write json file."));
+                }
             }
         });
     }
@@ -198,24 +236,20 @@ public class DataManager {
      * @param callback     Callback with true on success, false on failure.
      */
     public void updateTimePlaylistAsync(String playlistName, Consumer<Boolean> callback) {
-        if (Settings.GetAudioDirectory() == null || playlists == null || playlistName == null) return;
+        if (Settings.GetAudioDirectory() == null || playlistName == null) return;
 
-        executor.execute(() -> {
+        PlaylistKey key = keyOf(playlistName);
+        executePlaylistEdit(key, () -> {
             // Modify and save matching playlist in background
-            for (int i = 0; i < playlists.size(); i++) {
-                if (playlistName.equals(playlists.get(i).getTitle())) {
-                    playlists.get(i).setLastPlayed(new Date().getTime());
-
-                    boolean result = FileUtils.writePlaylistToJsonFile(context.getApplicationContext(), playlists.get(i), Settings.GetAudioDirectory());
-                    if(!result) {
-                        if(callback != null) handler.post(() -> callback.accept(false));
-                    }
-                    break;
-                }
+            long lastPlayed = new Date().getTime();
+            Playlist updated = publishEdit(key, playlist -> playlist.setLastPlayed(lastPlayed));
+            if (updated != null) {
+                schedulePlaylistWrite(updated, callback);
+                return;
             }
 
-            // Refresh playlists back on UI thread
-            if(callback != null) handler.post(() -> callback.accept(true));
+            // The playlist was deleted before the edit ran
+            if(callback != null) handler.post(() -> callback.accept(false));
         });
     }
 
@@ -227,31 +261,35 @@ public class DataManager {
      * @param callback     Callback with null on success or error message on failure.
      */
     public void updateNamePlaylistAsync(String playlistName, String newName, Consumer<String> callback) {
-        if (Settings.GetAudioDirectory() == null || playlists == null || playlistName == null || newName == null) return;
+        if (Settings.GetAudioDirectory() == null || playlistName == null || newName == null) return;
 
         String cleanName = FileUtils.sanitizeFilename(newName);
-        executor.execute(() -> {
-            List<Playlist> existingPlaylists = FileUtils.batchedPlaylistsFromJsonFiles(context, Settings.GetAudioDirectory());
-
-            // Check for duplicates
-            for (Playlist playlist : existingPlaylists) {
-                if (playlist.getTitle().equals(newName)) {
+        PlaylistKey key = keyOf(playlistName);
+        executePlaylistEdit(key, () -> {
+            // Creating or renaming another playlist to the same name waits for this one
+            synchronized (playlistNameLock) {
+                // Check for duplicates
+                if (playlistState.get().find(cleanName) != null) {
                     if(callback != null) handler.post(() -> callback.accept("Playlist name already in use."));
                     return;
                 }
-            }
 
-            // Modify and save matching playlist in background
-            for (int i = 0; i < playlists.size(); i++) {
-                if (playlistName.equals(playlists.get(i).getTitle())) {
-                    playlists.get(i).setTitle(cleanName);
+                // Modify and save matching playlist in background
+                Playlist playlist = key.in(playlistState.get());
+                if (playlist != null) {
+                    Playlist updated = new Playlist(playlist);
+                    updated.setTitle(cleanName);
 
-                    boolean result = FileUtils.writePlaylistToJsonFile(context.getApplicationContext(), playlists.get(i), Settings.GetAudioDirectory());
+                    boolean result = writeQueue.writeNow(updated, Settings.GetAudioDirectory());
                     if (result) {
+                        Uri jsonUri = updated.getJsonUri();
+                        publishEdit(key, renamed -> {
+                            renamed.setTitle(cleanName);
+                            renamed.setJsonUri(jsonUri);
+                        });
                         if(callback != null) handler.post(() -> callback.accept(null));
                         return;
                     }
-                    break;
                 }
             }
 
@@ -267,22 +305,25 @@ public class DataManager {
      * @param callback     Callback with true on success, false on failure.
      */
     public void removePlaylistAsync(String playlistName, Consumer<Boolean> callback) {
-        if (Settings.GetAudioDirectory() == null || playlists == null || playlistName == null) return;
+        if (Settings.GetAudioDirectory() == null || playlistName == null) return;
 
-        executor.execute(() -> {
+        PlaylistKey key = keyOf(playlistName);
+        executePlaylistEdit(key, () -> {
             // Remove the playlist
-            for (int i = 0; i < playlists.size(); i++) {
-                if (playlistName.equals(playlists.get(i).getTitle())) {
-                    boolean result = FileUtils.deleteFileUri(context.getApplicationContext(), playlists.get(i).getJsonUri());
-                    if(!result) {
-                        if(callback != null) handler.post(() -> callback.accept(false));
-                    }
-                    playlists.remove(i);
-                    break;
-                }
+            Playlist playlist = key.in(playlistState.get());
+            if (playlist != null) {
+                // Pending edits of a deleted playlist are never written
+                writeQueue.discard(playlist);
+
+                boolean result = FileUtils.deleteFileUri(context.getApplicationContext(),
+                        FileUtils.currentPlaylistUri(playlist.getJsonUri()));
+                PlaylistNameIndex.invalidate();
+                playlistState.updateAndGet(state -> state.withRemoved(key.in(state)));
+                if(callback != null) handler.post(() -> callback.accept(result));
+                return;
             }
-            // Refresh playlists back on UI thread
-            if(callback != null) handler.post(() -> callback.accept(true));
+            // Deleted by an earlier edit
+            if(callback != null) handler.post(() -> callback.accept(false));
         });
     }
 
@@ -295,27 +336,34 @@ public class DataManager {
      */
     public void addSongsToPlaylistsAsync(List<Song> songs, List<String> playlistNames, Consumer<Boolean> callback) {
         if (playlistNames == null || playlistNames.isEmpty() || songs == null || songs.isEmpty()) return;
-        if (Settings.GetAudioDirectory() == null || playlists == null) return;
-
-        executor.execute(() -> {
-            Set<String> nameSet = new HashSet<>(playlistNames);
-
-            // Modify and save matching playlists in background
-            for (int i = 0; i < playlists.size(); i++) {
-                if (nameSet.contains(playlists.get(i).getTitle())) {
-                    playlists.get(i).addSongs(songs);
+        if (Settings.GetAudioDirectory() == null) return;
 
-                    boolean result = FileUtils.writePlaylistToJsonFile(context.getApplicationContext(), playlists.get(i), Settings.GetAudioDirectory());
-                    if(!result) {
-                        if(callback != null) handler.post(() -> callback.accept(false));
-                        return;
-                    }
-                }
+        Set<String> nameSet = new HashSet<>(playlistNames);
+        List<Song> safeCopy = SongRegistry.internAll(songs);
+
+        // Report once every target playlist has been written
+        AtomicInteger remaining = new AtomicInteger(nameSet.size());
+        AtomicBoolean success = new AtomicBoolean(true);
+        Consumer<Boolean> onWritten = result -> {
+            if (!result) success.set(false);
+            if (remaining.decrementAndGet() == 0 && callback != null) {
+                boolean allWritten = success.get();
+                handler.post(() -> callback.accept(allWritten));
             }
-
-            // Refresh playlists back on UI thread
-            if(callback != null) handler.post(() -> callback.accept(true));
-        });
+        };
+
+        // Modify matching playlists in background, each one in order with its other edits
+        for (String playlistName : nameSet) {
+            PlaylistKey key = keyOf(playlistName);
+            executePlaylistEdit(key, () -> {
+                Playlist updated = publishEdit(key, playlist -> playlist.addSongs(safeCopy));
+                if (updated == null) {
+                    onWritten.accept(false);
+                    return;
+                }
+                writeQueue.enqueue(updated, Settings.GetAudioDirectory(), onWritten);
+            });
+        }
     }
 
     /**
@@ -326,28 +374,23 @@ public class DataManager {
      * @param callback     Callback with true on success, false on failure.
      */
     public void updateSongsInPlaylistAsync(String playlistName, List<Song> songs, Consumer<Boolean> callback) {
-        if (Settings.GetAudioDirectory() == null || playlists == null || playlistName == null || songs == null) return;
-        List<Song> safeCopy = new ArrayList<>(songs);
+        if (Settings.GetAudioDirectory() == null || playlistName == null || songs == null) return;
+        List<Song> safeCopy = SongRegistry.internAll(songs);
 
 
         Log.d("DataManager", "Attempting to update songs in playlist: " + playlistName + " with " + safeCopy.size() + " songs.");
-        executor.execute(() -> {
+        PlaylistKey key = keyOf(playlistName);
+        executePlaylistEdit(key, () -> {
             // Modify and save matching playlist in background
-            for (int i = 0; i < playlists.size(); i++) {
-                if (playlistName.equals(playlists.get(i).getTitle())) {
-                    playlists.get(i).setSongs(safeCopy);
-                    Log.d("DataManager", "Updated songs in playlist: " + playlistName + " with " + safeCopy.size() + " songs.");
-
-                    boolean result = FileUtils.writePlaylistToJsonFile(context.getApplicationContext(), playlists.get(i), Settings.GetAudioDirectory());
-                    if(!result) {
-                        if(callback != null) handler.post(() -> callback.accept(false));
-                    }
-                    break;
-                }
+            Playlist updated = publishEdit(key, playlist -> playlist.setSongs(safeCopy));
+            if (updated != null) {
+                Log.d("DataManager", "Updated songs in playlist: " + playlistName + " with " + safeCopy.size() + " songs.");
+                schedulePlaylistWrite(updated, callback);
+                return;
             }
 
-            // Refresh playlists back on UI thread
-            if(callback != null) handler.post(() -> callback.accept(true));
+            // The playlist was deleted before the edit ran
+            if(callback != null) handler.post(() -> callback.accept(false));
         });
     }
 
@@ -359,23 +402,165 @@ public class DataManager {
      * @param callback     Callback with true on success, false on failure.
      */
     public void removeSongInPlaylistAsync(String playlistName, Song song, Consumer<Boolean> callback) {
-        if (Settings.GetAudioDirectory() == null || playlists == null || playlistName == null) return;
+        if (Settings.GetAudioDirectory() == null || playlistName == null) return;
 
-        executor.execute(() -> {
+        PlaylistKey key = keyOf(playlistName);
+        executePlaylistEdit(key, () -> {
             // Remove the song
-            for (int i = 0; i < playlists.size(); i++) {
-                if (playlistName.equals(playlists.get(i).getTitle())) {
-                    playlists.get(i).removeSong(song);
+            Playlist updated = publishEdit(key, playlist -> playlist.removeSong(song));
+            if (updated != null) {
+                schedulePlaylistWrite(updated, callback);
+                return;
+            }
+            // The playlist was deleted before the edit ran
+            if(callback != null) handler.post(() -> callback.accept(false));
+        });
+    }
 
-                    boolean result = FileUtils.writePlaylistToJsonFile(context.getApplicationContext(), playlists.get(i), Settings.GetAudioDirectory());
-                    if(!result) {
-                        if(callback != null) handler.post(() -> callback.accept(false));
-                    }
-                    break;
+    /**
+     * Asynchronously repairs playlist files after the process was killed during a write:
+     * finishes interrupted file swaps and replays journaled changes that were never written.
+     * Runs on the scan lane ahead of any playlist load queued after it.
+     */
+    public void recoverPlaylistsAsync() {
+        scheduler.execute(TaskScheduler.Lane.SCAN, () -> {
+            FileUtils.recoverTempPlaylistFiles(context, Settings.GetAudioDirectory());
+            writeQueue.replayJournal();
+        });
+    }
+
+    /**
+     * Asynchronously writes every playlist with pending changes. Called when the app leaves the
+     * foreground or a service is being torn down, so that debounced edits are not lost.
+     */
+    public void flushPendingWritesAsync() {
+        scheduler.execute(TaskScheduler.Lane.BULK_IO, writeQueue::flush);
+    }
+
+    /**
+     * Runs a playlist edit after every earlier edit of the same playlist. Edits of different
+     * playlists run concurrently, but never while a reload publishes the playlists read from disk.
+     *
+     * @param key  The edited playlist, the serialisation key.
+     * @param edit The edit, which publishes the new state and queues the write.
+     */
+    private void executePlaylistEdit(PlaylistKey key, Runnable edit) {
+        scheduler.executeKeyed(TaskScheduler.Lane.INTERACTIVE, key, () -> {
+            playlistLock.readLock().lock();
+            try {
+                edit.run();
+            } finally {
+                playlistLock.readLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Resolves the playlist an edit is requested for. The key holds the identity of the playlist
+     * the name refers to now, so the edit still finds it after a rename queued before it.
+     *
+     * @param playlistName The name of the playlist.
+     * @return The key of the playlist, keyed by the name if no playlist has it yet.
+     */
+    private PlaylistKey keyOf(String playlistName) {
+        Playlist playlist = playlistState.get().find(playlistName);
+        return playlist != null ? new PlaylistKey(playlist.getId(), null) : new PlaylistKey(0, playlistName);
+    }
+
+    /**
+     * Reads the playlists from disk after pending edits reached their files, and publishes them.
+     * An edit published or written while the files were read may be missing from them, so an
+     * optimistic reload is only published if no edit happened in between.
+     *
+     * @param exclusive Whether to hold off every edit for the whole reload, which always publishes.
+     * @return The published playlists, or null if an edit raced the optimistic reload.
+     */
+    private List<Playlist> reloadPlaylists(boolean exclusive) {
+        ReentrantReadWriteLock.WriteLock lock = playlistLock.writeLock();
+        if (exclusive) lock.lock();
+        try {
+            writeQueue.flush();
+            long writeCount = writeQueue.getWriteCount();
+            PlaylistState before = playlistState.get();
+            List<Playlist> loaded = FileUtils.batchedPlaylistsFromJsonFiles(context, Settings.GetAudioDirectory());
+
+            if (!exclusive) {
+                lock.lock();
+                if (playlistState.get() != before || writeQueue.hasPending()
+                        || writeQueue.getWriteCount() != writeCount) {
+                    return null;
                 }
             }
-            // Refresh playlists back on UI thread
-            if(callback != null) handler.post(() -> callback.accept(true));
+            return playlistState.updateAndGet(state -> state.withPlaylists(loaded)).getPlaylists();
+        } finally {
+            if (lock.isHeldByCurrentThread()) lock.unlock();
+        }
+    }
+
+    /**
+     * Queues a modified playlist to be written and reports the result of the write on the UI thread.
+     *
+     * @param playlist The modified playlist.
+     * @param callback Callback with true on success, false on failure.
+     */
+    private void schedulePlaylistWrite(Playlist playlist, Consumer<Boolean> callback) {
+        writeQueue.enqueue(playlist, Settings.GetAudioDirectory(), result -> {
+            if(callback != null) handler.post(() -> callback.accept(result));
+        });
+    }
+
+    /**
+     * Checks whether the directory already holds a playlist file with the given name.
+     *
+     * @param directoryUri The library directory.
+     * @param fileName     The file name without extension.
+     * @return True if a JSON file of this name exists, or null if the directory could not be listed.
+     */
+    private Boolean playlistFileExists(Uri directoryUri, String fileName) {
+        return PlaylistNameIndex.contains(context, directoryUri, fileName);
+    }
+
+    /**
+     * Publishes a new playlist state in which a playlist is replaced by an edited copy. The copy is
+     * made from the instance held by the latest state, and made again if another change is
+     * published first, so the edit always applies to the playlist as it currently is.
+     *
+     * @param key  The edited playlist.
+     * @param edit Applies the edit to the copy, may run more than once.
+     * @return The published copy, or null if the state does not hold the playlist.
+     */
+    private Playlist publishEdit(PlaylistKey key, Consumer<Playlist> edit) {
+        AtomicReference<Playlist> edited = new AtomicReference<>();
+        playlistState.updateAndGet(state -> {
+            Playlist current = key.in(state);
+            if (current == null) {
+                edited.set(null);
+                return state;
+            }
+
+            Playlist updated = new Playlist(current);
+            edit.accept(updated);
+            edited.set(updated);
+            return state.withReplaced(current, updated);
+        });
+        return edited.get();
+    }
+
+    /**
+     * Publishes a new playlist state in which the playlist written to a replaced document holds
+     * the Uri of the new document, so the Uri index of the state stays current.
+     *
+     * @param replacedUri The Uri the playlist was written from.
+     * @param writtenUri  The Uri of the document that replaced it.
+     */
+    private void publishMovedFile(Uri replacedUri, Uri writtenUri) {
+        playlistState.updateAndGet(state -> {
+            Playlist current = state.findByJsonUri(replacedUri);
+            if (current == null) return state;
+
+            Playlist updated = new Playlist(current);
+            updated.setJsonUri(writtenUri);
+            return state.withReplaced(current, updated);
         });
     }
 
@@ -385,12 +570,174 @@ public class DataManager {
      * @param callback Callback with the list of songs.
      */
     public void getSongsInDirectoryAsync(Consumer<List<Song>> callback) {
-        executor.execute(() -> {
-            List<Song> updatedSongs = FileUtils.listAudioFilesFromDirectory(context.getApplicationContext(), Settings.GetAudioDirectory());
+        getSongsInDirectoryAsync(null, callback);
+    }
+
+    /**
+     * Asynchronously retrieves all audio files in the library directory, streaming partial results.
+     * If the directory has to be walked, chunks of songs are posted as the scan advances. The final
+     * callback always receives the complete list, which replaces everything delivered in chunks.
+     * A newer request supersedes one that has not finished yet and answers both callbacks.
+     *
+     * @param chunkCallback Callback with each chunk of songs found so far, may be null.
+     * @param callback      Callback with the complete list of songs, or null if the scan failed.
+     */
+    public void getSongsInDirectoryAsync(Consumer<List<Song>> chunkCallback, Consumer<List<Song>> callback) {
+        scheduler.executeLatest(TaskScheduler.Lane.SCAN, SCAN_SONGS, () -> {
+            Consumer<List<Song>> chunkListener = null;
+            if (chunkCallback != null) {
+                chunkListener = chunk -> handler.post(() -> chunkCallback.accept(chunk));
+            }
+
+            return new ArrayList<>(DirectorySnapshot.refresh(context.getApplicationContext(),
+                    Settings.GetAudioDirectory(), chunkListener).getSongs());
+        }, updatedSongs -> {
             if(callback != null) handler.post(() -> callback.accept(updatedSongs));
         });
     }
 
+    /**
+     * Asynchronously retrieves the audio files in the library directory as a compact song table,
+     * streaming partial results like {@link #getSongsInDirectoryAsync(Consumer, Consumer)}. The
+     * table is shared by every caller until the directory changes, so an unchanged library hands
+     * back the same instance.
+     *
+     * @param chunkCallback Callback with each chunk of songs found so far, may be null.
+     * @param callback      Callback with the complete song table, or null if the scan failed.
+     */
+    public void getSongTableAsync(Consumer<List<Song>> chunkCallback, Consumer<SongTable> callback) {
+        scheduler.executeLatest(TaskScheduler.Lane.SCAN, SCAN_SONG_TABLE, () -> {
+            Consumer<List<Song>> chunkListener = null;
+            if (chunkCallback != null) {
+                chunkListener = chunk -> handler.post(() -> chunkCallback.accept(chunk));
+            }
+
+            return DirectorySnapshot.refresh(context.getApplicationContext(),
+                    Settings.GetAudioDirectory(), chunkListener).getSongTable();
+        }, table -> {
+            if(callback != null) handler.post(() -> callback.accept(table));
+            if (table == null) return;
+
+            // Index the titles before the user starts typing
+            scheduler.execute(TaskScheduler.Lane.SCAN, () -> SongSearchIndex.of(table));
+
+            // Extract the thumbnails of new and modified songs before they are scrolled to
+            thumbnailPreloader.preload(table);
+        });
+    }
+
+    /**
+     * Rescans the library directory and pre-extracts the thumbnails of new and modified songs in
+     * the background, e.g. after a download added songs.
+     */
+    public void preloadThumbnailsAsync() {
+        getSongTableAsync(null, null);
+    }
+
+    /**
+     * Registers a listener for the progress of the thumbnail pre-extraction.
+     *
+     * @param listener The listener, called on the main thread.
+     */
+    public void addThumbnailPreloadListener(ThumbnailPreloader.PreloadListener listener) {
+        thumbnailPreloader.addListener(listener);
+    }
+
+    /**
+     * Unregisters a listener added with {@link #addThumbnailPreloadListener}.
+     *
+     * @param listener The listener.
+     */
+    public void removeThumbnailPreloadListener(ThumbnailPreloader.PreloadListener listener) {
+        thumbnailPreloader.removeListener(listener);
+    }
+
+    /**
+     * Asynchronously finds the songs of a table whose title contains the query, ignoring case and
+     * accents. A newer search supersedes one that has not finished yet, only the newest result is
+     * delivered.
+     *
+     * @param table    The song table to search.
+     * @param query    The search query.
+     * @param callback Callback with the matching rows of the table, or null if the search failed.
+     */
+    public void searchSongsAsync(SongTable table, String query, Consumer<BitSet> callback) {
+        scheduler.executeLatest(TaskScheduler.Lane.INTERACTIVE, SEARCH_SONGS,
+                () -> SongSearchIndex.of(table).search(query),
+                matches -> {
+                    if(callback != null) handler.post(() -> callback.accept(matches));
+                });
+    }
+
+    /**
+     * Asynchronously ranks the songs of a table against a query, tolerating typos, best match
+     * first. A newer ranking supersedes one that has not finished yet.
+     *
+     * @param table    The song table to search.
+     * @param query    The search query.
+     * @param callback Callback with the matching rows of the table, best match first, or null if
+     *                 the ranking failed.
+     */
+    public void rankSongsAsync(SongTable table, String query, Consumer<int[]> callback) {
+        scheduler.executeLatest(TaskScheduler.Lane.INTERACTIVE, RANK_SONGS,
+                () -> SongSearchIndex.of(table).rank(query),
+                rows -> {
+                    if(callback != null) handler.post(() -> callback.accept(rows));
+                });
+    }
+
+    /**
+     * Asynchronously computes a list diff for an adapter, keeping the diff off the main thread.
+     * A newer diff of the same key supersedes one that has not finished yet, only the newest
+     * result is delivered.
+     *
+     * @param key      Identifies the list being diffed.
+     * @param diff     Computes the diff, on a background thread.
+     * @param callback Callback with the diff on the main thread, or null if the diff failed.
+     * @param <T>      Type of the diff result.
+     */
+    public <T> void diffAsync(String key, Supplier<T> diff, Consumer<T> callback) {
+        scheduler.executeLatest(TaskScheduler.Lane.INTERACTIVE, key, diff,
+                result -> {
+                    if(callback != null) handler.post(() -> callback.accept(result));
+                });
+    }
+
+
+    /**
+     * Identifies the playlist a queued edit applies to: by its {@link Playlist#getId() identity}
+     * if it existed when the edit was requested, otherwise by name.
+     */
+    private static final class PlaylistKey {
+        private final long id;
+        private final String name; // Null when keyed by identity
+
+        PlaylistKey(long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        /**
+         * @param state The playlist state.
+         * @return The playlist of the state this key refers to, or null if it holds none.
+         */
+        Playlist in(PlaylistState state) {
+            return name != null ? state.find(name) : state.findById(id);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof PlaylistKey)) return false;
+            PlaylistKey other = (PlaylistKey) obj;
+            return id == other.id && (name == null ? other.name == null : name.equals(other.name));
+        }
+
+        @Override
+        public int hashCode() {
+            return name != null ? name.hashCode() : Long.hashCode(id);
+        }
+    }
 
     /**
      * Static class that manages persistent application settings.
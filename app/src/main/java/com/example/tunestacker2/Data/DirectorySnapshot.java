@@ -0,0 +1,310 @@
+package com.example.tunestacker2.Data;
+
+import android.content.Context;
+import android.net.Uri;
+import android.provider.DocumentsContract;
+
+import com.example.tunestacker2.MusicPlayer.Song;
+import com.example.tunestacker2.MusicPlayer.SongTable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+
+/**
+ * Immutable view of the library directory produced by a single pass over the SAF tree.
+ * <p>
+ * Every scanner (library listing, playlist loading, duplicate checks in the download service)
+ * reads from the same snapshot instead of running its own cursor query. Snapshots are versioned,
+ * a new version is only published when the directory contents changed.
+ * <p>
+ * Songs are built lazily: the library listing reads the compact {@link SongTable} of a snapshot,
+ * and only the songs actually looked up (by playlists, for example) become {@link Song} objects.
+ */
+public final class DirectorySnapshot {
+
+    private static final DirectorySnapshot EMPTY = new DirectorySnapshot(null, 0, Collections.emptyList(), null);
+
+    // --- Data Members ---
+    private final Uri directoryUri;
+    private final long version;
+    private final List<LibraryIndex.Entry> audioEntries;
+    private final Map<String, LibraryIndex.Entry> songsByTitle;
+    private final Map<String, LibraryIndex.Entry> songsByDocumentId;
+    private final Map<String, String> filesByBaseName; // Document id by file name without extension
+    private final List<JsonFile> jsonFiles;
+    private final List<JsonFile> tempFiles;
+    private final List<JsonFile> backupFiles;
+    private volatile List<Song> songs = null;       // Built on first use
+    private volatile SongTable songTable = null;    // Built on first use
+
+
+    /**
+     * A playlist JSON file (or its temporary copy) found in the directory.
+     */
+    public static final class JsonFile {
+        public final Uri uri;
+        public final String displayName;
+        public final long lastModified;
+
+        JsonFile(Uri uri, String displayName, long lastModified) {
+            this.uri = uri;
+            this.displayName = displayName;
+            this.lastModified = lastModified;
+        }
+    }
+
+
+    /**
+     * Builds a snapshot from the rows of the library index. If the audio files are the same rows
+     * as in the previous snapshot, its songs and song table are carried over, so a change to the
+     * playlist files alone does not produce a new song table.
+     *
+     * @param directoryUri The Uri of the library directory.
+     * @param version      Version number of the snapshot.
+     * @param entries      The indexed documents of the directory.
+     * @param previous     The snapshot this one replaces, may be null.
+     */
+    DirectorySnapshot(Uri directoryUri, long version, Collection<LibraryIndex.Entry> entries, DirectorySnapshot previous) {
+        this.directoryUri = directoryUri;
+        this.version = version;
+
+        List<LibraryIndex.Entry> audioEntries = new ArrayList<>();
+        Map<String, LibraryIndex.Entry> songsByTitle = new HashMap<>();
+        Map<String, LibraryIndex.Entry> songsByDocumentId = new HashMap<>();
+        Map<String, String> filesByBaseName = new HashMap<>();
+        List<JsonFile> jsonFiles = new ArrayList<>();
+        List<JsonFile> tempFiles = new ArrayList<>();
+        List<JsonFile> backupFiles = new ArrayList<>();
+
+        for (LibraryIndex.Entry entry : entries) {
+            if (entry.isAudio()) {
+                audioEntries.add(entry);
+                songsByTitle.put(entry.title, entry);
+                songsByDocumentId.put(entry.documentId, entry);
+                filesByBaseName.put(entry.title, entry.documentId);
+                continue;
+            }
+
+            if (entry.displayName != null && entry.displayName.endsWith(".json" + FileUtils.TEMP_PLAYLIST_SUFFIX)) {
+                // Left behind by an interrupted playlist write
+                Uri fileUri = DocumentsContract.buildDocumentUriUsingTree(directoryUri, entry.documentId);
+                tempFiles.add(new JsonFile(fileUri, entry.displayName, entry.lastModified));
+                continue;
+            }
+            if (entry.displayName != null && entry.displayName.endsWith(".json" + FileUtils.BACKUP_PLAYLIST_SUFFIX)) {
+                // Moved aside by an interrupted playlist write
+                Uri fileUri = DocumentsContract.buildDocumentUriUsingTree(directoryUri, entry.documentId);
+                backupFiles.add(new JsonFile(fileUri, entry.displayName, entry.lastModified));
+                continue;
+            }
+            filesByBaseName.put(entry.title, entry.documentId);
+            if (entry.isJson()) {
+                Uri fileUri = DocumentsContract.buildDocumentUriUsingTree(directoryUri, entry.documentId);
+                jsonFiles.add(new JsonFile(fileUri, entry.displayName, entry.lastModified));
+            }
+        }
+
+        this.audioEntries = audioEntries;
+        this.songsByTitle = songsByTitle;
+        this.songsByDocumentId = songsByDocumentId;
+        this.filesByBaseName = filesByBaseName;
+        this.jsonFiles = Collections.unmodifiableList(jsonFiles);
+        this.tempFiles = Collections.unmodifiableList(tempFiles);
+        this.backupFiles = Collections.unmodifiableList(backupFiles);
+
+        if (previous != null && sameEntries(previous.audioEntries, audioEntries)) {
+            this.songs = previous.songs;
+            this.songTable = previous.songTable;
+        }
+    }
+
+    /**
+     * Returns the snapshot of the library directory, walking the directory only if it changed.
+     *
+     * @param context      The context used to access the content resolver.
+     * @param directoryUri The Uri of the library directory.
+     * @return The current snapshot of the directory.
+     */
+    public static DirectorySnapshot acquire(Context context, Uri directoryUri) {
+        return LibraryIndex.getInstance(context).getSnapshot(context, directoryUri);
+    }
+
+    /**
+     * Returns the snapshot of the library directory, handing out songs in chunks while the
+     * directory is walked.
+     *
+     * @param context       The context used to access the content resolver.
+     * @param directoryUri  The Uri of the library directory.
+     * @param chunkListener Receives partial lists of songs during a walk, may be null.
+     * @return The current snapshot of the directory.
+     */
+    public static DirectorySnapshot acquire(Context context, Uri directoryUri, Consumer<List<Song>> chunkListener) {
+        return LibraryIndex.getInstance(context).getSnapshot(context, directoryUri, chunkListener, false);
+    }
+
+    /**
+     * Returns the snapshot of the library directory after a cursor pass over its documents, even
+     * if the directory stamp did not change. Files edited in place, such as retagged songs or
+     * playlists written by another app, do not move the directory stamp. Used for refreshes the
+     * user asked for.
+     *
+     * @param context       The context used to access the content resolver.
+     * @param directoryUri  The Uri of the library directory.
+     * @param chunkListener Receives partial lists of songs during a walk, may be null.
+     * @return The current snapshot of the directory.
+     */
+    public static DirectorySnapshot refresh(Context context, Uri directoryUri, Consumer<List<Song>> chunkListener) {
+        return LibraryIndex.getInstance(context).getSnapshot(context, directoryUri, chunkListener, true);
+    }
+
+    /**
+     * Marks the current snapshot as stale. Must be called after the app writes into the directory.
+     *
+     * @param context Application context.
+     */
+    public static void invalidate(Context context) {
+        LibraryIndex.getInstance(context).invalidate();
+    }
+
+    /**
+     * Returns an empty snapshot, used when no directory is selected or it cannot be read.
+     *
+     * @return The empty snapshot.
+     */
+    static DirectorySnapshot empty() {
+        return EMPTY;
+    }
+
+    // --- Getters ---
+
+    public Uri getDirectoryUri() {
+        return directoryUri;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the songs of the directory, creating the Song objects on first use.
+     *
+     * @return An unmodifiable list of songs.
+     */
+    public List<Song> getSongs() {
+        List<Song> list = songs;
+        if (list == null) {
+            List<Song> built = new ArrayList<>(audioEntries.size());
+            for (LibraryIndex.Entry entry : audioEntries) {
+                built.add(entry.getSong(directoryUri));
+            }
+            list = Collections.unmodifiableList(built);
+            songs = list;
+        }
+        return list;
+    }
+
+    /**
+     * Returns the songs of the directory as a compact table, without creating Song objects.
+     *
+     * @return The song table of this snapshot.
+     */
+    public SongTable getSongTable() {
+        SongTable table = songTable;
+        if (table == null) {
+            SongTable.Builder builder = new SongTable.Builder(directoryUri, audioEntries.size());
+            for (LibraryIndex.Entry entry : audioEntries) {
+                builder.add(entry.documentId, entry.title, entry.lastModified);
+            }
+            table = builder.build();
+            songTable = table;
+        }
+        return table;
+    }
+
+    /**
+     * Returns the playlist JSON files of the directory.
+     *
+     * @return An unmodifiable list of JSON files, in directory order.
+     */
+    public List<JsonFile> getJsonFiles() {
+        return jsonFiles;
+    }
+
+    public List<JsonFile> getTempFiles() {
+        return tempFiles;
+    }
+
+    public List<JsonFile> getBackupFiles() {
+        return backupFiles;
+    }
+
+    /**
+     * Looks up a playlist JSON file by its display name.
+     *
+     * @param displayName The display name of the file, including the extension.
+     * @return The Uri of the file, or null if not found.
+     */
+    public Uri findJsonFile(String displayName) {
+        for (JsonFile jsonFile : jsonFiles) {
+            if (jsonFile.displayName.equals(displayName)) return jsonFile.uri;
+        }
+        return null;
+    }
+
+    /**
+     * Looks up an audio file by its title (file name without extension).
+     *
+     * @param title The title of the song.
+     * @return The song, or null if no audio file has this title.
+     */
+    public Song getSongByTitle(String title) {
+        LibraryIndex.Entry entry = songsByTitle.get(title);
+        return entry != null ? entry.getSong(directoryUri) : null;
+    }
+
+    /**
+     * Looks up an audio file by its SAF document id.
+     *
+     * @param documentId The document id of the audio file.
+     * @return The song, or null if no audio file has this document id.
+     */
+    public Song getSongByDocumentId(String documentId) {
+        LibraryIndex.Entry entry = songsByDocumentId.get(documentId);
+        return entry != null ? entry.getSong(directoryUri) : null;
+    }
+
+    /**
+     * Returns the names (without extension) of every file in the directory.
+     *
+     * @return An unmodifiable set of file names.
+     */
+    public Set<String> getFileBaseNames() {
+        return Collections.unmodifiableSet(filesByBaseName.keySet());
+    }
+
+    /**
+     * Looks up any file by its name without extension.
+     *
+     * @param baseName The file name without extension.
+     * @return The Uri of the file, or null if not found.
+     */
+    public Uri findFile(String baseName) {
+        String documentId = filesByBaseName.get(baseName);
+        return documentId != null ? DocumentsContract.buildDocumentUriUsingTree(directoryUri, documentId) : null;
+    }
+
+    private static boolean sameEntries(List<LibraryIndex.Entry> a, List<LibraryIndex.Entry> b) {
+        if (a.size() != b.size()) return false;
+        for (int i = 0; i < a.size(); i++) {
+            if (a.get(i) != b.get(i)) return false;
+        }
+        return true;
+    }
+}
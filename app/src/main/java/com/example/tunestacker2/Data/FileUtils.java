@@ -11,11 +11,6 @@ import android.webkit.MimeTypeMap;
 
 import com.example.tunestacker2.MusicPlayer.Playlist;
 import com.example.tunestacker2.MusicPlayer.Song;
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 
 
 import java.io.BufferedReader;
@@ -27,12 +22,17 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 
@@ -42,6 +42,23 @@ import java.util.stream.Collectors;
 public class FileUtils {
     public static final String TAG = "FileUtils";
 
+    // Suffix of the temporary copy a playlist file is written to before it is swapped in
+    public static final String TEMP_PLAYLIST_SUFFIX = ".tmp";
+    // Suffix a playlist file is moved aside under while its new copy is swapped in
+    public static final String BACKUP_PLAYLIST_SUFFIX = ".bak";
+
+    // Display names of the playlist files the app loaded or wrote, keyed by document Uri
+    private static final Map<String, String> playlistFileNames = new ConcurrentHashMap<>();
+    // Documents that replaced a playlist file in a swap, keyed by the Uri of the replaced document
+    private static final Map<String, Uri> replacedPlaylistFiles = new ConcurrentHashMap<>();
+    // Whether the provider of the library directory can rename documents, null until checked
+    private static Uri renameCheckedDirectory = null;
+    private static Boolean renameSupported = null;
+
+    // Bounded pool used to parse playlist files concurrently
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
+    private static final ExecutorService parseExecutor = Executors.newFixedThreadPool(Math.min(4, CORES));
+
 
     /**
      * Retrieves the display name of a file from its Uri.
@@ -70,10 +87,16 @@ public class FileUtils {
     }
 
     public static String removeExtensionFromName(String fileName) {
-        if (fileName != null && fileName.contains(".")) {
-            return fileName.substring(0, fileName.lastIndexOf(".")).trim();
-        }
-        return fileName;
+        if (fileName == null) return null;
+
+        int end = fileName.lastIndexOf('.');
+        if (end == -1) return fileName;
+
+        // Trim while locating the bounds so that only one String is allocated
+        int start = 0;
+        while (start < end && fileName.charAt(start) <= ' ') start++;
+        while (end > start && fileName.charAt(end - 1) <= ' ') end--;
+        return fileName.substring(start, end);
     }
 
     /**
@@ -182,34 +205,7 @@ public class FileUtils {
      * @return The Uri of the file if found, otherwise null.
      */
     public static Uri findFileInDirectory(Context context, Uri directoryUri, String targetFileName) {
-        Uri childrenUri = DocumentsContract.buildChildDocumentsUriUsingTree(
-                directoryUri,
-                DocumentsContract.getTreeDocumentId(directoryUri)
-        );
-
-        try (Cursor cursor = context.getApplicationContext().getContentResolver().query(childrenUri,
-                new String[]{
-                        DocumentsContract.Document.COLUMN_DOCUMENT_ID,
-                        DocumentsContract.Document.COLUMN_DISPLAY_NAME
-                }, null, null, null)) {
-
-            if (cursor != null) {
-                // Iterate over every document and see if the file name matches
-                while (cursor.moveToNext()) {
-                    String documentId = cursor.getString(cursor.getColumnIndexOrThrow(DocumentsContract.Document.COLUMN_DOCUMENT_ID));
-                    String displayName = cursor.getString(cursor.getColumnIndexOrThrow(DocumentsContract.Document.COLUMN_DISPLAY_NAME));
-
-                    String targetTitle = FileUtils.removeExtensionFromName(displayName);
-                    if (targetTitle != null && targetTitle.equals(targetFileName)) {
-                        return DocumentsContract.buildDocumentUriUsingTree(directoryUri, documentId);
-                    }
-                }
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error finding file in directory", e);
-        }
-
-        return null;
+        return DirectorySnapshot.acquire(context, directoryUri).findFile(targetFileName);
     }
 
     /**
@@ -221,33 +217,8 @@ public class FileUtils {
      * @return The missing file names.
      */
     public static Set<String> findMissingFilesInDirectory(Context context, Uri directoryUri, Set<String> fileNames) {
-        Uri childrenUri = DocumentsContract.buildChildDocumentsUriUsingTree(
-                directoryUri,
-                DocumentsContract.getTreeDocumentId(directoryUri)
-        );
-
-        try (Cursor cursor = context.getApplicationContext().getContentResolver().query(childrenUri,
-                new String[]{
-                        DocumentsContract.Document.COLUMN_DOCUMENT_ID,
-                        DocumentsContract.Document.COLUMN_DISPLAY_NAME
-                }, null, null, null)) {
-
-            if (cursor != null) {
-                // Iterate over every document and see if the file name matches
-                while (cursor.moveToNext()) {
-                    String documentId = cursor.getString(cursor.getColumnIndexOrThrow(DocumentsContract.Document.COLUMN_DOCUMENT_ID));
-                    String displayName = cursor.getString(cursor.getColumnIndexOrThrow(DocumentsContract.Document.COLUMN_DISPLAY_NAME));
-
-                    String targetTitle = FileUtils.removeExtensionFromName(displayName);
-                    if (targetTitle != null) {
-                        fileNames.remove(targetTitle);
-                    }
-                }
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error finding missing files in directory", e);
-        }
-
+        DirectorySnapshot snapshot = DirectorySnapshot.acquire(context, directoryUri);
+        fileNames.removeIf(fileName -> snapshot.findFile(fileName) != null);
         return fileNames;
     }
 
@@ -260,7 +231,9 @@ public class FileUtils {
      */
     public static boolean deleteFileUri(Context context, Uri uri) {
         try {
-            return DocumentsContract.deleteDocument(context.getApplicationContext().getContentResolver(), uri);
+            boolean deleted = DocumentsContract.deleteDocument(context.getApplicationContext().getContentResolver(), uri);
+            if (deleted) DirectorySnapshot.invalidate(context);
+            return deleted;
         } catch (Exception e) {
             Log.e(TAG, "Error deleting file", e);
             return false;
@@ -277,12 +250,14 @@ public class FileUtils {
      */
     public static Uri createDirectory(Context context, Uri parentTreeUri, String folderName) {
         try {
-            return DocumentsContract.createDocument(
+            Uri directoryUri = DocumentsContract.createDocument(
                     context.getApplicationContext().getContentResolver(),
                     parentTreeUri,
                     DocumentsContract.Document.MIME_TYPE_DIR, // indicates folder
                     folderName
             );
+            if (directoryUri != null) DirectorySnapshot.invalidate(context);
+            return directoryUri;
         } catch (Exception e) {
             Log.e(TAG, "Error creating directory", e);
             return null;
@@ -290,55 +265,40 @@ public class FileUtils {
     }
 
     /**
-     * Lists all audio files inside a given directory Uri.
+     * Queries the last-modified time of the directory document behind a tree Uri.
      *
      * @param context      The context used to access the content resolver.
-     * @param directoryUri The Uri of the directory to scan.
-     * @return A list of Song objects found in the directory.
+     * @param directoryUri The tree Uri of the directory.
+     * @return The last-modified time in milliseconds, or 0 if the provider does not report it.
      */
-    public static List<Song> listAudioFilesFromDirectory(Context context, Uri directoryUri) {
-        List<Song> audioUris = new ArrayList<>();
-
-        Uri childrenUri = DocumentsContract.buildChildDocumentsUriUsingTree(
+    public static long getDocumentLastModified(Context context, Uri directoryUri) {
+        Uri documentUri = DocumentsContract.buildDocumentUriUsingTree(
                 directoryUri,
                 DocumentsContract.getTreeDocumentId(directoryUri)
         );
 
-        try (Cursor cursor = context.getApplicationContext().getContentResolver().query(childrenUri,
-                new String[]{
-                        DocumentsContract.Document.COLUMN_DOCUMENT_ID,
-                        DocumentsContract.Document.COLUMN_MIME_TYPE,
-                        DocumentsContract.Document.COLUMN_DISPLAY_NAME,
-                        DocumentsContract.Document.COLUMN_LAST_MODIFIED
-                },
+        try (Cursor cursor = context.getApplicationContext().getContentResolver().query(documentUri,
+                new String[]{DocumentsContract.Document.COLUMN_LAST_MODIFIED},
                 null, null, null)) {
 
-            if (cursor != null) {
-                // Iterate over each document in the directory to see if it is an audio file
-                while (cursor.moveToNext()) {
-                    String docId = cursor.getString(cursor.getColumnIndexOrThrow(DocumentsContract.Document.COLUMN_DOCUMENT_ID));
-                    String mimeType = cursor.getString(cursor.getColumnIndexOrThrow(DocumentsContract.Document.COLUMN_MIME_TYPE));
-                    String displayName = cursor.getString(cursor.getColumnIndexOrThrow(DocumentsContract.Document.COLUMN_DISPLAY_NAME));
-                    long lastModified = cursor.getLong(cursor.getColumnIndexOrThrow(DocumentsContract.Document.COLUMN_LAST_MODIFIED));
-
-                    // Fallback: try detecting mime type from file fails
-                    if (mimeType == null || mimeType.equals("application/octet-stream")) {
-                        mimeType = getMimeType(displayName);
-                    }
-
-                    if (mimeType != null && mimeType.startsWith("audio/")) {
-                        // Add song to list
-                        Uri fileUri = DocumentsContract.buildDocumentUriUsingTree(directoryUri, docId);
-                        String targetTitle = FileUtils.removeExtensionFromName(displayName);
-                        audioUris.add(new Song(targetTitle, fileUri, lastModified));
-                    }
-                }
+            if (cursor != null && cursor.moveToFirst() && !cursor.isNull(0)) {
+                return cursor.getLong(0);
             }
         } catch (Exception e) {
-            Log.e(TAG, "Error finding audio files in directory", e);
+            Log.e(TAG, "Error querying directory last modified", e);
         }
+        return 0;
+    }
 
-        return audioUris;
+    /**
+     * Lists all audio files inside a given directory Uri.
+     *
+     * @param context      The context used to access the content resolver.
+     * @param directoryUri The Uri of the directory to scan.
+     * @return A list of Song objects found in the directory.
+     */
+    public static List<Song> listAudioFilesFromDirectory(Context context, Uri directoryUri) {
+        return new ArrayList<>(DirectorySnapshot.acquire(context, directoryUri).getSongs());
     }
 
     /**
@@ -354,45 +314,12 @@ public class FileUtils {
 
         List<Playlist> listOfPlaylists = new ArrayList<>();
 
-        Uri childrenUri = DocumentsContract.buildChildDocumentsUriUsingTree(
-                directoryUri,
-                DocumentsContract.getTreeDocumentId(directoryUri)
-        );
-        try (Cursor cursor = context.getApplicationContext().getContentResolver().query(childrenUri,
-                new String[]{
-                        DocumentsContract.Document.COLUMN_DOCUMENT_ID,
-                        DocumentsContract.Document.COLUMN_MIME_TYPE,
-                        DocumentsContract.Document.COLUMN_DISPLAY_NAME
-                },
-                null, null, null)) {
-
-            if (cursor != null) {
-                // Iterate over each document in the directory to see if it is a json file
-                while (cursor.moveToNext()) {
-                    String docId = cursor.getString(cursor.getColumnIndexOrThrow(DocumentsContract.Document.COLUMN_DOCUMENT_ID));
-                    String mimeType = cursor.getString(cursor.getColumnIndexOrThrow(DocumentsContract.Document.COLUMN_MIME_TYPE));
-                    String displayName = cursor.getString(cursor.getColumnIndexOrThrow(DocumentsContract.Document.COLUMN_DISPLAY_NAME));
-
-                    // Fallback: try detecting mime type from file fails
-                    if (mimeType == null || mimeType.equals("application/octet-stream")) {
-                        mimeType = getMimeType(displayName);
-                    }
-
-                    if (DocumentsContract.Document.MIME_TYPE_DIR.equals(mimeType)) continue;
-
-                    if (mimeType.equals("application/json")) {
-                        // If it is a json file, parse the playlist and add it to the list.
-                        Uri fileUri = DocumentsContract.buildDocumentUriUsingTree(directoryUri, docId);
-                        Playlist playlist = readPlaylistFromJsonFile(context.getApplicationContext(), fileUri, directoryUri);
-                        if (playlist != null) {
-                            listOfPlaylists.add(playlist);
-                        }
-                    }
-                }
+        // Parse every json file of the directory snapshot
+        for (DirectorySnapshot.JsonFile jsonFile : DirectorySnapshot.acquire(context, directoryUri).getJsonFiles()) {
+            Playlist playlist = readPlaylistFromJsonFile(context.getApplicationContext(), jsonFile.uri, directoryUri);
+            if (playlist != null) {
+                listOfPlaylists.add(playlist);
             }
-
-        } catch (Exception e) {
-            Log.e(TAG, "Error finding all json files", e);
         }
 
         return listOfPlaylists;
@@ -415,86 +342,26 @@ public class FileUtils {
              InputStreamReader isReader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
              BufferedReader reader = new BufferedReader(isReader)) {
 
-            // Parse from reader
-            JsonElement element = JsonParser.parseReader(reader);
-            if (element == null || !element.isJsonObject()) {
-                Log.e(TAG, "Invalid or empty JSON content.");
-                return null;
-            }
-            JsonObject root = element.getAsJsonObject();
-
-            // Ensures that the json file is a valid playlist
-            if (!root.has("songs") || !root.has("name") || !root.has("lastPlayed")) {
+            // Decode the name, last played and song titles in a single pass
+            PlaylistCodec.Decoded decoded = PlaylistCodec.decode(reader);
+            if (decoded == null) {
+                Log.e(TAG, "Invalid or empty playlist JSON content.");
                 return null;
             }
-
-            // Read the name and last played from the json
-            String name = root.get("name").getAsString();
-            long lastPlayed = root.get("lastPlayed").getAsLong();
-
-
-            // Keeps track of songs in a set
-            JsonArray songs = root.getAsJsonArray("songs");
-            Set<String> playlistSet = new HashSet<>();
-            List<String> playlistOrderedList = new ArrayList<>();
-            Map<String, Song> playlistMap = new HashMap<>();
-            for (int i = 0; i < songs.size(); i++) {
-                String songName = songs.get(i).getAsString().trim();
-                playlistSet.add(songName);
-                playlistOrderedList.add(songName);
-            }
+            String name = decoded.name;
+            long lastPlayed = decoded.lastPlayed;
+            List<String> playlistOrderedList = decoded.songNames;
 
             // Empty playlist, which is acceptable.
-            if(playlistSet.isEmpty()) return new Playlist(jsonUri, null, name, lastPlayed);
+            if(playlistOrderedList.isEmpty()) return new Playlist(jsonUri, null, name, lastPlayed);
 
-            // Finds and builds up the songs list based on the set by iterating over every file in the directory
-            Uri childrenUri = DocumentsContract.buildChildDocumentsUriUsingTree(
-                    directoryUri,
-                    DocumentsContract.getTreeDocumentId(directoryUri)
-            );
-            try (Cursor cursor = resolver.query(childrenUri,
-                    new String[]{
-                            DocumentsContract.Document.COLUMN_DOCUMENT_ID,
-                            DocumentsContract.Document.COLUMN_MIME_TYPE,
-                            DocumentsContract.Document.COLUMN_DISPLAY_NAME,
-                            DocumentsContract.Document.COLUMN_LAST_MODIFIED
-                    },
-                    null, null, null)) {
-
-                if (cursor != null) {
-                    // Iterate over each document in the directory to see if it is an audio file
-                    while (cursor.moveToNext()) {
-                        String docId = cursor.getString(cursor.getColumnIndexOrThrow(DocumentsContract.Document.COLUMN_DOCUMENT_ID));
-                        String mimeType = cursor.getString(cursor.getColumnIndexOrThrow(DocumentsContract.Document.COLUMN_MIME_TYPE));
-                        String displayName = cursor.getString(cursor.getColumnIndexOrThrow(DocumentsContract.Document.COLUMN_DISPLAY_NAME));
-                        long lastModified = cursor.getLong(cursor.getColumnIndexOrThrow(DocumentsContract.Document.COLUMN_LAST_MODIFIED));
-
-                        // Fallback: try detecting mime type from file fails, must be a song
-                        if (mimeType == null || mimeType.equals("application/octet-stream")) {
-                            mimeType = getMimeType(displayName);
-                        }
-
-                        if (mimeType == null || !mimeType.startsWith("audio/") || displayName == null) {
-                            continue;
-                        }
-
-                        // Add song to list (compares to file name without extension) if it is part of the playlist
-                        String targetTitle = FileUtils.removeExtensionFromName(displayName);
-                        if (playlistSet.contains(targetTitle.trim())) {
-                            Uri fileUri = DocumentsContract.buildDocumentUriUsingTree(directoryUri, docId);
-                            playlistMap.put(targetTitle, new Song(targetTitle, fileUri, lastModified));
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "Error iterating over items for the JSON reading", e);
-            }
-
-            // Constructs the list of songs
+            // Resolves the songs in order from the directory snapshot
+            DirectorySnapshot snapshot = DirectorySnapshot.acquire(context, directoryUri);
             List<Song> songList = new ArrayList<>();
             for (String title : playlistOrderedList) {
-                if (playlistMap.containsKey(title)) {
-                    songList.add(playlistMap.get(title));
+                Song song = snapshot.getSongByTitle(title);
+                if (song != null) {
+                    songList.add(song);
                 }
             }
 
@@ -508,7 +375,8 @@ public class FileUtils {
     }
 
     /**
-     * Writes a Playlist object to a JSON file in the specified directory.
+     * Writes a Playlist object to a JSON file in the specified directory. The playlist's JSON Uri
+     * is updated if the file had to be created or was replaced by a new document.
      *
      * @param context      The context used to access the content resolver.
      * @param playlist     The Playlist object to write.
@@ -518,12 +386,218 @@ public class FileUtils {
     public static boolean writePlaylistToJsonFile(Context context, Playlist playlist, Uri directoryUri) {
         if (playlist == null || directoryUri == null) return false;
 
-        ContentResolver resolver = context.getContentResolver();
+        Uri jsonUri = writePlaylistContents(context, directoryUri, playlist.getJsonUri(),
+                playlist.getTitle() + ".json", PlaylistCodec.snapshot(playlist));
+        if (jsonUri == null) return false;
+
+        playlist.setJsonUri(jsonUri);
+        Log.d(TAG, "Playlist written to JSON successfully");
+        return true;
+    }
+
+    /**
+     * Atomically replaces the contents of a playlist JSON file.
+     * <p>
+     * The new contents are written to a temporary document next to the target. The target is then
+     * renamed out of the way, the temporary document renamed into its place and only then is the
+     * old file deleted. An interrupted write therefore always leaves a complete copy of the
+     * playlist under its name or next to it; {@link #recoverTempPlaylistFiles} finishes an
+     * interrupted swap. Providers that cannot rename documents fall back to writing the target
+     * in place.
+     * <p>
+     * The write is applied to the library index and the playlist file names directly, so the next
+     * scan does not have to walk the directory because of it.
+     *
+     * @param context      The context used to access the content resolver.
+     * @param directoryUri The directory holding the playlist files.
+     * @param jsonUri      The Uri of the existing JSON file, or null to create a new file.
+     * @param fileName     The display name of the file to create if jsonUri is null.
+     * @param contents     The playlist contents to write.
+     * @return The Uri of the written JSON file, or null on failure.
+     */
+    static Uri writePlaylistContents(Context context, Uri directoryUri, Uri jsonUri, String fileName, PlaylistCodec.Decoded contents) {
+        // Copies of the playlist made before an earlier swap still name the replaced document
+        jsonUri = currentPlaylistUri(jsonUri);
+        if (jsonUri != null) fileName = getPlaylistFileName(context, jsonUri);
+
+        // The indexes only take the write over if they were current right before it
+        long stampBefore = getDocumentLastModified(context, directoryUri);
+        Uri writtenUri = fileName != null
+                ? swapPlaylistContents(context, directoryUri, jsonUri, fileName, contents)
+                : writePlaylistInPlace(context, directoryUri, jsonUri, null, contents); // Cannot name the temporary copy
+
+        if (writtenUri == null || fileName == null) {
+            // The directory may hold leftovers of the failed write, or a file of unknown name
+            DirectorySnapshot.invalidate(context);
+            PlaylistNameIndex.invalidate();
+            return writtenUri;
+        }
+
+        if (jsonUri != null && !jsonUri.equals(writtenUri)) {
+            playlistFileNames.remove(jsonUri.toString());
+            replacedPlaylistFiles.remove(writtenUri.toString());
+            replacedPlaylistFiles.put(jsonUri.toString(), writtenUri);
+        }
+        playlistFileNames.put(writtenUri.toString(), fileName);
+
+        long stampAfter = getDocumentLastModified(context, directoryUri);
+        LibraryIndex.getInstance(context).recordOwnWrite(directoryUri, jsonUri, writtenUri, fileName, stampBefore, stampAfter);
+        PlaylistNameIndex.recordWrite(directoryUri, fileName, stampBefore, stampAfter);
+        return writtenUri;
+    }
+
+    /**
+     * Performs the swap of {@link #writePlaylistContents}.
+     *
+     * @param context      The context used to access the content resolver.
+     * @param directoryUri The directory holding the playlist files.
+     * @param jsonUri      The Uri of the existing JSON file, or null to create a new file.
+     * @param fileName     The display name of the JSON file.
+     * @param contents     The playlist contents to write.
+     * @return The Uri of the written JSON file, or null on failure.
+     */
+    private static Uri swapPlaylistContents(Context context, Uri directoryUri, Uri jsonUri, String fileName, PlaylistCodec.Decoded contents) {
+        ContentResolver resolver = context.getApplicationContext().getContentResolver();
+
+        Boolean renameSupported = getRenameSupport(directoryUri);
+        if (Boolean.FALSE.equals(renameSupported)) {
+            return writePlaylistInPlace(context, directoryUri, jsonUri, fileName, contents);
+        }
+
+        Uri tempUri;
+        try {
+            Uri directoryDocumentUri = DocumentsContract.buildDocumentUriUsingTree(
+                    directoryUri,
+                    DocumentsContract.getTreeDocumentId(directoryUri)
+            );
+            tempUri = DocumentsContract.createDocument(resolver, directoryDocumentUri,
+                    "application/octet-stream", fileName + TEMP_PLAYLIST_SUFFIX);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to create temporary playlist file", e);
+            tempUri = null;
+        }
+        if (tempUri == null) {
+            return writePlaylistInPlace(context, directoryUri, jsonUri, fileName, contents);
+        }
+
+        // Write the complete document to the temporary copy first
+        try {
+            writePlaylistStream(resolver, tempUri, "w", contents);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to write temporary playlist file", e);
+            deleteDocument(resolver, tempUri);
+            return null;
+        }
+
+        // The provider's rename support is checked once per directory
+        if (renameSupported == null) {
+            renameSupported = supportsRename(resolver, tempUri);
+            setRenameSupport(directoryUri, renameSupported);
+            if (!renameSupported) {
+                deleteDocument(resolver, tempUri);
+                return writePlaylistInPlace(context, directoryUri, jsonUri, fileName, contents);
+            }
+        }
+
+        // Move the old file aside, it is only deleted once the new copy is in place
+        Uri backupUri = null;
+        if (jsonUri != null) {
+            backupUri = renameDocument(resolver, jsonUri, fileName + BACKUP_PLAYLIST_SUFFIX);
+            if (backupUri == null) {
+                Log.e(TAG, "Failed to replace playlist JSON file");
+                deleteDocument(resolver, tempUri);
+                return null;
+            }
+            PlaylistCache.getInstance(context).remove(directoryUri, jsonUri);
+        }
+
+        Uri renamedUri = renameDocument(resolver, tempUri, fileName);
+        if (renamedUri == null) {
+            // Put the old file back under its name, which gives it back its document
+            if (backupUri != null && renameDocument(resolver, backupUri, fileName) != null) {
+                deleteDocument(resolver, tempUri);
+            }
+            // Otherwise both copies are kept, the swap is finished on the next start
+            return null;
+        }
+
+        if (backupUri != null && !deleteDocument(resolver, backupUri)) {
+            Log.e(TAG, "Failed to delete replaced playlist file " + fileName);
+        }
+        return renamedUri;
+    }
+
+    /**
+     * Finishes playlist writes that were interrupted during the swap: temporary copies whose
+     * file was already moved aside are renamed into place, and moved-aside files are restored
+     * or removed. Temporary copies whose swap never started are deleted.
+     *
+     * @param context      The context used to access the content resolver.
+     * @param directoryUri The directory holding the playlist files.
+     */
+    public static void recoverTempPlaylistFiles(Context context, Uri directoryUri) {
+        if (directoryUri == null) return;
+
+        DirectorySnapshot snapshot = DirectorySnapshot.acquire(context, directoryUri);
+        if (snapshot.getTempFiles().isEmpty() && snapshot.getBackupFiles().isEmpty()) return;
+
+        Set<String> jsonNames = new HashSet<>();
+        for (DirectorySnapshot.JsonFile jsonFile : snapshot.getJsonFiles()) {
+            jsonNames.add(jsonFile.displayName);
+        }
+
+        ContentResolver resolver = context.getApplicationContext().getContentResolver();
+        for (DirectorySnapshot.JsonFile tempFile : snapshot.getTempFiles()) {
+            String fileName = tempFile.displayName.substring(0,
+                    tempFile.displayName.length() - TEMP_PLAYLIST_SUFFIX.length());
+
+            // The old file is still there, so the swap never started
+            if (jsonNames.contains(fileName) || decodePlaylistFile(context, tempFile.uri) == null) {
+                deleteDocument(resolver, tempFile.uri);
+                continue;
+            }
+
+            if (renameDocument(resolver, tempFile.uri, fileName) != null) {
+                jsonNames.add(fileName);
+                Log.i(TAG, "Recovered interrupted playlist write: " + fileName);
+            }
+        }
+
+        for (DirectorySnapshot.JsonFile backupFile : snapshot.getBackupFiles()) {
+            String fileName = backupFile.displayName.substring(0,
+                    backupFile.displayName.length() - BACKUP_PLAYLIST_SUFFIX.length());
+
+            // The new copy made it into place, the old file is no longer needed
+            if (jsonNames.contains(fileName)) {
+                deleteDocument(resolver, backupFile.uri);
+                continue;
+            }
+
+            if (renameDocument(resolver, backupFile.uri, fileName) != null) {
+                jsonNames.add(fileName);
+                Log.i(TAG, "Restored playlist file of an interrupted write: " + fileName);
+            }
+        }
+        DirectorySnapshot.invalidate(context);
+        PlaylistNameIndex.invalidate();
+    }
+
+    /**
+     * Writes a playlist file directly, used when the provider cannot swap documents.
+     *
+     * @param context      The context used to access the content resolver.
+     * @param directoryUri The directory holding the playlist files.
+     * @param jsonUri      The Uri of the existing JSON file, or null to create a new file.
+     * @param fileName     The display name of the file to create if jsonUri is null.
+     * @param contents     The playlist contents to write.
+     * @return The Uri of the written JSON file, or null on failure.
+     */
+    private static Uri writePlaylistInPlace(Context context, Uri directoryUri, Uri jsonUri, String fileName, PlaylistCodec.Decoded contents) {
+        ContentResolver resolver = context.getApplicationContext().getContentResolver();
 
         // Create at json file if it does not already exist
-        Uri jsonUri = playlist.getJsonUri();
         if (jsonUri == null) {
-            String fileName = playlist.getTitle() + ".json";
+            if (fileName == null) return null;
             try {
                 Uri directoryDocumentUri = DocumentsContract.buildDocumentUriUsingTree(
                         directoryUri,
@@ -532,43 +606,138 @@ public class FileUtils {
                 jsonUri = DocumentsContract.createDocument(resolver, directoryDocumentUri, "application/json", fileName);
                 if (jsonUri == null) {
                     Log.e(TAG, "Failed to create JSON file in directory");
-                    return false;
+                    return null;
                 }
             } catch (Exception e) {
                 Log.e(TAG, "Failed to create or assign JSON file", e);
-                return false;
+                return null;
             }
         }
 
-        // Write to the json file
-        try (OutputStream out = resolver.openOutputStream(jsonUri, "wt");
-             OutputStreamWriter osWriter = new OutputStreamWriter(out, StandardCharsets.UTF_8);
-             BufferedWriter writer = new BufferedWriter(osWriter)) {
+        try {
+            writePlaylistStream(resolver, jsonUri, "wt", contents);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to write playlist JSON", e);
+            return null;
+        }
 
-            // Set json fields from the playlist object
-            JsonObject root = new JsonObject();
-            root.addProperty("name", playlist.getTitle());
-            root.addProperty("lastPlayed", playlist.getLastPlayed());
+        // The file stamp changed, drop the cached copy until the next scan sees it
+        PlaylistCache.getInstance(context).remove(directoryUri, jsonUri);
+        return jsonUri;
+    }
 
-            JsonArray songArray = new JsonArray();
-            List<Song> songs = playlist.getSongs();
-            if (songs != null) {
-                for (Song song : songs) {
-                    songArray.add(song.getTitle());
-                }
-            }
-            root.add("songs", songArray);
+    /**
+     * Streams the playlist contents into a document.
+     *
+     * @param resolver The content resolver.
+     * @param uri      The Uri of the document.
+     * @param mode     The mode the document is opened with.
+     * @param contents The playlist contents to write.
+     * @throws IOException If the document cannot be written.
+     */
+    private static void writePlaylistStream(ContentResolver resolver, Uri uri, String mode, PlaylistCodec.Decoded contents) throws IOException {
+        try (OutputStream out = resolver.openOutputStream(uri, mode)) {
+            if (out == null) throw new IOException("Cannot open " + uri);
 
-            // Write to the file
-            Gson gson = new Gson();
-            gson.toJson(root, writer);
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            PlaylistCodec.encode(writer, contents);
             writer.flush();
+        }
+    }
+
+    /**
+     * Checks whether the provider of a document allows renaming it.
+     *
+     * @param resolver The content resolver.
+     * @param uri      The Uri of the document.
+     * @return True if the document can be renamed.
+     */
+    private static boolean supportsRename(ContentResolver resolver, Uri uri) {
+        try (Cursor cursor = resolver.query(uri, new String[]{DocumentsContract.Document.COLUMN_FLAGS},
+                null, null, null)) {
+            if (cursor != null && cursor.moveToFirst()) {
+                int flags = cursor.getInt(0);
+                return (flags & DocumentsContract.Document.FLAG_SUPPORTS_RENAME) != 0;
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error querying document flags", e);
+        }
+        return false;
+    }
+
+    private static synchronized Boolean getRenameSupport(Uri directoryUri) {
+        return directoryUri.equals(renameCheckedDirectory) ? renameSupported : null;
+    }
+
+    private static synchronized void setRenameSupport(Uri directoryUri, boolean supported) {
+        renameCheckedDirectory = directoryUri;
+        renameSupported = supported;
+    }
+
+    /**
+     * Returns the document currently holding a playlist file. A swap gives the file a new
+     * document on providers whose document ids are not paths, while copies of the playlist
+     * made earlier still hold the Uri of the replaced document.
+     *
+     * @param jsonUri The Uri of the playlist file, may be null.
+     * @return The Uri of the document the file was last written to, or jsonUri itself.
+     */
+    static Uri currentPlaylistUri(Uri jsonUri) {
+        if (jsonUri == null) return null;
+
+        Uri next;
+        while ((next = replacedPlaylistFiles.get(jsonUri.toString())) != null) {
+            jsonUri = next;
+        }
+        return jsonUri;
+    }
+
+    /**
+     * Returns the display name of a playlist file, querying the provider only for files the app
+     * has not loaded or written yet.
+     *
+     * @param context The context used to access the content resolver.
+     * @param jsonUri The Uri of the playlist file.
+     * @return The display name of the file, or null if it cannot be determined.
+     */
+    static String getPlaylistFileName(Context context, Uri jsonUri) {
+        String fileName = playlistFileNames.get(jsonUri.toString());
+        if (fileName == null) {
+            fileName = getFileNameFromUri(context, jsonUri);
+            if (fileName != null) playlistFileNames.put(jsonUri.toString(), fileName);
+        }
+        return fileName;
+    }
 
-            Log.d(TAG, "Playlist written to JSON successfully");
-            return true;
+    /**
+     * Renames a document as part of a playlist swap, which records its own changes.
+     *
+     * @param resolver The content resolver.
+     * @param uri      The Uri of the document.
+     * @param name     The new display name.
+     * @return The Uri of the renamed document, or null on failure.
+     */
+    private static Uri renameDocument(ContentResolver resolver, Uri uri, String name) {
+        try {
+            return DocumentsContract.renameDocument(resolver, uri, name);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to rename " + name, e);
+            return null;
+        }
+    }
 
+    /**
+     * Deletes a document as part of a playlist swap, which records its own changes.
+     *
+     * @param resolver The content resolver.
+     * @param uri      The Uri of the document.
+     * @return True if the document was deleted.
+     */
+    private static boolean deleteDocument(ContentResolver resolver, Uri uri) {
+        try {
+            return DocumentsContract.deleteDocument(resolver, uri);
         } catch (Exception e) {
-            Log.e(TAG, "Failed to write playlist JSON", e);
+            Log.e(TAG, "Error deleting file", e);
             return false;
         }
     }
@@ -591,7 +760,8 @@ public class FileUtils {
     }
 
     /**
-     * Reads all JSON files in a directory and constructs Playlist objects from them.
+     * Reads all JSON files in a directory and constructs Playlist objects from them. Files whose
+     * last-modified time matches the {@link PlaylistCache} are not parsed again.
      *
      * @param context      The context used to access the content resolver.
      * @param directoryUri The Uri of the directory containing the JSON files.
@@ -601,78 +771,60 @@ public class FileUtils {
         if(directoryUri == null) return new ArrayList<>();
 
         List<Playlist> listOfPlaylists = new ArrayList<>();
-        Map<Uri, List<String>> playlistsSongsOrdered = new HashMap<>();
-        Map<String, Song> audioUris = new HashMap<>();
 
-        Uri childrenUri = DocumentsContract.buildChildDocumentsUriUsingTree(
-                directoryUri,
-                DocumentsContract.getTreeDocumentId(directoryUri)
-        );
-        try (Cursor cursor = context.getApplicationContext().getContentResolver().query(childrenUri,
-                new String[]{
-                        DocumentsContract.Document.COLUMN_DOCUMENT_ID,
-                        DocumentsContract.Document.COLUMN_MIME_TYPE,
-                        DocumentsContract.Document.COLUMN_DISPLAY_NAME,
-                        DocumentsContract.Document.COLUMN_LAST_MODIFIED
-                },
-                null, null, null)) {
-
-            if (cursor != null) {
-                // Iterate over each document in the directory to see if it is a json file
-                while (cursor.moveToNext()) {
-                    String docId = cursor.getString(cursor.getColumnIndexOrThrow(DocumentsContract.Document.COLUMN_DOCUMENT_ID));
-                    String mimeType = cursor.getString(cursor.getColumnIndexOrThrow(DocumentsContract.Document.COLUMN_MIME_TYPE));
-                    String displayName = cursor.getString(cursor.getColumnIndexOrThrow(DocumentsContract.Document.COLUMN_DISPLAY_NAME));
-                    long lastModified = cursor.getLong(cursor.getColumnIndexOrThrow(DocumentsContract.Document.COLUMN_LAST_MODIFIED));
-
-
-                    // Fallback: try detecting mime type from file fails
-                    if (mimeType == null || mimeType.equals("application/octet-stream")) {
-                        mimeType = getMimeType(displayName);
-                    }
-                    if (mimeType == null || DocumentsContract.Document.MIME_TYPE_DIR.equals(mimeType)) continue;
-
-                    Uri fileUri = DocumentsContract.buildDocumentUriUsingTree(directoryUri, docId);
-                    if (mimeType.equals("application/json")) {
-                        // If it is a json file, parse the playlist and add it to the list.
-                        ArrayList<String> songNames = new ArrayList<>();
-
-                        // This parses everything but the songs
-                        Playlist playlist = parsePlaylistFromJsonFile(context, fileUri, directoryUri, songNames);
-                        if (playlist != null) {
-                            listOfPlaylists.add(playlist);
-                            playlistsSongsOrdered.put(playlist.getJsonUri(), songNames);
-                        }
-                    }
-                    else if(mimeType.startsWith("audio/")) {
-                        // Add song to list
-                        String targetTitle = FileUtils.removeExtensionFromName(displayName);
-                        audioUris.put(targetTitle.trim(), new Song(targetTitle, fileUri, lastModified));
-                    }
-                }
+        // One cursor pass shared by every playlist, it reads the current stamp of each file, so
+        // files edited by other apps are parsed again even though the directory stamp did not move
+        DirectorySnapshot snapshot = DirectorySnapshot.refresh(context, directoryUri, null);
+        List<DirectorySnapshot.JsonFile> jsonFiles = snapshot.getJsonFiles();
+
+        // Reuse cached playlists whose file did not change, parse the others concurrently
+        PlaylistCache cache = PlaylistCache.getInstance(context);
+        List<Future<PlaylistCodec.Decoded>> decoded = new ArrayList<>(jsonFiles.size());
+        for (DirectorySnapshot.JsonFile jsonFile : jsonFiles) {
+            PlaylistCodec.Decoded cached = cache.get(directoryUri, jsonFile);
+            if (cached != null) {
+                decoded.add(CompletableFuture.completedFuture(cached));
+            } else {
+                decoded.add(parseExecutor.submit(() -> decodePlaylistFile(context, jsonFile.uri)));
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Error finding all json files", e);
         }
 
-        // Build each playlist
-        for(Playlist playlist : listOfPlaylists) {
-            Uri jsonUri = playlist.getJsonUri();
-            if(!playlistsSongsOrdered.containsKey(jsonUri)) {
+        // Join the playlists in directory order and resolve their songs
+        Set<String> presentFiles = new HashSet<>();
+        for (int i = 0; i < decoded.size(); i++) {
+            DirectorySnapshot.JsonFile jsonFile = jsonFiles.get(i);
+            presentFiles.add(jsonFile.uri.toString());
+
+            PlaylistCodec.Decoded contents;
+            try {
+                contents = decoded.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (Future<PlaylistCodec.Decoded> future : decoded) future.cancel(true);
+                return listOfPlaylists;
+            } catch (ExecutionException e) {
+                Log.e(TAG, "Error parsing playlist JSON", e);
                 continue;
             }
+            if (contents == null) continue;
+            cache.put(directoryUri, jsonFile, contents);
+            playlistFileNames.put(jsonFile.uri.toString(), jsonFile.displayName);
 
             // Build the playlist with the set of songs in order
-            List<String> songs = playlistsSongsOrdered.get(jsonUri);
-            List<Song> toBeAdded = new ArrayList<>();
-            for(String songName : songs) {
-                if(audioUris.containsKey(songName)) {
-                    toBeAdded.add(audioUris.get(songName));
+            List<Song> songs = new ArrayList<>();
+            for (String songName : contents.songNames) {
+                Song song = snapshot.getSongByTitle(songName);
+                if (song != null) {
+                    songs.add(song);
                 }
             }
-            playlist.setSongs(toBeAdded);
+            listOfPlaylists.add(new Playlist(jsonFile.uri, songs, contents.name, contents.lastPlayed));
         }
 
+        // Forget files that are gone and persist what was parsed
+        cache.retainAll(presentFiles);
+        cache.save();
+
         return listOfPlaylists;
     }
 
@@ -688,42 +840,37 @@ public class FileUtils {
     public static Playlist parsePlaylistFromJsonFile(Context context, Uri jsonUri, Uri directoryUri, ArrayList<String> songNames) {
         if(jsonUri == null || directoryUri == null) return null;
 
+        PlaylistCodec.Decoded decoded = decodePlaylistFile(context, jsonUri);
+        if (decoded == null) return null;
+        songNames.addAll(decoded.songNames);
+
+        // Songs are resolved by the caller
+        return new Playlist(jsonUri, null, decoded.name, decoded.lastPlayed);
+    }
+
+    /**
+     * Decodes a single playlist JSON file without resolving its songs.
+     *
+     * @param context The context used to access the content resolver.
+     * @param jsonUri The Uri of the playlist JSON file.
+     * @return The decoded playlist, or null on failure.
+     */
+    public static PlaylistCodec.Decoded decodePlaylistFile(Context context, Uri jsonUri) {
         ContentResolver resolver = context.getApplicationContext().getContentResolver();
 
         try (InputStream inputStream = resolver.openInputStream(jsonUri);
              InputStreamReader isReader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
              BufferedReader reader = new BufferedReader(isReader)) {
 
-            // Parse from reader
-            JsonElement element = JsonParser.parseReader(reader);
-            if (element == null || !element.isJsonObject()) {
-                Log.e(TAG, "Invalid or empty JSON content.");
-                return null;
-            }
-            JsonObject root = element.getAsJsonObject();
-
-            // Ensures that the json file is a valid playlist
-            if (!root.has("songs") || !root.has("name") || !root.has("lastPlayed")) {
-                return null;
+            // Decode the name, last played and song titles in a single pass
+            PlaylistCodec.Decoded decoded = PlaylistCodec.decode(reader);
+            if (decoded == null) {
+                Log.e(TAG, "Invalid or empty playlist JSON content.");
             }
-
-            // Read the name and last played from the json
-            String name = root.get("name").getAsString();
-            long lastPlayed = root.get("lastPlayed").getAsLong();
-
-
-            // Keeps track of songs in a set
-            JsonArray songs = root.getAsJsonArray("songs");
-            for (int i = 0; i < songs.size(); i++) {
-                String songName = songs.get(i).getAsString().trim();
-                songNames.add(songName);
-            }
-
-            // Empty playlist, which is acceptable.
-            return new Playlist(jsonUri, null, name, lastPlayed);
+            return decoded;
         } catch (Exception e) {
             Log.e(TAG, "Error reading playlist JSON", e);
             return null;
         }
     }
-}
\ No newline at end of file
+}
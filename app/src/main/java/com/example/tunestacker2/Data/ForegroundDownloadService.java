@@ -162,6 +162,7 @@ public class ForegroundDownloadService extends Service {
     @Override
     public void onDestroy() {
         super.onDestroy();
+        DataManager.getInstance().flushPendingWritesAsync();
         if (executor != null && !executor.isShutdown()) {
             executor.shutdownNow();
         }
@@ -233,6 +234,7 @@ public class ForegroundDownloadService extends Service {
                     @Override
                     public void downloadComplete() {
                         updateNotification("Download complete.", "", 100, true);
+                        DataManager.getInstance().preloadThumbnailsAsync();
                     }
 
                     @Override
@@ -257,6 +259,7 @@ public class ForegroundDownloadService extends Service {
                     @Override
                     public void downloadComplete() {
                         updateNotification("Download complete.", "", 100, true);
+                        DataManager.getInstance().preloadThumbnailsAsync();
                     }
 
                     @Override
@@ -310,7 +313,7 @@ public class ForegroundDownloadService extends Service {
                 }
                 String artist = streamInfo.getUploader();
                 String ext = DataManager.Settings.GetFileExtension();
-                if (FileUtils.findFileInDirectory(getApplicationContext(), DataManager.Settings.GetAudioDirectory(), title) != null) {
+                if (TitleIndex.contains(getApplicationContext(), DataManager.Settings.GetAudioDirectory(), title)) {
                     Log.e(ForegroundDownloadService.TAG, "This Audio File already exists!");
                     throw new RuntimeException("File already exists.");
                 }
@@ -355,7 +358,7 @@ public class ForegroundDownloadService extends Service {
             try {
                 // Retrieve information about the playlist
                 Map<String, PlaylistVideoInfo> playlistInfo = getPlaylistInfo(url, callback);
-                Set<String> missingNames = FileUtils.findMissingFilesInDirectory(getApplicationContext(), DataManager.Settings.GetAudioDirectory(), playlistInfo.keySet());
+                Set<String> missingNames = TitleIndex.findMissing(getApplicationContext(), DataManager.Settings.GetAudioDirectory(), playlistInfo.keySet());
 
                 String ext = DataManager.Settings.GetFileExtension();
                 for(String name : missingNames) {
@@ -702,6 +705,9 @@ public class ForegroundDownloadService extends Service {
             throw new RuntimeException("Failed to create target file in SAF directory.");
         }
 
+        // The provider may have picked another name, e.g. "Title (1).mp3" next to an existing file
+        String createdName = targetFile.getName();
+        TitleIndex.add(FileUtils.removeExtensionFromName(createdName != null ? createdName : fileName));
         try (InputStream in = new FileInputStream(sourceFile);
              OutputStream out = getContentResolver().openOutputStream(targetFile.getUri())) {
             byte[] buffer = new byte[8192];
@@ -720,6 +726,7 @@ public class ForegroundDownloadService extends Service {
             if(sourceFile.exists())  {
                 sourceFile.delete();
             }
+            DirectorySnapshot.invalidate(this);
         }
     }
 
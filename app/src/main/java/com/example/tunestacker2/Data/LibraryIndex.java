@@ -0,0 +1,435 @@
+package com.example.tunestacker2.Data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.provider.DocumentsContract;
+import android.util.Log;
+
+import com.example.tunestacker2.MusicPlayer.Song;
+import com.example.tunestacker2.MusicPlayer.SongRegistry;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+
+/**
+ * Persistent index of the documents inside the library directory.
+ * <p>
+ * The index is stored in app-private storage and records, for every child document of the
+ * library directory, its document id, display name, MIME type, last-modified time and size.
+ * A refresh requested by the user always runs a single cursor pass that reconciles the rows by
+ * each document's last-modified time, so files edited in place are picked up even though the
+ * directory's own stamp does not move. {@link Song} objects are only built for documents that are
+ * new or whose name or last-modified time changed. Internal requests in between only compare the
+ * directory's last-modified stamp with the stamp recorded at the previous scan; when they match,
+ * the cached rows are returned without walking the SAF tree.
+ * <p>
+ * The rows are published to the rest of the app as immutable {@link DirectorySnapshot}s.
+ */
+public class LibraryIndex {
+
+    // --- Constants ---
+    private static final String LOG = "LibraryIndex";
+    private static final String INDEX_FILE_NAME = "library_index.bin";
+    private static final int INDEX_MAGIC = 0x544C4958; // "TLIX"
+    private static final int INDEX_VERSION = 1;
+    // A directory stamp this close to the scan time may hide a later change in the same tick
+    private static final long STAMP_GRANULARITY_MS = 2000;
+    // Snapshots validated this recently are reused without querying the directory stamp
+    private static final long REVALIDATE_INTERVAL_MS = 1000;
+    // Number of songs handed to a chunk listener at once while the directory is walked
+    public static final int SCAN_CHUNK_SIZE = 200;
+
+    // --- Singleton Instance ---
+    private static LibraryIndex instance = null;
+
+    // --- Data Members ---
+    private final File indexFile;
+    private Uri directoryUri = null;
+    private long directoryStamp = 0;   // Last-modified of the directory at the last scan
+    private long scannedAt = 0;        // Wall time of the last scan
+    private long ownWriteStamp = 0;    // Directory stamp left by the app's own latest write
+    private boolean loaded = false;
+    private Map<String, Entry> entries = new LinkedHashMap<>(); // In directory order
+
+    // --- Published Snapshot ---
+    private volatile DirectorySnapshot snapshot = null;
+    private long snapshotVersion = 0;
+    private long validatedAt = 0;      // Uptime of the last stamp check
+    private volatile boolean dirty = false;
+
+
+    /**
+     * A single indexed document of the library directory.
+     */
+    static class Entry {
+        final String documentId;
+        final String displayName;
+        final String title;     // Display name without extension
+        final String mimeType;
+        final long lastModified;
+        final long size;
+        Song song; // Built lazily for audio entries
+
+        Entry(String documentId, String displayName, String mimeType, long lastModified, long size) {
+            this.documentId = documentId;
+            this.displayName = displayName;
+            this.title = FileUtils.removeExtensionFromName(displayName);
+            this.mimeType = mimeType;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        boolean isAudio() {
+            return mimeType != null && mimeType.startsWith("audio/");
+        }
+
+        boolean isJson() {
+            return "application/json".equals(mimeType);
+        }
+
+        /**
+         * Returns the Song of an audio entry, interning it on first use.
+         *
+         * @param directoryUri The Uri of the library directory.
+         * @return The Song for this entry.
+         */
+        Song getSong(Uri directoryUri) {
+            if (song == null) {
+                song = SongRegistry.obtain(directoryUri, documentId, title, lastModified);
+            }
+            return song;
+        }
+    }
+
+
+    /**
+     * Creates an index backed by a file in the app-private files directory.
+     *
+     * @param context Application context.
+     */
+    private LibraryIndex(Context context) {
+        this.indexFile = new File(context.getApplicationContext().getFilesDir(), INDEX_FILE_NAME);
+    }
+
+    /**
+     * Gets the singleton instance of LibraryIndex, creating it on first use.
+     *
+     * @param context Application context.
+     * @return The LibraryIndex instance.
+     */
+    public static synchronized LibraryIndex getInstance(Context context) {
+        if (instance == null) {
+            instance = new LibraryIndex(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Returns a snapshot of the library directory, rescanning the directory only if it
+     * changed since the last scan or the index was invalidated.
+     *
+     * @param context      The context used to access the content resolver.
+     * @param directoryUri The Uri of the library directory.
+     * @return The current snapshot of the directory.
+     */
+    public DirectorySnapshot getSnapshot(Context context, Uri directoryUri) {
+        return getSnapshot(context, directoryUri, null, false);
+    }
+
+    /**
+     * Returns a snapshot of the library directory. If the directory has to be walked, the songs
+     * found so far are handed to the chunk listener every {@link #SCAN_CHUNK_SIZE} rows while
+     * the cursor advances.
+     *
+     * @param context       The context used to access the content resolver.
+     * @param directoryUri  The Uri of the library directory.
+     * @param chunkListener Receives partial lists of songs during a walk, may be null.
+     * @param refresh       Whether to walk the directory even if its stamp did not change, to
+     *                      pick up files modified in place.
+     * @return The current snapshot of the directory.
+     */
+    public synchronized DirectorySnapshot getSnapshot(Context context, Uri directoryUri,
+                                                      Consumer<List<Song>> chunkListener, boolean refresh) {
+        if (directoryUri == null) return DirectorySnapshot.empty();
+
+        ensureLoaded(directoryUri);
+
+        boolean forced = dirty || refresh;
+        dirty = false;
+        long now = SystemClock.elapsedRealtime();
+        if (!forced && snapshot != null && now - validatedAt < REVALIDATE_INTERVAL_MS) {
+            return snapshot;
+        }
+
+        long stamp = FileUtils.getDocumentLastModified(context, directoryUri);
+        boolean changed = false;
+        if (forced || !isUpToDate(stamp)) {
+            Map<String, Entry> updated = reconcile(context, directoryUri, chunkListener);
+            if (updated == null) {
+                // Keep serving the old rows, but retry on the next request
+                dirty = dirty || forced;
+                return snapshot != null ? snapshot : DirectorySnapshot.empty();
+            }
+
+            changed = !sameRows(updated);
+            entries = updated;
+            directoryStamp = stamp;
+            scannedAt = System.currentTimeMillis();
+            save();
+        }
+        validatedAt = now;
+
+        if (snapshot == null || changed) {
+            snapshot = new DirectorySnapshot(directoryUri, ++snapshotVersion, entries.values(), snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns the last published snapshot without validating it against the directory.
+     *
+     * @return The last snapshot, or null if none was built yet.
+     */
+    public DirectorySnapshot peekSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Forces the next snapshot to walk the directory. Called after the app writes into the folder.
+     */
+    public void invalidate() {
+        dirty = true;
+    }
+
+    /**
+     * Applies a playlist file the app wrote to the cached rows, so the write does not make the next
+     * request walk the directory. The rows are only patched if they still described the directory
+     * right before the write; otherwise, or if the stamp left by the write is too coarse to rule
+     * out another change within the same tick, the index is invalidated instead. The patched rows
+     * are not persisted, after a restart the directory is walked once.
+     *
+     * @param directoryUri The Uri of the library directory.
+     * @param replacedUri  The Uri of the file before the write, or null if it was created.
+     * @param writtenUri   The Uri of the written file.
+     * @param displayName  The display name of the written file.
+     * @param stampBefore  The directory stamp right before the write.
+     * @param stampAfter   The directory stamp right after the write.
+     */
+    synchronized void recordOwnWrite(Uri directoryUri, Uri replacedUri, Uri writtenUri, String displayName,
+                                     long stampBefore, long stampAfter) {
+        boolean current = !dirty && snapshot != null && directoryUri.equals(this.directoryUri)
+                && isUpToDate(stampBefore);
+        if (!current || stampAfter <= 0 || stampAfter % 1000 == 0) {
+            dirty = true;
+            return;
+        }
+
+        String writtenId = DocumentsContract.getDocumentId(writtenUri);
+        if (replacedUri != null) {
+            String replacedId = DocumentsContract.getDocumentId(replacedUri);
+            if (!replacedId.equals(writtenId)) entries.remove(replacedId);
+        }
+        // The stamp of the file itself is only known after the next walk
+        entries.put(writtenId, new Entry(writtenId, displayName,
+                CursorRowDecoder.internMimeType(FileUtils.getMimeType(displayName)), 0, 0));
+
+        directoryStamp = stampAfter;
+        ownWriteStamp = stampAfter;
+        validatedAt = SystemClock.elapsedRealtime();
+        snapshot = new DirectorySnapshot(directoryUri, ++snapshotVersion, entries.values(), snapshot);
+    }
+
+    // --- Index Maintenance ---
+
+    /**
+     * Checks whether the cached rows still describe the directory.
+     *
+     * @param stamp The current last-modified stamp of the directory.
+     * @return True if the directory has not changed since the last scan.
+     */
+    private boolean isUpToDate(long stamp) {
+        if (stamp <= 0 || directoryStamp <= 0) return false;
+        if (stamp != directoryStamp) return false;
+
+        // Left by the app's own write, the rows were patched rather than read from a listing
+        if (stamp == ownWriteStamp) return true;
+
+        // Racy stamps cannot be trusted, a change in the same tick would not move the stamp
+        return scannedAt - directoryStamp >= STAMP_GRANULARITY_MS;
+    }
+
+    /**
+     * Walks the directory once and reconciles the cached rows with its current contents.
+     *
+     * @param context      The context used to access the content resolver.
+     * @param directoryUri  The Uri of the library directory.
+     * @param chunkListener Receives partial lists of songs as the cursor advances, may be null.
+     * @return The reconciled rows keyed by document id in cursor order, or null if the directory
+     *         could not be queried.
+     */
+    private Map<String, Entry> reconcile(Context context, Uri directoryUri, Consumer<List<Song>> chunkListener) {
+        Map<String, Entry> updated = new LinkedHashMap<>();
+        List<Song> chunk = new ArrayList<>();
+
+        Uri childrenUri = DocumentsContract.buildChildDocumentsUriUsingTree(
+                directoryUri,
+                DocumentsContract.getTreeDocumentId(directoryUri)
+        );
+
+        try (Cursor cursor = context.getApplicationContext().getContentResolver().query(childrenUri,
+                CursorRowDecoder.PROJECTION, null, null, null)) {
+
+            if (cursor == null) return null;
+            CursorRowDecoder row = new CursorRowDecoder(cursor);
+
+            // Iterate over each document, only decoding the rows that changed
+            while (cursor.moveToNext()) {
+                String docId = row.getDocumentId();
+                if (docId == null) continue;
+                long lastModified = row.getLastModified();
+
+                Entry entry = entries.get(docId);
+                if (entry == null || entry.lastModified != lastModified || !row.displayNameEquals(entry.displayName)) {
+                    String displayName = row.getDisplayName();
+                    if (displayName == null) continue;
+                    String mimeType = row.getMimeType(displayName);
+
+                    entry = new Entry(docId, displayName, mimeType, lastModified, row.getSize());
+                }
+                updated.put(docId, entry);
+
+                // Hand out the songs found so far
+                if (chunkListener != null && entry.isAudio()) {
+                    chunk.add(entry.getSong(directoryUri));
+                    if (chunk.size() >= SCAN_CHUNK_SIZE) {
+                        chunkListener.accept(chunk);
+                        chunk = new ArrayList<>();
+                    }
+                }
+            }
+            if (chunkListener != null && !chunk.isEmpty()) {
+                chunkListener.accept(chunk);
+            }
+        } catch (Exception e) {
+            Log.e(LOG, "Error reconciling library index", e);
+            return null;
+        }
+
+        return updated;
+    }
+
+    /**
+     * Checks whether reconciled rows are exactly the rows currently held by the index.
+     *
+     * @param updated The reconciled rows.
+     * @return True if no row was added, removed or changed.
+     */
+    private boolean sameRows(Map<String, Entry> updated) {
+        if (updated.size() != entries.size()) return false;
+        for (Map.Entry<String, Entry> row : updated.entrySet()) {
+            if (entries.get(row.getKey()) != row.getValue()) return false;
+        }
+        return true;
+    }
+
+    // --- Persistence ---
+
+    /**
+     * Loads the index file once, discarding it if it belongs to another directory.
+     *
+     * @param directoryUri The Uri of the library directory.
+     */
+    private void ensureLoaded(Uri directoryUri) {
+        if (loaded && directoryUri.equals(this.directoryUri)) return;
+
+        loaded = true;
+        this.directoryUri = directoryUri;
+        snapshot = null;
+        entries = new LinkedHashMap<>();
+        directoryStamp = 0;
+        scannedAt = 0;
+        ownWriteStamp = 0;
+
+        if (!indexFile.exists()) return;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+                Log.w(LOG, "Discarding library index with unknown format.");
+                return;
+            }
+            if (!directoryUri.toString().equals(in.readUTF())) {
+                Log.i(LOG, "Library index belongs to another directory.");
+                return;
+            }
+
+            long stamp = in.readLong();
+            long scanned = in.readLong();
+            int count = in.readInt();
+            Map<String, Entry> loadedEntries = new LinkedHashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                String docId = in.readUTF();
+                String displayName = in.readUTF();
+                String mimeType = in.readUTF();
+                long lastModified = in.readLong();
+                long size = in.readLong();
+                loadedEntries.put(docId, new Entry(docId, displayName, mimeType.isEmpty() ? null : CursorRowDecoder.internMimeType(mimeType), lastModified, size));
+            }
+
+            entries = loadedEntries;
+            directoryStamp = stamp;
+            scannedAt = scanned;
+        } catch (IOException e) {
+            Log.e(LOG, "Error loading library index", e);
+            entries = new LinkedHashMap<>();
+            directoryStamp = 0;
+            scannedAt = 0;
+        }
+    }
+
+    /**
+     * Writes the index to a temporary file and swaps it in place of the previous index.
+     */
+    private void save() {
+        if (directoryUri == null) return;
+
+        File tempFile = new File(indexFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(INDEX_VERSION);
+            out.writeUTF(directoryUri.toString());
+            out.writeLong(directoryStamp);
+            out.writeLong(scannedAt);
+            out.writeInt(entries.size());
+            for (Entry entry : entries.values()) {
+                out.writeUTF(entry.documentId);
+                out.writeUTF(entry.displayName);
+                out.writeUTF(entry.mimeType != null ? entry.mimeType : "");
+                out.writeLong(entry.lastModified);
+                out.writeLong(entry.size);
+            }
+        } catch (IOException e) {
+            Log.e(LOG, "Error saving library index", e);
+            tempFile.delete();
+            return;
+        }
+
+        if (!tempFile.renameTo(indexFile)) {
+            Log.e(LOG, "Failed to replace library index file");
+            tempFile.delete();
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.tunestacker2.Data;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Binary sidecar cache of the decoded playlist JSON files.
+ * <p>
+ * The JSON files in the library directory stay the source of truth. This cache only remembers,
+ * per JSON file, the last-modified stamp it was decoded at and the decoded contents, so that a
+ * cold start does not have to open and parse every file through SAF again. The cache lives in
+ * app-private storage, strings are stored as length-prefixed UTF-8 and the file is read through
+ * a memory-mapped buffer.
+ */
+public class PlaylistCache {
+
+    // --- Constants ---
+    private static final String LOG = "PlaylistCache";
+    private static final String CACHE_FILE_NAME = "playlist_cache.bin";
+    private static final int CACHE_MAGIC = 0x54504C43; // "TPLC"
+    private static final int CACHE_VERSION = 1;
+
+    // --- Singleton Instance ---
+    private static PlaylistCache instance = null;
+
+    // --- Data Members ---
+    private final File cacheFile;
+    private Uri directoryUri = null;
+    private boolean loaded = false;
+    private boolean dirty = false;
+    private final Map<String, Entry> entries = new HashMap<>(); // Keyed by JSON Uri
+
+
+    /**
+     * A decoded playlist file and the stamp of the file it was decoded from.
+     */
+    private static class Entry {
+        final long lastModified;
+        final PlaylistCodec.Decoded decoded;
+
+        Entry(long lastModified, PlaylistCodec.Decoded decoded) {
+            this.lastModified = lastModified;
+            this.decoded = decoded;
+        }
+    }
+
+
+    private PlaylistCache(Context context) {
+        this.cacheFile = new File(context.getApplicationContext().getFilesDir(), CACHE_FILE_NAME);
+    }
+
+    /**
+     * Gets the singleton instance of PlaylistCache, creating it on first use.
+     *
+     * @param context Application context.
+     * @return The PlaylistCache instance.
+     */
+    public static synchronized PlaylistCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new PlaylistCache(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the cached contents of a playlist file if it has not changed since it was cached.
+     *
+     * @param directoryUri The Uri of the library directory.
+     * @param jsonFile     The playlist file as listed by a refreshed directory snapshot, so its
+     *                     stamp is the current last-modified time of the file.
+     * @return The decoded playlist, or null if the file has to be parsed.
+     */
+    public synchronized PlaylistCodec.Decoded get(Uri directoryUri, DirectorySnapshot.JsonFile jsonFile) {
+        ensureLoaded(directoryUri);
+        if (jsonFile.lastModified <= 0) return null;
+
+        Entry entry = entries.get(jsonFile.uri.toString());
+        if (entry == null || entry.lastModified != jsonFile.lastModified) return null;
+        return entry.decoded;
+    }
+
+    /**
+     * Stores the decoded contents of a playlist file.
+     *
+     * @param directoryUri The Uri of the library directory.
+     * @param jsonFile     The playlist file as seen in the current directory snapshot.
+     * @param decoded      The decoded playlist.
+     */
+    public synchronized void put(Uri directoryUri, DirectorySnapshot.JsonFile jsonFile, PlaylistCodec.Decoded decoded) {
+        ensureLoaded(directoryUri);
+        if (jsonFile.lastModified <= 0 || decoded == null) return;
+
+        Entry previous = entries.get(jsonFile.uri.toString());
+        if (previous != null && previous.lastModified == jsonFile.lastModified && previous.decoded == decoded) return;
+
+        entries.put(jsonFile.uri.toString(), new Entry(jsonFile.lastModified, decoded));
+        dirty = true;
+    }
+
+    /**
+     * Drops the cached contents of a playlist file after the app wrote to it. The change is
+     * persisted right away, the stamp of the rewritten file is only known after the next scan.
+     *
+     * @param directoryUri The Uri of the library directory.
+     * @param jsonUri      The Uri of the playlist file.
+     */
+    public synchronized void remove(Uri directoryUri, Uri jsonUri) {
+        if (directoryUri == null || jsonUri == null) return;
+
+        ensureLoaded(directoryUri);
+        if (entries.remove(jsonUri.toString()) != null) {
+            dirty = true;
+            save();
+        }
+    }
+
+    /**
+     * Drops every entry whose file is no longer part of the directory.
+     *
+     * @param jsonUris The Uris of the playlist files that still exist.
+     */
+    public synchronized void retainAll(Set<String> jsonUris) {
+        if (entries.keySet().retainAll(jsonUris)) dirty = true;
+    }
+
+    /**
+     * Writes the cache back to disk if it changed since it was loaded.
+     */
+    public synchronized void save() {
+        if (!dirty || directoryUri == null) return;
+
+        File tempFile = new File(cacheFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.writeInt(CACHE_MAGIC);
+            out.writeInt(CACHE_VERSION);
+            writeString(out, directoryUri.toString());
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> row : entries.entrySet()) {
+                Entry entry = row.getValue();
+                writeString(out, row.getKey());
+                out.writeLong(entry.lastModified);
+                writeString(out, entry.decoded.name);
+                out.writeLong(entry.decoded.lastPlayed);
+                out.writeInt(entry.decoded.songNames.size());
+                for (String songName : entry.decoded.songNames) {
+                    writeString(out, songName);
+                }
+            }
+        } catch (IOException e) {
+            Log.e(LOG, "Error saving playlist cache", e);
+            tempFile.delete();
+            return;
+        }
+
+        if (tempFile.renameTo(cacheFile)) {
+            dirty = false;
+        } else {
+            Log.e(LOG, "Failed to replace playlist cache file");
+            tempFile.delete();
+        }
+    }
+
+    // --- Persistence ---
+
+    /**
+     * Loads the cache file once, discarding it if it belongs to another directory.
+     *
+     * @param directoryUri The Uri of the library directory.
+     */
+    private void ensureLoaded(Uri directoryUri) {
+        if (loaded && directoryUri.equals(this.directoryUri)) return;
+
+        loaded = true;
+        dirty = this.directoryUri != null; // Switching directory rewrites the file
+        this.directoryUri = directoryUri;
+        entries.clear();
+
+        if (!cacheFile.exists()) return;
+
+        try (RandomAccessFile file = new RandomAccessFile(cacheFile, "r");
+             FileChannel channel = file.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != CACHE_MAGIC || buffer.getInt() != CACHE_VERSION) {
+                Log.w(LOG, "Discarding playlist cache with unknown format.");
+                return;
+            }
+            if (!directoryUri.toString().equals(readString(buffer))) {
+                Log.i(LOG, "Playlist cache belongs to another directory.");
+                return;
+            }
+
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                String jsonUri = readString(buffer);
+                long lastModified = buffer.getLong();
+                String name = readString(buffer);
+                long lastPlayed = buffer.getLong();
+                int songCount = buffer.getInt();
+                List<String> songNames = new ArrayList<>(songCount);
+                for (int j = 0; j < songCount; j++) {
+                    songNames.add(readString(buffer));
+                }
+                entries.put(jsonUri, new Entry(lastModified, new PlaylistCodec.Decoded(name, lastPlayed, songNames)));
+            }
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            Log.e(LOG, "Error loading playlist cache", e);
+            entries.clear();
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(MappedByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Corrupt string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
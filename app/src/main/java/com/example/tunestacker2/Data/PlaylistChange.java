@@ -0,0 +1,115 @@
+package com.example.tunestacker2.Data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * The difference between two consecutive versions of a playlist's contents, small enough to
+ * journal on every edit.
+ * <p>
+ * The edits the app makes change one thing at a time: songs are appended, one song is removed or
+ * one song is dragged to another position. Those are recorded by position instead of repeating
+ * the whole song list; any other difference replaces the list. Every change also carries the
+ * last-played time of the new version.
+ */
+final class PlaylistChange {
+
+    // --- Change Types ---
+    static final byte NONE = 0;    // Only the last-played time may differ
+    static final byte APPEND = 1;  // Songs added at the end
+    static final byte REMOVE = 2;  // The song at one position removed
+    static final byte MOVE = 3;    // The song at one position moved to another
+    static final byte REPLACE = 4; // The whole song list replaced
+
+    // --- Data Members ---
+    final byte type;
+    final long lastPlayed;
+    final int from;               // REMOVE and MOVE: position in the previous version
+    final int to;                 // MOVE: position in the new version
+    final List<String> songNames; // APPEND: the added songs, REPLACE: every song, otherwise empty
+
+
+    PlaylistChange(byte type, long lastPlayed, int from, int to, List<String> songNames) {
+        this.type = type;
+        this.lastPlayed = lastPlayed;
+        this.from = from;
+        this.to = to;
+        this.songNames = songNames;
+    }
+
+    /**
+     * Describes how a playlist's contents changed.
+     *
+     * @param before The previous version.
+     * @param after  The new version.
+     * @return The change, or null if the name changed and the new version has to be recorded whole.
+     */
+    static PlaylistChange between(PlaylistCodec.Decoded before, PlaylistCodec.Decoded after) {
+        if (!before.name.equals(after.name)) return null;
+
+        List<String> old = before.songNames;
+        List<String> next = after.songNames;
+        int oldSize = old.size();
+        int newSize = next.size();
+
+        // Common prefix and suffix, the changed window lies in between
+        int prefix = 0;
+        int shorter = Math.min(oldSize, newSize);
+        while (prefix < shorter && old.get(prefix).equals(next.get(prefix))) prefix++;
+        int suffix = 0;
+        while (suffix < shorter - prefix && old.get(oldSize - 1 - suffix).equals(next.get(newSize - 1 - suffix))) suffix++;
+
+        if (oldSize == newSize && prefix == oldSize) {
+            return new PlaylistChange(NONE, after.lastPlayed, 0, 0, Collections.emptyList());
+        }
+        if (newSize > oldSize && prefix == oldSize) {
+            return new PlaylistChange(APPEND, after.lastPlayed, 0, 0, new ArrayList<>(next.subList(oldSize, newSize)));
+        }
+        if (newSize == oldSize - 1 && prefix + suffix >= newSize) {
+            return new PlaylistChange(REMOVE, after.lastPlayed, prefix, 0, Collections.emptyList());
+        }
+        if (newSize == oldSize) {
+            int last = oldSize - 1 - suffix; // Last position of the changed window
+            if (old.get(prefix).equals(next.get(last)) && old.subList(prefix + 1, last + 1).equals(next.subList(prefix, last))) {
+                return new PlaylistChange(MOVE, after.lastPlayed, prefix, last, Collections.emptyList());
+            }
+            if (next.get(prefix).equals(old.get(last)) && next.subList(prefix + 1, last + 1).equals(old.subList(prefix, last))) {
+                return new PlaylistChange(MOVE, after.lastPlayed, last, prefix, Collections.emptyList());
+            }
+        }
+        return new PlaylistChange(REPLACE, after.lastPlayed, 0, 0, new ArrayList<>(next));
+    }
+
+    /**
+     * Applies the change to the version it was computed from.
+     *
+     * @param contents The previous version.
+     * @return The new version, or null if the change does not fit the given version.
+     */
+    PlaylistCodec.Decoded applyTo(PlaylistCodec.Decoded contents) {
+        List<String> songs = new ArrayList<>(contents.songNames);
+        switch (type) {
+            case NONE:
+                break;
+            case APPEND:
+                songs.addAll(songNames);
+                break;
+            case REMOVE:
+                if (from < 0 || from >= songs.size()) return null;
+                songs.remove(from);
+                break;
+            case MOVE:
+                if (from < 0 || from >= songs.size() || to < 0 || to >= songs.size()) return null;
+                songs.add(to, songs.remove(from));
+                break;
+            case REPLACE:
+                songs = new ArrayList<>(songNames);
+                break;
+            default:
+                return null;
+        }
+        return new PlaylistCodec.Decoded(contents.name, lastPlayed, songs);
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.tunestacker2.Data;
+
+import com.example.tunestacker2.MusicPlayer.Playlist;
+import com.example.tunestacker2.MusicPlayer.Song;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Streaming codec for playlist JSON files.
+ * <p>
+ * Playlists are decoded in a single forward pass with Gson's {@link JsonReader}, without building
+ * an intermediate element tree. Fields may appear in any order and unknown fields are skipped.
+ * A document is only accepted as a playlist if it holds "name", "lastPlayed" and "songs".
+ */
+public final class PlaylistCodec {
+
+    // --- JSON Field Names ---
+    private static final String FIELD_NAME = "name";
+    private static final String FIELD_LAST_PLAYED = "lastPlayed";
+    private static final String FIELD_SONGS = "songs";
+
+
+    /**
+     * The contents of a playlist file, with songs referenced by title.
+     */
+    public static final class Decoded {
+        public final String name;
+        public final long lastPlayed;
+        public final List<String> songNames;
+
+        Decoded(String name, long lastPlayed, List<String> songNames) {
+            this.name = name;
+            this.lastPlayed = lastPlayed;
+            this.songNames = songNames;
+        }
+    }
+
+
+    private PlaylistCodec() {
+        // Static utility class
+    }
+
+    /**
+     * Decodes a playlist document.
+     *
+     * @param in Reader positioned at the start of the document.
+     * @return The decoded playlist, or null if the document is not a playlist.
+     * @throws IOException If the document cannot be read or is malformed.
+     */
+    public static Decoded decode(Reader in) throws IOException {
+        JsonReader reader = new JsonReader(in);
+        reader.setLenient(true);
+
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) return null;
+
+        String name = null;
+        Long lastPlayed = null;
+        List<String> songNames = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case FIELD_NAME:
+                    name = nextString(reader);
+                    break;
+                case FIELD_LAST_PLAYED:
+                    lastPlayed = reader.nextLong();
+                    break;
+                case FIELD_SONGS:
+                    if (reader.peek() != JsonToken.BEGIN_ARRAY) return null;
+                    songNames = new ArrayList<>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        songNames.add(nextString(reader).trim());
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        // Ensures that the json file is a valid playlist
+        if (name == null || lastPlayed == null || songNames == null) return null;
+        return new Decoded(name, lastPlayed, songNames);
+    }
+
+    /**
+     * Encodes a playlist, referencing its songs by title.
+     *
+     * @param out      Writer receiving the document.
+     * @param playlist The playlist to encode.
+     * @throws IOException If the document cannot be written.
+     */
+    public static void encode(Writer out, Playlist playlist) throws IOException {
+        encode(out, snapshot(playlist));
+    }
+
+    /**
+     * Encodes the contents of a playlist file.
+     *
+     * @param out      Writer receiving the document.
+     * @param contents The playlist contents to encode.
+     * @throws IOException If the document cannot be written.
+     */
+    public static void encode(Writer out, Decoded contents) throws IOException {
+        JsonWriter writer = new JsonWriter(out);
+        writer.setHtmlSafe(true);
+
+        writer.beginObject();
+        writer.name(FIELD_NAME).value(contents.name);
+        writer.name(FIELD_LAST_PLAYED).value(contents.lastPlayed);
+        writer.name(FIELD_SONGS).beginArray();
+        for (String songName : contents.songNames) {
+            writer.value(songName);
+        }
+        writer.endArray();
+        writer.endObject();
+        writer.flush();
+    }
+
+    /**
+     * Captures the current contents of a playlist, referencing its songs by title.
+     *
+     * @param playlist The playlist to capture.
+     * @return A copy of the playlist contents that later edits do not affect.
+     */
+    public static Decoded snapshot(Playlist playlist) {
+        List<String> songNames = new ArrayList<>();
+        List<Song> songs = playlist.getSongs();
+        if (songs != null) {
+            for (Song song : songs) {
+                songNames.add(song.getTitle());
+            }
+        }
+        return new Decoded(playlist.getTitle(), playlist.getLastPlayed(), songNames);
+    }
+
+    /**
+     * Reads a string value, accepting numbers and booleans the way the element tree did.
+     *
+     * @param reader The reader positioned at a value.
+     * @return The value as a string.
+     * @throws IOException If the value is not a primitive.
+     */
+    private static String nextString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.BOOLEAN) {
+            return String.valueOf(reader.nextBoolean());
+        }
+        return reader.nextString();
+    }
+}
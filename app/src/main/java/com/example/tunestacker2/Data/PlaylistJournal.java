@@ -0,0 +1,406 @@
+package com.example.tunestacker2.Data;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+
+/**
+ * Append-only journal of playlist changes that are not yet written to their JSON files.
+ * <p>
+ * The changes queued for one write of a playlist form a chain: the first queued change records
+ * the complete playlist, every further change only the {@link PlaylistChange} to the previous
+ * version, and a commit record closes the chain once the JSON file was written. If the process is
+ * killed in between, the latest uncommitted chain of every playlist is replayed on the next
+ * start. Records name the playlist by directory and file name rather than by document, since a
+ * write may give the file a new document. Each record carries a checksum so that a record torn by
+ * the kill is ignored.
+ * <p>
+ * Records are encoded and appended in order on a thread of the journal, so callers only pay for
+ * numbering them. The file lives in app-private storage and is truncated whenever every chain
+ * has been committed.
+ */
+class PlaylistJournal {
+
+    // --- Constants ---
+    private static final String LOG = "PlaylistJournal";
+    private static final String JOURNAL_FILE_NAME = "playlist_journal.bin";
+    private static final byte RECORD_STATE = 1;
+    private static final byte RECORD_COMMIT = 2;
+    private static final byte RECORD_CHANGE = 3;
+    private static final byte RECORD_FAILED_REPLAY = 4;
+
+    // --- Data Members ---
+    private final File journalFile;
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor(); // Owns the file
+    private long nextSequence = 1; // Guarded by this
+    private final Map<String, Long> uncommitted = new HashMap<>(); // Latest chain per playlist file, journal thread only
+
+
+    /**
+     * The latest version of a playlist that was journaled but never written to its JSON file.
+     */
+    static final class PendingState {
+        final Uri directoryUri;
+        final String fileName;
+        final PlaylistCodec.Decoded contents;
+        final long sequence;     // Sequence number of the chain
+        final int failedReplays; // Earlier starts that could not write it
+
+        PendingState(Uri directoryUri, String fileName, PlaylistCodec.Decoded contents, long sequence, int failedReplays) {
+            this.directoryUri = directoryUri;
+            this.fileName = fileName;
+            this.contents = contents;
+            this.sequence = sequence;
+            this.failedReplays = failedReplays;
+        }
+    }
+
+    /**
+     * A chain being rebuilt from the journal.
+     */
+    private static final class Chain {
+        final Uri directoryUri;
+        final String fileName;
+        PlaylistCodec.Decoded contents;
+        int failedReplays = 0;
+
+        Chain(Uri directoryUri, String fileName, PlaylistCodec.Decoded contents) {
+            this.directoryUri = directoryUri;
+            this.fileName = fileName;
+            this.contents = contents;
+        }
+    }
+
+
+    /**
+     * @param context Application context.
+     */
+    PlaylistJournal(Context context) {
+        this.journalFile = new File(context.getApplicationContext().getFilesDir(), JOURNAL_FILE_NAME);
+    }
+
+    /**
+     * Starts a chain with the complete state of a playlist that is about to be written.
+     *
+     * @param directoryUri The library directory the playlist belongs to.
+     * @param fileName     The display name of the playlist's JSON file.
+     * @param contents     The complete playlist contents, which must not change afterwards.
+     * @return The sequence number of the chain, or -1 if it cannot be journaled.
+     */
+    synchronized long append(Uri directoryUri, String fileName, PlaylistCodec.Decoded contents) {
+        if (directoryUri == null || fileName == null) return -1;
+
+        long sequence = nextSequence++;
+        ioExecutor.execute(() -> {
+            byte[] payload = encode(out -> {
+                out.writeByte(RECORD_STATE);
+                out.writeLong(sequence);
+                writeString(out, directoryUri.toString());
+                writeString(out, fileName);
+                writeString(out, contents.name);
+                out.writeLong(contents.lastPlayed);
+                writeSongNames(out, contents.songNames);
+            });
+            if (payload != null && writeRecord(payload)) {
+                uncommitted.put(keyOf(directoryUri, fileName), sequence);
+            }
+        });
+        return sequence;
+    }
+
+    /**
+     * Adds a change to a chain.
+     *
+     * @param chain  The sequence number returned by {@link #append}.
+     * @param change The change to the previous version of the chain.
+     */
+    synchronized void appendChange(long chain, PlaylistChange change) {
+        if (chain < 0) return;
+
+        long sequence = nextSequence++;
+        ioExecutor.execute(() -> {
+            byte[] payload = encode(out -> {
+                out.writeByte(RECORD_CHANGE);
+                out.writeLong(sequence);
+                out.writeLong(chain);
+                out.writeByte(change.type);
+                out.writeLong(change.lastPlayed);
+                out.writeInt(change.from);
+                out.writeInt(change.to);
+                writeSongNames(out, change.songNames);
+            });
+            if (payload != null) writeRecord(payload);
+        });
+    }
+
+    /**
+     * Marks a chain as written. The journal is truncated once nothing is left to replay.
+     *
+     * @param directoryUri The library directory the chain was journaled under.
+     * @param fileName     The file name the chain was journaled under.
+     * @param chain        The sequence number returned by {@link #append}.
+     */
+    synchronized void commit(Uri directoryUri, String fileName, long chain) {
+        if (directoryUri == null || fileName == null || chain < 0) return;
+
+        ioExecutor.execute(() -> {
+            // An older chain was written, a newer one of the same playlist is still pending
+            String key = keyOf(directoryUri, fileName);
+            Long latest = uncommitted.get(key);
+            if (latest == null || latest != chain) return;
+            uncommitted.remove(key);
+
+            if (uncommitted.isEmpty()) {
+                truncate();
+                return;
+            }
+            byte[] payload = encode(out -> {
+                out.writeByte(RECORD_COMMIT);
+                out.writeLong(chain);
+            });
+            if (payload != null) writeRecord(payload);
+        });
+    }
+
+    /**
+     * Remembers that a pending state could not be written on this start.
+     *
+     * @param state The state returned by {@link #readPending}.
+     */
+    synchronized void recordFailedReplay(PendingState state) {
+        ioExecutor.execute(() -> {
+            byte[] payload = encode(out -> {
+                out.writeByte(RECORD_FAILED_REPLAY);
+                out.writeLong(state.sequence);
+            });
+            if (payload != null) writeRecord(payload);
+        });
+    }
+
+    /**
+     * Reads the journal left behind by a previous process. Must be called before anything is
+     * appended.
+     *
+     * @return The latest uncommitted version of every playlist, in journal order.
+     */
+    List<PendingState> readPending() {
+        try {
+            return ioExecutor.submit(this::readPendingRecords).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Log.e(LOG, "Error reading playlist journal", e);
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Waits until every queued record reached the file and stops the journal thread. The journal
+     * cannot be used afterwards.
+     */
+    void close() {
+        ioExecutor.shutdown();
+        try {
+            if (!ioExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                Log.e(LOG, "Timed out writing the playlist journal");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // --- Persistence ---
+
+    /**
+     * Rebuilds the chains of the journal. Runs on the journal thread.
+     */
+    private List<PendingState> readPendingRecords() {
+        Map<Long, Chain> chains = new HashMap<>();
+        Map<String, Long> latestChains = new HashMap<>();
+        Set<Long> committed = new HashSet<>();
+        long lastSequence = 0;
+        if (!journalFile.exists()) return new ArrayList<>();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)))) {
+            CRC32 crc = new CRC32();
+            long fileLength = journalFile.length();
+            while (true) {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length <= 0 || length > fileLength) break; // Torn tail
+
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) break;
+
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                byte type = record.readByte();
+                long sequence = record.readLong();
+                lastSequence = Math.max(lastSequence, sequence);
+
+                if (type == RECORD_STATE) {
+                    Uri directoryUri = Uri.parse(readString(record));
+                    String fileName = readString(record);
+                    String name = readString(record);
+                    long lastPlayed = record.readLong();
+                    List<String> songNames = readSongNames(record);
+
+                    // Later chains of a playlist supersede earlier ones
+                    chains.put(sequence, new Chain(directoryUri, fileName, new PlaylistCodec.Decoded(name, lastPlayed, songNames)));
+                    latestChains.put(keyOf(directoryUri, fileName), sequence);
+                } else if (type == RECORD_CHANGE) {
+                    long chainSequence = record.readLong();
+                    PlaylistChange change = new PlaylistChange(record.readByte(), record.readLong(),
+                            record.readInt(), record.readInt(), readSongNames(record));
+
+                    // A chain whose first record was lost cannot be rebuilt
+                    Chain chain = chains.get(chainSequence);
+                    if (chain == null || chain.contents == null) continue;
+                    chain.contents = change.applyTo(chain.contents);
+                    if (chain.contents == null) Log.e(LOG, "Journaled change does not fit its playlist " + chain.fileName);
+                } else if (type == RECORD_COMMIT) {
+                    committed.add(sequence);
+                } else if (type == RECORD_FAILED_REPLAY) {
+                    Chain chain = chains.get(sequence);
+                    if (chain != null) chain.failedReplays++;
+                }
+            }
+        } catch (EOFException e) {
+            // End of the journal, or a record torn by the kill
+        } catch (IOException e) {
+            Log.e(LOG, "Error reading playlist journal", e);
+        }
+
+        synchronized (this) {
+            nextSequence = Math.max(nextSequence, lastSequence + 1);
+        }
+
+        List<PendingState> pending = new ArrayList<>();
+        for (Map.Entry<String, Long> latest : latestChains.entrySet()) {
+            long sequence = latest.getValue();
+            Chain chain = chains.get(sequence);
+            if (committed.contains(sequence) || chain.contents == null) continue;
+
+            pending.add(new PendingState(chain.directoryUri, chain.fileName, chain.contents, sequence, chain.failedReplays));
+            uncommitted.put(latest.getKey(), sequence);
+        }
+        pending.sort((a, b) -> Long.compare(a.sequence, b.sequence));
+
+        if (uncommitted.isEmpty()) truncate();
+        return pending;
+    }
+
+    /**
+     * Writes the fields of a record.
+     */
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] encode(RecordWriter writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        } catch (IOException e) {
+            Log.e(LOG, "Error encoding journal record", e);
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Appends a checksummed record to the journal.
+     *
+     * @param payload The encoded record.
+     * @return True if the record reached the file.
+     */
+    private boolean writeRecord(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(journalFile, true))) {
+            // Written in one call so the kernel holds the whole record once write() returns
+            ByteArrayOutputStream record = new ByteArrayOutputStream(payload.length + 8);
+            DataOutputStream header = new DataOutputStream(record);
+            header.writeInt(payload.length);
+            header.writeInt((int) crc.getValue());
+            header.write(payload);
+            out.write(record.toByteArray());
+            return true;
+        } catch (IOException e) {
+            Log.e(LOG, "Error appending to playlist journal", e);
+            return false;
+        }
+    }
+
+    private static String keyOf(Uri directoryUri, String fileName) {
+        return directoryUri + "/" + fileName;
+    }
+
+    private void truncate() {
+        if (journalFile.exists() && !journalFile.delete()) {
+            Log.e(LOG, "Failed to truncate playlist journal");
+        }
+    }
+
+    private static void writeSongNames(DataOutputStream out, List<String> songNames) throws IOException {
+        out.writeInt(songNames.size());
+        for (String songName : songNames) {
+            writeString(out, songName);
+        }
+    }
+
+    private static List<String> readSongNames(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > in.available()) {
+            throw new IOException("Corrupt song count " + count);
+        }
+        List<String> songNames = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            songNames.add(readString(in));
+        }
+        return songNames;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Corrupt string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.tunestacker2.Data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.DocumentsContract;
+import android.util.Log;
+
+import java.util.HashSet;
+import java.util.Set;
+
+
+/**
+ * Names of the playlist JSON files in the library directory, used to detect file name conflicts
+ * when a playlist is created.
+ * <p>
+ * The set is trusted as long as the last-modified stamp of the directory has not moved, which
+ * costs a single query. The app's own playlist writes update the set directly and adopt the stamp
+ * the write left, provided the set was current right before the write, so creating several
+ * playlists in a row never lists the directory. Any other change to
+ * the directory (downloads, deletions, other apps) rebuilds the set from one listing that only
+ * reads the name and type columns, without decoding the audio files.
+ */
+final class PlaylistNameIndex {
+
+    // --- Constants ---
+    private static final String LOG = "PlaylistNameIndex";
+    private static final String[] PROJECTION = new String[]{
+            DocumentsContract.Document.COLUMN_DISPLAY_NAME,
+            DocumentsContract.Document.COLUMN_MIME_TYPE
+    };
+
+    // --- Data Members ---
+    private static Set<String> names = null; // File names without extension
+    private static Uri indexedDirectory = null;
+    private static long directoryStamp = 0;   // Stamp the set is known to describe
+
+
+    private PlaylistNameIndex() {
+        // Static utility class
+    }
+
+    /**
+     * Checks whether the directory holds a playlist file with the given name.
+     *
+     * @param context      The context used to access the content resolver.
+     * @param directoryUri The library directory.
+     * @param baseName     The file name without extension.
+     * @return True if a JSON file of this name exists, or null if the directory could not be
+     *         listed and the answer is unknown.
+     */
+    static synchronized Boolean contains(Context context, Uri directoryUri, String baseName) {
+        if (directoryUri == null || baseName == null) return false;
+
+        long stamp = FileUtils.getDocumentLastModified(context, directoryUri);
+        boolean trusted = names != null && directoryUri.equals(indexedDirectory)
+                && stamp > 0 && stamp == directoryStamp;
+
+        if (!trusted) {
+            Set<String> listed = listJsonFileNames(context, directoryUri);
+            if (listed == null) return null;
+            names = listed;
+            indexedDirectory = directoryUri;
+        }
+        directoryStamp = stamp;
+        return names.contains(baseName);
+    }
+
+    /**
+     * Records a playlist file the app just wrote into the directory. If the directory changed
+     * in any other way since the set was last checked, the set is dropped instead.
+     *
+     * @param directoryUri The library directory.
+     * @param fileName     The display name of the file.
+     * @param stampBefore  The directory stamp right before the write.
+     * @param stampAfter   The directory stamp right after the write.
+     */
+    static synchronized void recordWrite(Uri directoryUri, String fileName, long stampBefore, long stampAfter) {
+        if (names == null || !directoryUri.equals(indexedDirectory)) return;
+
+        if (stampBefore != directoryStamp || stampAfter <= 0) {
+            names = null;
+            return;
+        }
+        names.add(FileUtils.removeExtensionFromName(fileName));
+        directoryStamp = stampAfter;
+    }
+
+    /**
+     * Forgets the set after a change whose effect on the file names is not known, for example a
+     * deleted playlist or an interrupted write. The next check lists the directory.
+     */
+    static synchronized void invalidate() {
+        names = null;
+    }
+
+    /**
+     * Lists the names of the JSON files in the directory.
+     *
+     * @param context      The context used to access the content resolver.
+     * @param directoryUri The library directory.
+     * @return The file names without extension, or null if the directory could not be queried.
+     */
+    private static Set<String> listJsonFileNames(Context context, Uri directoryUri) {
+        Uri childrenUri = DocumentsContract.buildChildDocumentsUriUsingTree(
+                directoryUri,
+                DocumentsContract.getTreeDocumentId(directoryUri)
+        );
+
+        try (Cursor cursor = context.getApplicationContext().getContentResolver().query(childrenUri,
+                PROJECTION, null, null, null)) {
+            if (cursor == null) return null;
+
+            Set<String> listed = new HashSet<>();
+            while (cursor.moveToNext()) {
+                String displayName = cursor.getString(0);
+                if (displayName == null) continue;
+
+                // Same type detection as the library index
+                String mimeType = cursor.getString(1);
+                if (mimeType == null || mimeType.equals("application/octet-stream")) {
+                    mimeType = FileUtils.getMimeType(displayName);
+                }
+                if ("application/json".equals(mimeType)) {
+                    listed.add(FileUtils.removeExtensionFromName(displayName));
+                }
+            }
+            return listed;
+        } catch (Exception e) {
+            Log.e(LOG, "Error listing playlist files", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.tunestacker2.Data;
+
+import android.net.Uri;
+
+import com.example.tunestacker2.MusicPlayer.Playlist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Immutable, versioned view of the loaded playlists.
+ * <p>
+ * DataManager publishes a new state for every change instead of editing the list in place, so a
+ * state handed to the UI never changes underneath it and readers need no lock. Playlists inside a
+ * state are treated as immutable as well: an edit copies the playlist and publishes the copy.
+ * Two states can therefore be compared cheaply, an unchanged playlist is the same instance in both.
+ * <p>
+ * Each state indexes its playlists by title, by JSON Uri and by {@link Playlist#getId() identity}.
+ * The indexes are rebuilt with every state, so a rename is visible under the new title and gone
+ * under the old one at the same time.
+ */
+public final class PlaylistState {
+
+    static final PlaylistState EMPTY = new PlaylistState(0, Collections.emptyList());
+
+    // --- Data Members ---
+    private final long version;
+    private final List<Playlist> playlists;
+    private final Map<String, Playlist> playlistsByTitle;
+    private final Map<String, Playlist> playlistsByJsonUri;
+    private final Map<Long, Playlist> playlistsById;
+
+
+    private PlaylistState(long version, List<Playlist> playlists) {
+        this.version = version;
+        this.playlists = playlists;
+        this.playlistsByTitle = new HashMap<>(playlists.size() * 2);
+        this.playlistsByJsonUri = new HashMap<>(playlists.size() * 2);
+        this.playlistsById = new HashMap<>(playlists.size() * 2);
+
+        for (Playlist playlist : playlists) {
+            // The first playlist wins if two files carry the same title
+            playlistsByTitle.putIfAbsent(playlist.getTitle(), playlist);
+            playlistsById.put(playlist.getId(), playlist);
+            if (playlist.getJsonUri() != null) {
+                playlistsByJsonUri.putIfAbsent(playlist.getJsonUri().toString(), playlist);
+            }
+        }
+    }
+
+    // --- Getters ---
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the playlists of this state.
+     *
+     * @return An unmodifiable list of playlists.
+     */
+    public List<Playlist> getPlaylists() {
+        return playlists;
+    }
+
+    /**
+     * Looks up a playlist by title.
+     *
+     * @param title The title of the playlist.
+     * @return The playlist, or null if no playlist has this title.
+     */
+    public Playlist find(String title) {
+        if (title == null) return null;
+        return playlistsByTitle.get(title);
+    }
+
+    /**
+     * Looks up a playlist by the Uri of its JSON file.
+     *
+     * @param jsonUri The Uri of the playlist file.
+     * @return The playlist, or null if no loaded playlist uses this file.
+     */
+    public Playlist findByJsonUri(Uri jsonUri) {
+        if (jsonUri == null) return null;
+        return playlistsByJsonUri.get(jsonUri.toString());
+    }
+
+    /**
+     * Looks up a playlist by its identity, which edited copies and renames keep.
+     *
+     * @param id The identity of the playlist.
+     * @return The playlist, or null if this state does not hold it.
+     */
+    public Playlist findById(long id) {
+        return playlistsById.get(id);
+    }
+
+    // --- Derived States ---
+
+    /**
+     * Returns a state holding freshly loaded playlists. A loaded playlist whose file and contents
+     * match a playlist of this state is replaced by the existing instance, so a reload only
+     * produces new instances for playlists that actually changed. A changed playlist keeps the
+     * identity of the playlist that used the same file.
+     *
+     * @param loaded The playlists read from disk.
+     * @return The next state.
+     */
+    PlaylistState withPlaylists(List<Playlist> loaded) {
+        List<Playlist> next = new ArrayList<>(loaded.size());
+        for (Playlist playlist : loaded) {
+            Playlist existing = findByJsonUri(playlist.getJsonUri());
+            if (existing == null) {
+                next.add(playlist);
+            } else if (sameContents(existing, playlist)) {
+                next.add(existing);
+            } else {
+                // Edits queued for the existing playlist still find the reloaded one
+                Playlist reloaded = new Playlist(existing);
+                reloaded.setTitle(playlist.getTitle());
+                reloaded.setLastPlayed(playlist.getLastPlayed());
+                reloaded.setSongs(playlist.getSongs());
+                next.add(reloaded);
+            }
+        }
+        return new PlaylistState(version + 1, Collections.unmodifiableList(next));
+    }
+
+    /**
+     * Returns a state with one more playlist.
+     *
+     * @param playlist The playlist to add.
+     * @return The next state.
+     */
+    PlaylistState withAdded(Playlist playlist) {
+        List<Playlist> next = new ArrayList<>(playlists.size() + 1);
+        next.addAll(playlists);
+        next.add(playlist);
+        return new PlaylistState(version + 1, Collections.unmodifiableList(next));
+    }
+
+    /**
+     * Returns a state in which a playlist is replaced by its edited copy. Callers take the
+     * instance from this very state, an instance a newer state no longer holds is not replaced.
+     *
+     * @param current The playlist instance held by this state.
+     * @param updated The edited copy.
+     * @return The next state, or this state if it does not hold the playlist.
+     */
+    PlaylistState withReplaced(Playlist current, Playlist updated) {
+        int index = indexOf(current);
+        if (index < 0) return this;
+
+        List<Playlist> next = new ArrayList<>(playlists);
+        next.set(index, updated);
+        return new PlaylistState(version + 1, Collections.unmodifiableList(next));
+    }
+
+    /**
+     * Returns a state without the given playlist.
+     *
+     * @param playlist The playlist instance held by this state.
+     * @return The next state, or this state if it does not hold the playlist.
+     */
+    PlaylistState withRemoved(Playlist playlist) {
+        int index = indexOf(playlist);
+        if (index < 0) return this;
+
+        List<Playlist> next = new ArrayList<>(playlists);
+        next.remove(index);
+        return new PlaylistState(version + 1, Collections.unmodifiableList(next));
+    }
+
+    private static boolean sameContents(Playlist a, Playlist b) {
+        return a.getTitle().equals(b.getTitle())
+                && a.getLastPlayed() == b.getLastPlayed()
+                && a.getSongs().equals(b.getSongs());
+    }
+
+    private int indexOf(Playlist playlist) {
+        for (int i = 0; i < playlists.size(); i++) {
+            if (playlists.get(i) == playlist) return i;
+        }
+        return -1;
+    }
+}
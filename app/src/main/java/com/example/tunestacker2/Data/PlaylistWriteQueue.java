@@ -0,0 +1,311 @@
+package com.example.tunestacker2.Data;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.tunestacker2.MusicPlayer.Playlist;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+
+/**
+ * Write-behind queue for playlist files.
+ * <p>
+ * Mutations mark a playlist dirty instead of rewriting its JSON file right away. Writes to the
+ * same playlist within a short debounce window are coalesced into a single write, which runs on
+ * the given I/O executor. Each coalesced mutation is told the result of the write that
+ * persisted it. Playlists are edited copy-on-write, so pending writes are keyed by the playlist's
+ * file rather than by instance, and the newest copy is the one written. Every file write (queued
+ * or immediate) holds the same lock so two writes of one file never overlap. Queued copies are
+ * already published and are never changed here; when a write moves a playlist to a new document,
+ * the owner is told so it can publish a copy with the new Uri.
+ * <p>
+ * Every queued change is also appended to a {@link PlaylistJournal}, so changes that were still
+ * waiting for their write when the process was killed are replayed on the next start. The first
+ * change of a write journals the whole playlist, the following ones only what changed, so a drag
+ * through a long playlist does not journal the full list on every step.
+ */
+class PlaylistWriteQueue {
+
+    // --- Constants ---
+    private static final String LOG = "PlaylistWriteQueue";
+    private static final long DEBOUNCE_MS = 400;   // Quiet time before a dirty playlist is written
+    private static final long MAX_DELAY_MS = 2000; // Upper bound while edits keep coming in
+    private static final int MAX_REPLAY_ATTEMPTS = 3; // Starts that try to write a journaled change
+
+    // --- Data Members ---
+    private final Context context;
+    private final Executor ioExecutor;
+    private final PlaylistJournal journal;
+    private final BiConsumer<Uri, Uri> onFileMoved;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+    private final Map<String, PendingWrite> pending = new HashMap<>(); // Keyed by playlist file, guarded by this
+    private final Object writeLock = new Object(); // Held for the duration of every file write
+    private long writeCount = 0;                   // Completed file writes, guarded by this
+
+
+    /**
+     * A dirty playlist and the callbacks waiting for it to be written.
+     */
+    private static class PendingWrite {
+        final String key;
+        final Uri directoryUri;
+        final long firstQueuedAt;
+        final List<Consumer<Boolean>> callbacks = new ArrayList<>();
+        ScheduledFuture<?> scheduled;
+        Playlist playlist;              // Latest queued copy of the playlist
+        PlaylistCodec.Decoded contents; // Contents of that copy
+        String fileName;                // File name the latest contents were journaled under
+        long journalChain = -1;         // Sequence number of the journal chain of this write
+
+        PendingWrite(String key, Uri directoryUri, long firstQueuedAt) {
+            this.key = key;
+            this.directoryUri = directoryUri;
+            this.firstQueuedAt = firstQueuedAt;
+        }
+    }
+
+
+    /**
+     * @param context     Application context.
+     * @param ioExecutor  Executor that performs the deferred writes.
+     * @param onFileMoved Told the old and the new Uri when a queued write replaced a playlist's
+     *                    document, on the I/O executor.
+     */
+    PlaylistWriteQueue(Context context, Executor ioExecutor, BiConsumer<Uri, Uri> onFileMoved) {
+        this.context = context.getApplicationContext();
+        this.ioExecutor = ioExecutor;
+        this.journal = new PlaylistJournal(this.context);
+        this.onFileMoved = onFileMoved;
+    }
+
+    /**
+     * Marks a playlist dirty and (re)starts its debounce timer.
+     *
+     * @param playlist     The edited copy of the playlist, which must not change afterwards.
+     * @param directoryUri The library directory the playlist belongs to.
+     * @param callback     Receives the result of the write, may be null.
+     */
+    void enqueue(Playlist playlist, Uri directoryUri, Consumer<Boolean> callback) {
+        // Resolved before taking the lock, it may have to query the provider
+        String fileName = fileNameOf(playlist);
+        PlaylistCodec.Decoded contents = PlaylistCodec.snapshot(playlist);
+        enqueue(playlist, contents, directoryUri, fileName, callback);
+    }
+
+    private synchronized void enqueue(Playlist playlist, PlaylistCodec.Decoded contents, Uri directoryUri,
+                                      String fileName, Consumer<Boolean> callback) {
+        long now = SystemClock.elapsedRealtime();
+
+        String key = keyOf(playlist);
+        PendingWrite write = pending.get(key);
+        if (write == null) {
+            write = new PendingWrite(key, directoryUri, now);
+            pending.put(key, write);
+        } else if (write.scheduled != null) {
+            write.scheduled.cancel(false);
+        }
+        if (callback != null) write.callbacks.add(callback);
+
+        // Journal what changed since the previous change of this write, or the whole playlist first
+        PlaylistChange change = null;
+        if (write.journalChain >= 0 && fileName != null && fileName.equals(write.fileName)) {
+            change = PlaylistChange.between(write.contents, contents);
+        }
+        if (change != null) {
+            journal.appendChange(write.journalChain, change);
+        } else {
+            write.journalChain = journal.append(directoryUri, fileName, contents);
+        }
+        write.playlist = playlist;
+        write.contents = contents;
+        write.fileName = fileName;
+
+        // Restart the debounce window, without postponing past the maximum delay
+        long delay = Math.max(0, Math.min(DEBOUNCE_MS, write.firstQueuedAt + MAX_DELAY_MS - now));
+        PendingWrite target = write;
+        write.scheduled = timer.schedule(() -> ioExecutor.execute(() -> write(target)), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes every dirty playlist immediately and waits for a write in progress. May be called
+     * on any background thread.
+     */
+    void flush() {
+        synchronized (writeLock) {
+            List<PendingWrite> writes;
+            synchronized (this) {
+                writes = new ArrayList<>(pending.values());
+            }
+            for (PendingWrite write : writes) {
+                write(write);
+            }
+        }
+    }
+
+    /**
+     * Writes a playlist right away, taking over any write queued for it. Used by operations that
+     * need the outcome of the write before they can report back.
+     *
+     * @param playlist     The playlist to write, a copy that is not published yet. Its JSON Uri is
+     *                     updated to the written document.
+     * @param directoryUri The library directory the playlist belongs to.
+     * @return True if the playlist was written.
+     */
+    boolean writeNow(Playlist playlist, Uri directoryUri) {
+        synchronized (writeLock) {
+            PendingWrite write;
+            synchronized (this) {
+                write = pending.remove(keyOf(playlist));
+                if (write != null && write.scheduled != null) write.scheduled.cancel(false);
+            }
+
+            boolean result = FileUtils.writePlaylistToJsonFile(context, playlist, directoryUri);
+            countWrite();
+            if (write != null) {
+                if (result) journal.commit(write.directoryUri, write.fileName, write.journalChain);
+                for (Consumer<Boolean> callback : write.callbacks) {
+                    callback.accept(result);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Drops the pending write of a playlist that is about to be deleted, waiting for a write of
+     * it that is already in progress.
+     *
+     * @param playlist The playlist being deleted.
+     */
+    void discard(Playlist playlist) {
+        PendingWrite write;
+        synchronized (writeLock) {
+            synchronized (this) {
+                write = pending.remove(keyOf(playlist));
+                if (write == null) return;
+                if (write.scheduled != null) write.scheduled.cancel(false);
+            }
+            journal.commit(write.directoryUri, write.fileName, write.journalChain);
+        }
+
+        // Nothing is left to persist for the waiting mutations
+        for (Consumer<Boolean> callback : write.callbacks) {
+            callback.accept(true);
+        }
+    }
+
+    /**
+     * Writes the playlist changes a previous process journaled but never wrote. Must run before
+     * the playlists are loaded. A change that cannot be written, for example while the directory
+     * grant is unavailable, stays journaled and is tried again on the next start, up to
+     * {@link #MAX_REPLAY_ATTEMPTS} starts.
+     */
+    void replayJournal() {
+        synchronized (writeLock) {
+            for (PlaylistJournal.PendingState state : journal.readPending()) {
+                // Resolve the file now, the write that was interrupted may have given it a new document
+                Uri targetUri = DirectorySnapshot.acquire(context, state.directoryUri).findJsonFile(state.fileName);
+                Uri jsonUri = FileUtils.writePlaylistContents(context, state.directoryUri, targetUri,
+                        state.fileName, state.contents);
+                if (jsonUri != null) {
+                    Log.i(LOG, "Replayed unsaved changes of playlist " + state.contents.name);
+                    journal.commit(state.directoryUri, state.fileName, state.sequence);
+                } else if (state.failedReplays + 1 >= MAX_REPLAY_ATTEMPTS) {
+                    // A file that cannot be written on several starts is not retried forever
+                    Log.e(LOG, "Dropping unsaved changes of playlist " + state.contents.name);
+                    journal.commit(state.directoryUri, state.fileName, state.sequence);
+                } else {
+                    Log.w(LOG, "Could not replay unsaved changes of playlist " + state.contents.name + ", retrying on next start");
+                    journal.recordFailedReplay(state);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether any playlist is waiting to be written.
+     *
+     * @return True if there are dirty playlists.
+     */
+    synchronized boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * Returns the number of file writes completed so far, so a reader can tell whether a playlist
+     * file was written while it was reading.
+     *
+     * @return The number of completed writes.
+     */
+    synchronized long getWriteCount() {
+        return writeCount;
+    }
+
+    private synchronized void countWrite() {
+        writeCount++;
+    }
+
+    /**
+     * Writes the captured contents of a dirty playlist unless it was already written.
+     *
+     * @param write The pending write.
+     */
+    private void write(PendingWrite write) {
+        synchronized (writeLock) {
+            synchronized (this) {
+                if (pending.get(write.key) != write) return;
+                pending.remove(write.key);
+                if (write.scheduled != null) write.scheduled.cancel(false);
+            }
+
+            // An earlier write may have moved the file to a new document since this was queued
+            Uri previousUri = write.playlist.getJsonUri();
+            Uri jsonUri = FileUtils.writePlaylistContents(context, write.directoryUri, previousUri,
+                    write.fileName, write.contents);
+            boolean result = jsonUri != null;
+            countWrite();
+            if (result) {
+                journal.commit(write.directoryUri, write.fileName, write.journalChain);
+                if (previousUri != null && !jsonUri.equals(previousUri)) onFileMoved.accept(previousUri, jsonUri);
+            }
+            for (Consumer<Boolean> callback : write.callbacks) {
+                callback.accept(result);
+            }
+        }
+    }
+
+    /**
+     * Returns the display name of the file a playlist is written to.
+     *
+     * @param playlist The playlist.
+     * @return The file name, or null if the existing file cannot be named.
+     */
+    private String fileNameOf(Playlist playlist) {
+        Uri jsonUri = FileUtils.currentPlaylistUri(playlist.getJsonUri());
+        return jsonUri != null ? FileUtils.getPlaylistFileName(context, jsonUri) : playlist.getTitle() + ".json";
+    }
+
+    /**
+     * Identifies the file a playlist is written to, which stays the same across edited copies.
+     *
+     * @param playlist The playlist.
+     * @return The key of the playlist's pending write.
+     */
+    private static String keyOf(Playlist playlist) {
+        Uri jsonUri = FileUtils.currentPlaylistUri(playlist.getJsonUri());
+        return jsonUri != null ? jsonUri.toString() : "title:" + playlist.getTitle();
+    }
+}
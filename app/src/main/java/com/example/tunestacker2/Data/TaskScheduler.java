@@ -0,0 +1,199 @@
+package com.example.tunestacker2.Data;
+
+import android.os.Process;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+
+/**
+ * Runs DataManager's background work on separate lanes so that short interactive operations
+ * never queue behind directory scans or bulk file I/O.
+ * <p>
+ * Each lane owns its own threads and thread priority. On top of the lanes the scheduler offers
+ * per-key serialisation (tasks sharing a key run one after another, in submission order) and
+ * latest-wins tasks (a newer task with the same key supersedes an older one that has not
+ * finished yet, and answers the callbacks of both).
+ */
+final class TaskScheduler {
+
+    // --- Constants ---
+    private static final String LOG = "TaskScheduler";
+
+
+    /**
+     * The lanes work can be scheduled on.
+     */
+    enum Lane {
+        INTERACTIVE(2, Process.THREAD_PRIORITY_DEFAULT), // Playlist mutations triggered by the user
+        SCAN(1, Process.THREAD_PRIORITY_BACKGROUND),     // Directory and playlist rescans
+        BULK_IO(1, Process.THREAD_PRIORITY_BACKGROUND),  // Deferred file writes and recovery
+        PRELOAD(1, Process.THREAD_PRIORITY_LOWEST);      // Thumbnail pre-extraction, never delays file writes
+
+        final int threads;
+        final int priority;
+
+        Lane(int threads, int priority) {
+            this.threads = threads;
+            this.priority = priority;
+        }
+    }
+
+
+    /**
+     * The pending and running task of a latest-wins key.
+     */
+    private static class LatestSlot {
+        Object token;
+        Future<?> current;
+        final List<Consumer<Object>> waiting = new ArrayList<>();
+    }
+
+
+    // --- Data Members ---
+    private final Map<Lane, ExecutorService> lanes = new EnumMap<>(Lane.class);
+    private final Map<Object, ArrayDeque<Runnable>> keyedQueues = new HashMap<>(); // Guarded by itself
+    private final Map<Object, LatestSlot> latestSlots = new HashMap<>();           // Guarded by itself
+
+
+    TaskScheduler() {
+        for (Lane lane : Lane.values()) {
+            AtomicInteger count = new AtomicInteger();
+            lanes.put(lane, Executors.newFixedThreadPool(lane.threads, runnable -> {
+                Thread thread = new Thread(() -> {
+                    Process.setThreadPriority(lane.priority);
+                    runnable.run();
+                }, "DataManager-" + lane.name().toLowerCase() + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }));
+        }
+    }
+
+    /**
+     * Runs a task on a lane.
+     *
+     * @param lane The lane to run on.
+     * @param task The task.
+     */
+    void execute(Lane lane, Runnable task) {
+        lanes.get(lane).execute(task);
+    }
+
+    /**
+     * Returns an executor that runs its tasks on the given lane.
+     *
+     * @param lane The lane to run on.
+     * @return The executor.
+     */
+    Executor executorFor(Lane lane) {
+        return task -> execute(lane, task);
+    }
+
+    /**
+     * Runs a task on a lane after every previously submitted task with the same key completed.
+     * Tasks with different keys may run concurrently.
+     *
+     * @param lane The lane to run on.
+     * @param key  The serialisation key, for example the name of the affected playlist.
+     * @param task The task.
+     */
+    void executeKeyed(Lane lane, Object key, Runnable task) {
+        synchronized (keyedQueues) {
+            ArrayDeque<Runnable> queue = keyedQueues.get(key);
+            if (queue != null) {
+                // A task with this key is running, it starts this one when done
+                queue.add(task);
+                return;
+            }
+            keyedQueues.put(key, new ArrayDeque<>());
+        }
+        execute(lane, () -> runKeyed(lane, key, task));
+    }
+
+    /**
+     * Runs a task whose result only matters if no newer task with the same key was submitted.
+     * A superseded task is cancelled if it has not started yet; if it is already running it is
+     * left to finish (its work still warms the caches) but its result is dropped. The callbacks
+     * of superseded tasks are answered with the result of the newest one. If the newest task
+     * throws, every waiting callback is answered with null.
+     *
+     * @param lane     The lane to run on.
+     * @param key      Key identifying the kind of work, for example a scan of the song list.
+     * @param work     Produces the result.
+     * @param callback Receives the result on the worker thread, or null if the work failed. May be null.
+     * @param <T>      The result type.
+     */
+    @SuppressWarnings("unchecked")
+    <T> void executeLatest(Lane lane, Object key, Supplier<T> work, Consumer<T> callback) {
+        synchronized (latestSlots) {
+            LatestSlot slot = latestSlots.get(key);
+            if (slot == null) {
+                slot = new LatestSlot();
+                latestSlots.put(key, slot);
+            }
+            if (callback != null) slot.waiting.add((Consumer<Object>) callback);
+            if (slot.current != null) slot.current.cancel(false);
+
+            Object token = new Object();
+            LatestSlot target = slot;
+            slot.token = token;
+            slot.current = lanes.get(lane).submit(() -> runLatest(key, target, token, work));
+        }
+    }
+
+    // --- Helper Methods ---
+
+    private void runKeyed(Lane lane, Object key, Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            Log.e(LOG, "Error running task for key " + key, e);
+        }
+
+        Runnable next;
+        synchronized (keyedQueues) {
+            next = keyedQueues.get(key).poll();
+            if (next == null) {
+                keyedQueues.remove(key);
+                return;
+            }
+        }
+        execute(lane, () -> runKeyed(lane, key, next));
+    }
+
+    private <T> void runLatest(Object key, LatestSlot slot, Object token, Supplier<T> work) {
+        T result = null;
+        try {
+            result = work.get();
+        } catch (RuntimeException e) {
+            // Answered with null, callers still have to finish their refresh
+            Log.e(LOG, "Error running task for key " + key, e);
+        }
+
+        List<Consumer<Object>> callbacks;
+        synchronized (latestSlots) {
+            // Superseded while running, the newer task answers every waiting callback
+            if (slot.token != token) return;
+
+            callbacks = new ArrayList<>(slot.waiting);
+            latestSlots.remove(key);
+        }
+
+        for (Consumer<Object> callback : callbacks) {
+            callback.accept(result);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.tunestacker2.Data;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.tunestacker2.MusicPlayer.SongTable;
+import com.example.tunestacker2.MusicPlayer.ThumbnailLoader;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+
+/**
+ * Extracts the thumbnails of new and modified songs into the thumbnail disk tier in the
+ * background, so browsing the library after a scan or a download never opens audio files.
+ * <p>
+ * Each scanned song table is walked newest song first, skipping every song whose thumbnails are
+ * already on disk, and extracted in small batches on a lane of its own, so it never holds back
+ * playlist writes. Only the newest songs that fit into the disk budgets are considered. Their
+ * thumbnails that are already on disk are marked as recently used and the ones extracted by the
+ * pass are protected until it ends, so a full disk tier evicts the thumbnails of older songs, never
+ * the ones the pass is filling in. Batches only run while the device is charging, or has enough
+ * battery and is not in power save mode; otherwise the job pauses and checks again later.
+ * Progress and throughput are reported to {@link PreloadListener}s on the main thread.
+ */
+public final class ThumbnailPreloader {
+
+    // --- Constants ---
+    private static final String LOG = "ThumbnailPreloader";
+    private static final int BATCH_SIZE = 16;
+    private static final int MIN_BATTERY_PERCENT = 30;  // Below this, only run while charging
+    private static final long RETRY_DELAY_MS = 5 * 60 * 1000;
+
+
+    /**
+     * Receives the progress of the preloading, on the main thread.
+     */
+    public interface PreloadListener {
+        /**
+         * @param processed      Songs handled so far.
+         * @param total          Songs that needed their thumbnails extracted.
+         * @param songsPerSecond Extraction throughput since the job started.
+         * @param paused         True while the job waits for the battery or charger.
+         */
+        void onPreloadProgress(int processed, int total, float songsPerSecond, boolean paused);
+    }
+
+
+    // --- Data Members ---
+    private final Context context;
+    private final Executor executor;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final List<PreloadListener> listeners = new CopyOnWriteArrayList<>();
+
+    private SongTable table = null;  // Table being walked, guarded by this
+    private int[] pendingRows = null; // Rows without thumbnails on disk, null until listed
+    private int nextIndex = 0;
+    private int processed = 0;
+    private long startedAt = 0;
+    private boolean running = false; // A batch is queued or running
+    private boolean paused = false;
+
+
+    /**
+     * @param context  Application context.
+     * @param executor The background executor the batches run on.
+     */
+    ThumbnailPreloader(Context context, Executor executor) {
+        this.context = context.getApplicationContext();
+        this.executor = executor;
+    }
+
+    /**
+     * Starts preloading the thumbnails of a scanned song table, replacing the table of a preload
+     * that is still running.
+     *
+     * @param songTable The latest song table.
+     */
+    synchronized void preload(SongTable songTable) {
+        if (songTable == null || songTable == table) return;
+
+        // The protected entries of the replaced pass no longer have to stay
+        ThumbnailLoader.releasePreloadedThumbnails(context);
+
+        table = songTable;
+        pendingRows = null;
+        nextIndex = 0;
+        processed = 0;
+        startedAt = SystemClock.elapsedRealtime();
+        schedule();
+    }
+
+    /**
+     * Registers a listener and reports the current progress to it.
+     *
+     * @param listener The listener, called on the main thread.
+     */
+    public void addListener(PreloadListener listener) {
+        listeners.add(listener);
+        reportProgress();
+    }
+
+    public void removeListener(PreloadListener listener) {
+        listeners.remove(listener);
+    }
+
+    // --- Helper Methods ---
+
+    private synchronized void schedule() {
+        if (running) return;
+
+        running = true;
+        paused = false;
+        executor.execute(this::runBatch);
+    }
+
+    /**
+     * Runs one batch, then queues the next one.
+     */
+    private void runBatch() {
+        SongTable songTable;
+        synchronized (this) {
+            songTable = table;
+        }
+
+        try {
+            if (!canRun()) {
+                synchronized (this) {
+                    running = false;
+                    paused = true;
+                }
+                reportProgress();
+                handler.postDelayed(this::schedule, RETRY_DELAY_MS);
+                return;
+            }
+
+            int[] rows = listPendingRows(songTable);
+            int from;
+            int to;
+            synchronized (this) {
+                if (songTable != table) return;
+                if (pendingRows == null) pendingRows = rows;
+
+                from = nextIndex;
+                to = Math.min(pendingRows.length, from + BATCH_SIZE);
+                nextIndex = to;
+            }
+
+            int handled = from;
+            while (handled < to && ThumbnailLoader.hasPreloadRoom(context)) {
+                ThumbnailLoader.preloadThumbnail(songTable.getSong(rows[handled++]), context);
+            }
+
+            boolean done;
+            synchronized (this) {
+                if (songTable != table) return;
+                if (handled < to) {
+                    // The pass filled the disk tiers, further songs would evict the ones it extracted
+                    Log.i(LOG, "Thumbnail disk cache is full, stopping after " + handled + " songs");
+                    pendingRows = Arrays.copyOf(pendingRows, handled);
+                    nextIndex = handled;
+                }
+                processed = handled;
+                done = handled >= pendingRows.length;
+            }
+            reportProgress();
+
+            if (done) {
+                ThumbnailLoader.releasePreloadedThumbnails(context);
+                if (handled > 0) Log.d(LOG, "Preloaded " + handled + " thumbnails at " + throughput() + " songs/s");
+            }
+        } catch (Exception e) {
+            Log.e(LOG, "Error preloading thumbnails", e);
+        } finally {
+            synchronized (this) {
+                if (running && !paused) {
+                    running = false;
+                    boolean more = pendingRows == null || nextIndex < pendingRows.length || songTable != table;
+                    if (more) schedule();
+                }
+            }
+        }
+    }
+
+    /**
+     * Lists the rows whose thumbnails are not on disk yet among the newest songs that fit into the
+     * disk budgets, newest song first, once per table. The rows are checked oldest first, so the
+     * thumbnails of the newest songs end up the most recently used.
+     */
+    private int[] listPendingRows(SongTable songTable) {
+        synchronized (this) {
+            if (songTable == table && pendingRows != null) return pendingRows;
+        }
+
+        int[] rows = songTable.allRows();
+        SongTable.sort(rows, rows.length, songTable.newestFirst());
+
+        int newest = Math.min(rows.length, ThumbnailLoader.getDiskCapacity());
+        int[] pending = new int[newest];
+        int count = 0;
+        for (int i = newest - 1; i >= 0; i--) {
+            if (!ThumbnailLoader.isThumbnailExtracted(songTable, rows[i], context)) {
+                pending[count++] = rows[i];
+            }
+        }
+
+        // Back to newest song first
+        int[] ordered = new int[count];
+        for (int i = 0; i < count; i++) {
+            ordered[i] = pending[count - 1 - i];
+        }
+        return ordered;
+    }
+
+    /**
+     * Checks whether extraction is cheap enough for the battery right now.
+     */
+    private boolean canRun() {
+        Intent battery = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (battery == null) return true;
+
+        if (battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0) return true;
+
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        if (powerManager != null && powerManager.isPowerSaveMode()) return false;
+
+        int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+        return level < 0 || scale <= 0 || level * 100 / scale >= MIN_BATTERY_PERCENT;
+    }
+
+    private synchronized float throughput() {
+        long elapsed = SystemClock.elapsedRealtime() - startedAt;
+        return elapsed > 0 ? processed * 1000f / elapsed : 0;
+    }
+
+    private void reportProgress() {
+        int done;
+        int total;
+        boolean isPaused;
+        synchronized (this) {
+            done = processed;
+            total = pendingRows != null ? pendingRows.length : 0;
+            isPaused = paused;
+        }
+        float rate = throughput();
+
+        handler.post(() -> {
+            for (PreloadListener listener : listeners) {
+                listener.onPreloadProgress(done, total, rate, isPaused);
+            }
+        });
+    }
+}
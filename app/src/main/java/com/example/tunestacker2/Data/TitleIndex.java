@@ -0,0 +1,99 @@
+package com.example.tunestacker2.Data;
+
+import android.content.Context;
+import android.net.Uri;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Title-keyed presence index of the library directory used by the download path.
+ * <p>
+ * The index is seeded once from the {@link DirectorySnapshot} and then kept up to date as
+ * downloads land in the directory, so duplicate checks are a hash lookup instead of a directory
+ * walk. Every check acquires the current snapshot, and whenever it is newer than the one the set
+ * was built from (for example after the user deleted songs), the set is rebuilt from it.
+ */
+public class TitleIndex {
+
+    // --- Data Members ---
+    private static volatile Set<String> titles = ConcurrentHashMap.newKeySet();
+    private static final Set<String> addedTitles = new HashSet<>(); // Titles added since the last seed
+    private static Uri seededDirectory = null;
+    private static long seededVersion = -1;
+
+
+    /**
+     * Checks whether a file with the given name (without extension) exists in the directory.
+     *
+     * @param context      The context used to access the content resolver.
+     * @param directoryUri The Uri of the library directory.
+     * @param title        The file name without extension.
+     * @return True if the directory already contains the title.
+     */
+    public static boolean contains(Context context, Uri directoryUri, String title) {
+        if (directoryUri == null || title == null) return false;
+
+        ensureSeeded(context, directoryUri);
+        return titles.contains(title);
+    }
+
+    /**
+     * Removes the titles that already exist in the directory from the given set.
+     *
+     * @param context      The context used to access the content resolver.
+     * @param directoryUri The Uri of the library directory.
+     * @param fileNames    The file names (without extension) to check.
+     * @return The same set, holding only the missing file names.
+     */
+    public static Set<String> findMissing(Context context, Uri directoryUri, Set<String> fileNames) {
+        if (directoryUri == null) return fileNames;
+
+        ensureSeeded(context, directoryUri);
+        fileNames.removeIf(titles::contains);
+        return fileNames;
+    }
+
+    /**
+     * Records a file that was just written into the directory.
+     *
+     * @param title The file name without extension.
+     */
+    public static synchronized void add(String title) {
+        if (title == null) return;
+
+        titles.add(title);
+        addedTitles.add(title);
+    }
+
+    /**
+     * Seeds the set on first use and rebuilds it whenever the directory changed since. The
+     * snapshot is acquired on every check, which only walks the directory if its stamp moved, so
+     * files deleted outside the app are noticed even if nothing else refreshed the library.
+     *
+     * @param context      The context used to access the content resolver.
+     * @param directoryUri The Uri of the library directory.
+     */
+    private static synchronized void ensureSeeded(Context context, Uri directoryUri) {
+        if (!directoryUri.equals(seededDirectory)) {
+            // New directory, nothing added so far belongs to it
+            addedTitles.clear();
+            seededVersion = -1;
+        }
+
+        DirectorySnapshot snapshot = DirectorySnapshot.acquire(context, directoryUri);
+        if (snapshot == null || snapshot.getVersion() == seededVersion) return;
+
+        // Rebuild from the snapshot, keeping downloads the snapshot has not seen yet
+        Set<String> rebuilt = ConcurrentHashMap.newKeySet();
+        rebuilt.addAll(snapshot.getFileBaseNames());
+        addedTitles.removeIf(rebuilt::contains);
+        rebuilt.addAll(addedTitles);
+        titles = rebuilt;
+
+        seededDirectory = directoryUri;
+        seededVersion = snapshot.getVersion();
+    }
+}
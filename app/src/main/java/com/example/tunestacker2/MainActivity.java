@@ -130,6 +130,13 @@ public class MainActivity extends AppCompatActivity implements LibraryFragment.L
         }
     }
 
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // Persist debounced playlist edits while the app is still alive
+        DataManager.getInstance().flushPendingWritesAsync();
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
@@ -1,8 +1,12 @@
 package com.example.tunestacker2;
 
 import android.app.Application;
+import android.content.res.Configuration;
+
+import androidx.annotation.NonNull;
 
 import com.example.tunestacker2.Data.DataManager;
+import com.example.tunestacker2.MusicPlayer.TitleCollation;
 
 public class MainApplication extends Application {
     @Override
@@ -12,6 +16,25 @@ public class MainApplication extends Application {
         // Initialize DataManager with the application context
         DataManager.initialize(getApplicationContext());
         DataManager.Settings.LoadSettings();
+        DataManager.getInstance().recoverPlaylistsAsync();
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+
+        // Sort keys of the previous locale no longer compare with new ones
+        TitleCollation.checkLocale();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+
+        // The process may be killed soon, persist debounced playlist edits
+        if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            DataManager.getInstance().flushPendingWritesAsync();
+        }
     }
 }
 
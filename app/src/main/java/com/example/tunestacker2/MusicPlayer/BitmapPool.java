@@ -0,0 +1,73 @@
+package com.example.tunestacker2.MusicPlayer;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ * Pool of mutable bitmaps that are no longer displayed, for decoding new thumbnails into their
+ * memory through {@link android.graphics.BitmapFactory.Options#inBitmap} instead of allocating.
+ * <p>
+ * Bitmaps are grouped by allocation size. A request takes the smallest pooled bitmap that is large
+ * enough, as long as it is not much larger than needed, so a small thumbnail does not occupy the
+ * buffer of a large one. The pool holds at most its byte budget; further bitmaps are left to the
+ * garbage collector.
+ */
+final class BitmapPool {
+
+    // --- Constants ---
+    private static final int MAX_OVERSIZE = 4; // A pooled bitmap may be up to 4x the requested size
+
+    // --- Data Members ---
+    private final long maxBytes;
+    private final TreeMap<Integer, ArrayDeque<Bitmap>> bitmaps = new TreeMap<>(); // By allocation byte count
+    private long totalBytes = 0;
+
+
+    /**
+     * @param maxBytes Byte budget of the pooled bitmaps.
+     */
+    BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Takes a bitmap whose memory can hold the given number of bytes.
+     *
+     * @param byteCount The number of bytes the decoded bitmap needs.
+     * @return A pooled bitmap, or null if none fits.
+     */
+    synchronized Bitmap get(int byteCount) {
+        Map.Entry<Integer, ArrayDeque<Bitmap>> entry = bitmaps.ceilingEntry(byteCount);
+        if (entry == null || entry.getKey() > (long) byteCount * MAX_OVERSIZE) return null;
+
+        ArrayDeque<Bitmap> group = entry.getValue();
+        Bitmap bitmap = group.poll();
+        if (group.isEmpty()) bitmaps.remove(entry.getKey());
+        totalBytes -= entry.getKey();
+        return bitmap;
+    }
+
+    /**
+     * Returns a bitmap that is no longer displayed anywhere to the pool.
+     *
+     * @param bitmap The bitmap.
+     */
+    synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) return;
+
+        int size = bitmap.getAllocationByteCount();
+        if (totalBytes + size > maxBytes) return;
+
+        ArrayDeque<Bitmap> group = bitmaps.get(size);
+        if (group == null) {
+            group = new ArrayDeque<>();
+            bitmaps.put(size, group);
+        }
+        group.push(bitmap);
+        totalBytes += size;
+    }
+}
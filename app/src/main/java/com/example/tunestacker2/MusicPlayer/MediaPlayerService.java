@@ -31,6 +31,7 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.app.NotificationCompat;
 import androidx.core.app.NotificationManagerCompat;
 
+import com.example.tunestacker2.Data.DataManager;
 import com.example.tunestacker2.MainActivity;
 import com.example.tunestacker2.R;
 
@@ -265,6 +266,8 @@ public class MediaPlayerService extends Service {
     public void onTaskRemoved(Intent rootIntent) {
         Log.d(TAG, "onTaskRemoved called");
         super.onTaskRemoved(rootIntent);
+        // The process may be killed with the task, persist debounced playlist edits
+        DataManager.getInstance().flushPendingWritesAsync();
         // Stop playback and release resources, then stop the service itself
         stopServiceAndReleaseResources();
     }
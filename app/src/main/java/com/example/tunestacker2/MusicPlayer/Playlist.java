@@ -9,6 +9,7 @@ import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
@@ -16,7 +17,10 @@ import java.util.Set;
  * Implements Parcelable to allow easy passing between Android components.
  */
 public class Playlist implements Parcelable {
-    private Uri jsonUri;      // URI pointing to the JSON resource representing this playlist
+    private static final AtomicLong nextId = new AtomicLong();
+
+    private final long id;    // Identity shared by every edited copy, survives renames and file swaps
+    private volatile Uri jsonUri; // URI pointing to the JSON resource representing this playlist
     private List<Song> songs; // List of songs in the playlist
     private String title;     // Title of the playlist
     private long lastPlayed;  // Timestamp of when the playlist was last played
@@ -31,6 +35,7 @@ public class Playlist implements Parcelable {
      * @param lastPlayed Last played timestamp.
      */
     public Playlist(Uri jsonUri, List<Song> songs, String title, long lastPlayed) {
+        this.id = nextId.incrementAndGet();
         this.jsonUri = jsonUri;
         this.title = title;
         this.lastPlayed = lastPlayed;
@@ -42,6 +47,20 @@ public class Playlist implements Parcelable {
         }
     }
 
+    /**
+     * Copy constructor, used to edit a playlist without changing the instance others hold.
+     * The copy keeps the identity of the original.
+     *
+     * @param other The playlist to copy.
+     */
+    public Playlist(Playlist other) {
+        this.id = other.id;
+        this.jsonUri = other.jsonUri;
+        this.songs = new ArrayList<>(other.songs);
+        this.title = other.title;
+        this.lastPlayed = other.lastPlayed;
+    }
+
     /**
      * Constructor used by Parcelable to recreate object from Parcel.
      */
@@ -50,10 +69,15 @@ public class Playlist implements Parcelable {
         songs = in.createTypedArrayList(Song.CREATOR);
         title = in.readString();
         lastPlayed = in.readLong();
+        id = in.readLong();
     }
 
     // --- Getters for class properties ---
 
+    public long getId() {
+        return id;
+    }
+
     public Uri getJsonUri() {
         return jsonUri;
     }
@@ -114,6 +138,10 @@ public class Playlist implements Parcelable {
         this.lastPlayed = lastPlayed;
     }
 
+    public void setJsonUri(Uri jsonUri) {
+        this.jsonUri = jsonUri;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
@@ -151,6 +179,7 @@ public class Playlist implements Parcelable {
         dest.writeTypedList(songs);
         dest.writeString(title);
         dest.writeLong(lastPlayed);
+        dest.writeLong(id);
     }
 
 }
\ No newline at end of file
@@ -4,9 +4,7 @@ import android.net.Uri;
 import android.os.Parcel;
 import android.os.Parcelable;
 
-import java.text.Collator;
 import java.util.Comparator;
-import java.util.Locale;
 
 
 /**
@@ -17,6 +15,9 @@ public class Song implements Parcelable {
     private final Uri audioUri;         // URI pointing to the song's audio file
     private final String title;         // Human-readable title of the song (derived from file name)
     private final long lastModified;    // Last modified timestamp of the audio file
+    private volatile byte[] sortKey = null; // Collation key of the title, computed on first sort
+    private volatile int sortKeyGeneration = -1;
+    private volatile long stableId = 0;         // Item id derived from the document id, 0 until computed
 
 
     /**
@@ -64,6 +65,35 @@ public class Song implements Parcelable {
         return lastModified;
     }
 
+    /**
+     * Returns the collation key of the title, computing it on first use.
+     * @return The sort key, see {@link TitleCollation}.
+     */
+    public byte[] getSortKey() {
+        int generation = TitleCollation.generation();
+        byte[] key = sortKey;
+        if (key == null || sortKeyGeneration != generation) {
+            key = TitleCollation.sortKey(title);
+            sortKey = key;
+            sortKeyGeneration = generation;
+        }
+        return key;
+    }
+
+    /**
+     * Returns a 64-bit id derived from the document id of the audio file, used as a stable
+     * RecyclerView item id. Songs of the same file share the id, see {@link SongTable#getStableId}.
+     * @return The id.
+     */
+    public long getStableId() {
+        long id = stableId;
+        if (id == 0 && audioUri != null) {
+            id = SongTable.stableId(SongTable.documentIdOf(audioUri));
+            stableId = id;
+        }
+        return id;
+    }
+
     // --- Equality based on audio URI ---
 
     @Override
@@ -81,11 +111,8 @@ public class Song implements Parcelable {
 
     // --- Comparators ---
 
-    public static final Comparator<Song> ALPHABETICAL_COMPARATOR = (s1, s2) -> {
-        Collator collator = Collator.getInstance(Locale.getDefault());
-        collator.setStrength(Collator.PRIMARY);
-        return collator.compare(s1.getTitle(), s2.getTitle());
-    };
+    public static final Comparator<Song> ALPHABETICAL_COMPARATOR = (s1, s2) ->
+            TitleCollation.compare(s1.getSortKey(), s2.getSortKey());
 
     public static final Comparator<Song> NEWEST_COMPARATOR = (s1, s2) ->
             Long.compare(s2.getLastModified(), s1.getLastModified());
@@ -98,7 +125,8 @@ public class Song implements Parcelable {
     public static final Creator<Song> CREATOR = new Creator<Song>() {
         @Override
         public Song createFromParcel(Parcel in) {
-            return new Song(in);
+            // Reuse the instance the library and playlists already hold
+            return SongRegistry.intern(new Song(in));
         }
 
         @Override
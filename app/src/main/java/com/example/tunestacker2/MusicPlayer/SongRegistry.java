@@ -0,0 +1,128 @@
+package com.example.tunestacker2.MusicPlayer;
+
+import android.net.Uri;
+import android.provider.DocumentsContract;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Interns {@link Song} instances by SAF document id, so every part of the app that refers to the
+ * same audio file holds the same Song object.
+ * <p>
+ * The library listing, every playlist and the songs unparcelled from fragment arguments all go
+ * through the registry, which keeps memory proportional to the number of distinct songs instead
+ * of the number of playlist memberships, and lets {@link Song#equals} succeed on its reference
+ * check. A song is only replaced when its file was renamed or modified. Songs are held weakly, so
+ * songs that nothing refers to any more (deleted files, a previous library directory) are
+ * collected as usual.
+ */
+public final class SongRegistry {
+
+    // --- Data Members ---
+    private static final Map<String, SongReference> songs = new HashMap<>(); // Keyed by document id
+    private static final ReferenceQueue<Song> collected = new ReferenceQueue<>();
+
+
+    /**
+     * Weak reference to an interned song that remembers its key for cleanup.
+     */
+    private static class SongReference extends WeakReference<Song> {
+        final String key;
+
+        SongReference(String key, Song song) {
+            super(song, collected);
+            this.key = key;
+        }
+    }
+
+
+    private SongRegistry() {
+        // Static utility class
+    }
+
+    /**
+     * Returns the interned song of an audio file in the library directory, creating it if the
+     * file is not registered yet or its name or last-modified time changed.
+     *
+     * @param directoryUri The tree Uri of the library directory.
+     * @param documentId   The document id of the audio file.
+     * @param title        The title of the song.
+     * @param lastModified The last-modified time of the audio file.
+     * @return The interned song.
+     */
+    public static synchronized Song obtain(Uri directoryUri, String documentId, String title, long lastModified) {
+        Uri audioUri = DocumentsContract.buildDocumentUriUsingTree(directoryUri, documentId);
+        return intern(documentId, new Song(title, audioUri, lastModified));
+    }
+
+    /**
+     * Returns the interned instance of a song, registering the song if no matching instance exists.
+     *
+     * @param song The song, for example one recreated from a Parcel.
+     * @return The interned song, or null if the song is null.
+     */
+    public static synchronized Song intern(Song song) {
+        if (song == null || song.getAudioUri() == null) return song;
+        return intern(keyOf(song.getAudioUri()), song);
+    }
+
+    /**
+     * Interns every song of a list.
+     *
+     * @param list The songs.
+     * @return A new list holding the interned songs, in the same order.
+     */
+    public static synchronized List<Song> internAll(List<Song> list) {
+        List<Song> interned = new ArrayList<>(list.size());
+        for (Song song : list) {
+            interned.add(intern(song));
+        }
+        return interned;
+    }
+
+    // --- Helper Methods ---
+
+    private static Song intern(String key, Song song) {
+        purgeCollected();
+
+        SongReference reference = songs.get(key);
+        Song existing = reference != null ? reference.get() : null;
+        if (existing != null && sameSong(existing, song)) {
+            return existing;
+        }
+
+        songs.put(key, new SongReference(key, song));
+        return song;
+    }
+
+    private static boolean sameSong(Song a, Song b) {
+        return a.getLastModified() == b.getLastModified()
+                && a.getAudioUri().equals(b.getAudioUri())
+                && (a.getTitle() == null ? b.getTitle() == null : a.getTitle().equals(b.getTitle()));
+    }
+
+    private static String keyOf(Uri audioUri) {
+        try {
+            return DocumentsContract.getDocumentId(audioUri);
+        } catch (IllegalArgumentException e) {
+            // Not a document Uri, the Uri itself identifies the song
+            return audioUri.toString();
+        }
+    }
+
+    private static void purgeCollected() {
+        SongReference reference;
+        while ((reference = (SongReference) collected.poll()) != null) {
+            // The key may already hold a newer song
+            if (songs.get(reference.key) == reference) {
+                songs.remove(reference.key);
+            }
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package com.example.tunestacker2.MusicPlayer;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Locale;
+
+
+/**
+ * Search index over the titles of a {@link SongTable}.
+ * <p>
+ * Titles are folded once (lower case, accents removed) and kept like the table's own columns, in
+ * one char array addressed by offsets. Every three-character sequence of a folded title is
+ * indexed, so a query of three or more characters only has to verify the rows that contain its
+ * rarest trigram. A query that extends the previous one (the usual case while typing) is only
+ * checked against the previous matches. Searching allocates nothing per title.
+ * <p>
+ * {@link #rank} offers a ranked mode on top of the same index. Each query token may match a word
+ * of the title exactly, as a word prefix, anywhere inside the title, or as a word prefix with a
+ * bounded number of typos. Rows are scored by how well their words matched, with a bonus for the
+ * whole query appearing in the title and a smaller one for recently modified files. Typo-tolerant
+ * matching only runs on rows that share enough trigrams with the query.
+ * <p>
+ * Indexes are immutable apart from the remembered last query, and are safe to use from any thread.
+ */
+public final class SongSearchIndex {
+
+    // --- Constants ---
+    private static final float EXACT_WORD = 1.0f;   // Query token equals a word of the title
+    private static final float WORD_PREFIX = 0.8f;  // Query token starts a word of the title
+    private static final float INNER_MATCH = 0.6f;  // Query token appears elsewhere in the title
+    private static final float FUZZY_PREFIX = 0.5f; // Query token starts a word, with typos
+    private static final float TYPO_PENALTY = 0.15f;
+    private static final float PHRASE_BONUS = 0.3f; // The whole query appears in the title
+    private static final float RECENCY_WEIGHT = 0.2f;
+
+    // --- Data Members ---
+    private static SongSearchIndex latest = null; // Index of the most recently searched table, guarded by the class
+
+    private final SongTable table;
+    private final char[] foldedChars;
+    private final int[] foldedOffsets;   // Row i spans [foldedOffsets[i], foldedOffsets[i + 1])
+    private final long[] trigramKeys;    // Open-addressing hash of trigrams, 0 = empty slot
+    private final int[] trigramStarts;   // Index into postings of the rows of each slot's trigram
+    private final int[] trigramCounts;
+    private final int[] postings;        // Rows by trigram, ascending within each trigram
+    private final long oldestModified;
+    private final long newestModified;
+    private volatile LastSearch lastSearch = null;
+
+
+    /**
+     * The previous query and its matches, used to narrow a query that extends it.
+     */
+    private static final class LastSearch {
+        final String foldedQuery;
+        final BitSet matches;
+
+        LastSearch(String foldedQuery, BitSet matches) {
+            this.foldedQuery = foldedQuery;
+            this.matches = matches;
+        }
+    }
+
+
+    /**
+     * Returns the index of a table, building it if the table was not indexed last.
+     *
+     * @param table The song table.
+     * @return The search index of the table.
+     */
+    public static synchronized SongSearchIndex of(SongTable table) {
+        if (latest == null || latest.table != table) {
+            latest = new SongSearchIndex(table);
+        }
+        return latest;
+    }
+
+    private SongSearchIndex(SongTable table) {
+        this.table = table;
+        int size = table.size();
+
+        // Fold every title once
+        foldedOffsets = new int[size + 1];
+        char[] chars = new char[Math.max(16, size * 32)];
+        for (int row = 0; row < size; row++) {
+            String folded = fold(table.getTitle(row));
+            int start = foldedOffsets[row];
+            if (start + folded.length() > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(start + folded.length(), chars.length * 2));
+            }
+            folded.getChars(0, folded.length(), chars, start);
+            foldedOffsets[row + 1] = start + folded.length();
+        }
+        foldedChars = Arrays.copyOf(chars, foldedOffsets[size]);
+
+        long oldest = Long.MAX_VALUE;
+        long newest = Long.MIN_VALUE;
+        for (int row = 0; row < size; row++) {
+            oldest = Math.min(oldest, table.getLastModified(row));
+            newest = Math.max(newest, table.getLastModified(row));
+        }
+        oldestModified = size > 0 ? oldest : 0;
+        newestModified = size > 0 ? newest : 0;
+
+        // Count the rows of every trigram, a row is counted once per distinct trigram
+        int capacity = Integer.highestOneBit(Math.max(16, foldedChars.length * 2) - 1) << 1;
+        trigramKeys = new long[capacity];
+        trigramCounts = new int[capacity];
+        int[] lastRow = new int[capacity];
+        Arrays.fill(lastRow, -1);
+        int total = 0;
+        for (int row = 0; row < size; row++) {
+            for (int i = foldedOffsets[row]; i + 3 <= foldedOffsets[row + 1]; i++) {
+                int slot = insertSlot(trigramOf(foldedChars, i));
+                if (lastRow[slot] == row) continue;
+                lastRow[slot] = row;
+                trigramCounts[slot]++;
+                total++;
+            }
+        }
+
+        // Lay the postings out contiguously, then fill them in row order
+        trigramStarts = new int[capacity];
+        for (int slot = 0, start = 0; slot < capacity; slot++) {
+            trigramStarts[slot] = start;
+            start += trigramCounts[slot];
+        }
+        postings = new int[total];
+        int[] filled = new int[capacity];
+        Arrays.fill(lastRow, -1);
+        for (int row = 0; row < size; row++) {
+            for (int i = foldedOffsets[row]; i + 3 <= foldedOffsets[row + 1]; i++) {
+                int slot = findSlot(trigramOf(foldedChars, i));
+                if (lastRow[slot] == row) continue;
+                lastRow[slot] = row;
+                postings[trigramStarts[slot] + filled[slot]++] = row;
+            }
+        }
+    }
+
+    public SongTable getTable() {
+        return table;
+    }
+
+    /**
+     * Finds the rows whose title contains the query, ignoring case and accents.
+     *
+     * @param query The search query.
+     * @return The matching rows of the table. An empty query matches every row.
+     */
+    public BitSet search(String query) {
+        String folded = fold(query != null ? query : "");
+        BitSet matches = new BitSet(table.size());
+        if (folded.trim().isEmpty()) {
+            matches.set(0, table.size());
+            return matches;
+        }
+
+        LastSearch last = lastSearch;
+        if (last != null && folded.contains(last.foldedQuery)) {
+            // Every match of an extended query also matched the previous one
+            BitSet previous = last.matches;
+            for (int row = previous.nextSetBit(0); row >= 0; row = previous.nextSetBit(row + 1)) {
+                if (contains(row, folded)) matches.set(row);
+            }
+        } else if (folded.length() >= 3) {
+            // Only rows holding the rarest trigram of the query can match
+            int rarest = -1;
+            for (int i = 0; i + 3 <= folded.length(); i++) {
+                int slot = findSlot(trigramOf(folded, i));
+                if (slot < 0) {
+                    rarest = -1;
+                    break;
+                }
+                if (rarest < 0 || trigramCounts[slot] < trigramCounts[rarest]) rarest = slot;
+            }
+            if (rarest >= 0) {
+                for (int i = trigramStarts[rarest]; i < trigramStarts[rarest] + trigramCounts[rarest]; i++) {
+                    int row = postings[i];
+                    if (contains(row, folded)) matches.set(row);
+                }
+            }
+        } else {
+            for (int row = 0; row < table.size(); row++) {
+                if (contains(row, folded)) matches.set(row);
+            }
+        }
+
+        lastSearch = new LastSearch(folded, matches);
+        return matches;
+    }
+
+    /**
+     * Finds the rows matching a query and orders them by match quality, best first. Every token
+     * of the query has to match a word of the title, tokens of four or more characters tolerate
+     * typos.
+     *
+     * @param query The search query.
+     * @return The matching rows of the table, best match first. A blank query matches nothing.
+     */
+    public int[] rank(String query) {
+        String phrase = fold(query != null ? query : "").trim();
+        String[] tokens = tokenize(phrase);
+        if (tokens.length == 0) return new int[0];
+
+        int size = table.size();
+        int longestToken = 0;
+        for (String token : tokens) longestToken = Math.max(longestToken, token.length());
+
+        // Count shared trigrams, a row needs enough of them to still match with typos
+        int[] hits = null;
+        int trigramTotal = 0;
+        int typoTotal = 0;
+        for (String token : tokens) {
+            if (token.length() < 3) continue;
+            if (hits == null) hits = new int[size];
+            trigramTotal += token.length() - 2;
+            typoTotal += maxTypos(token.length());
+            for (int i = 0; i + 3 <= token.length(); i++) {
+                int slot = findSlot(trigramOf(token, i));
+                if (slot < 0) continue;
+                for (int p = trigramStarts[slot]; p < trigramStarts[slot] + trigramCounts[slot]; p++) {
+                    hits[postings[p]]++;
+                }
+            }
+        }
+        int required = Math.max(1, trigramTotal - 3 * typoTotal);
+
+        // Score the candidates
+        float[] scores = new float[size];
+        int[] ranked = new int[size];
+        int count = 0;
+        int[] previous = new int[longestToken + 1];
+        int[] current = new int[longestToken + 1];
+        for (int row = 0; row < size; row++) {
+            if (hits != null && hits[row] < required) continue;
+
+            float score = score(row, tokens, phrase, previous, current);
+            if (score < 0) continue;
+            scores[row] = score;
+            ranked[count++] = row;
+        }
+
+        SongTable.sort(ranked, count, (a, b) -> {
+            int byScore = Float.compare(scores[b], scores[a]);
+            return byScore != 0 ? byScore : Long.compare(table.getLastModified(b), table.getLastModified(a));
+        });
+        return Arrays.copyOf(ranked, count);
+    }
+
+    /**
+     * Folds text for matching: lower case, without accents.
+     *
+     * @param text The text.
+     * @return The folded text.
+     */
+    public static String fold(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+
+        boolean ascii = true;
+        for (int i = 0; i < lower.length() && ascii; i++) {
+            ascii = lower.charAt(i) < 0x80;
+        }
+        if (ascii) return lower;
+
+        // Decompose accented letters and drop the combining marks
+        String decomposed = Normalizer.normalize(lower, Normalizer.Form.NFD);
+        StringBuilder builder = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    // --- Helper Methods ---
+
+    /**
+     * Scores how well a row matches the query tokens.
+     *
+     * @return The score, or -1 if a token matches nothing in the title.
+     */
+    private float score(int row, String[] tokens, String phrase, int[] previous, int[] current) {
+        float total = 0;
+        for (String token : tokens) {
+            float best = matchToken(row, token, previous, current);
+            if (best <= 0) return -1;
+            total += best;
+        }
+
+        float score = total / tokens.length;
+        if (tokens.length > 1 && contains(row, phrase)) score += PHRASE_BONUS;
+        if (newestModified > oldestModified) {
+            score += RECENCY_WEIGHT * (table.getLastModified(row) - oldestModified) / (float) (newestModified - oldestModified);
+        }
+        return score;
+    }
+
+    /**
+     * Finds the best match of a query token among the words of a row's title.
+     *
+     * @return The score of the best match, or 0 if the token does not match.
+     */
+    private float matchToken(int row, String token, int[] previous, int[] current) {
+        int end = foldedOffsets[row + 1];
+        int typos = maxTypos(token.length());
+        float best = 0;
+
+        int wordStart = foldedOffsets[row];
+        while (wordStart < end) {
+            // Skip to the next word
+            while (wordStart < end && !Character.isLetterOrDigit(foldedChars[wordStart])) wordStart++;
+            int wordEnd = wordStart;
+            while (wordEnd < end && Character.isLetterOrDigit(foldedChars[wordEnd])) wordEnd++;
+            if (wordStart >= end) break;
+
+            int matched = 0;
+            while (matched < token.length() && wordStart + matched < wordEnd
+                    && foldedChars[wordStart + matched] == token.charAt(matched)) {
+                matched++;
+            }
+            if (matched == token.length()) {
+                if (wordEnd - wordStart == token.length()) return EXACT_WORD;
+                best = Math.max(best, WORD_PREFIX);
+            } else if (typos > 0 && best < FUZZY_PREFIX) {
+                int distance = prefixDistance(token, wordStart, wordEnd, typos, previous, current);
+                if (distance <= typos) best = Math.max(best, FUZZY_PREFIX - distance * TYPO_PENALTY);
+            }
+            wordStart = wordEnd;
+        }
+
+        if (best < INNER_MATCH && token.length() >= 3 && contains(row, token)) best = INNER_MATCH;
+        return best;
+    }
+
+    /**
+     * Computes the smallest edit distance between a token and any prefix of a word, giving up
+     * once it exceeds the allowed number of typos.
+     *
+     * @return The distance, or a value above maxDistance if the word does not match.
+     */
+    private int prefixDistance(String token, int wordStart, int wordEnd, int maxDistance, int[] previous, int[] current) {
+        int length = token.length();
+        for (int i = 0; i <= length; i++) {
+            previous[i] = i;
+        }
+
+        int best = length;
+        int wordLength = Math.min(wordEnd - wordStart, length + maxDistance);
+        for (int j = 1; j <= wordLength; j++) {
+            char c = foldedChars[wordStart + j - 1];
+            current[0] = j;
+            int rowMinimum = j;
+            for (int i = 1; i <= length; i++) {
+                int substitution = previous[i - 1] + (token.charAt(i - 1) == c ? 0 : 1);
+                current[i] = Math.min(substitution, Math.min(previous[i], current[i - 1]) + 1);
+                rowMinimum = Math.min(rowMinimum, current[i]);
+            }
+            best = Math.min(best, current[length]);
+            if (rowMinimum > maxDistance) break;
+
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return best;
+    }
+
+    /**
+     * Splits folded text into words.
+     */
+    private static String[] tokenize(String folded) {
+        return Arrays.stream(folded.split("[^\\p{L}\\p{N}]+"))
+                .filter(token -> !token.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    /**
+     * Number of typos tolerated in a query token of the given length.
+     */
+    private static int maxTypos(int length) {
+        if (length < 4) return 0;
+        return length < 8 ? 1 : 2;
+    }
+
+    /**
+     * Checks whether the folded title of a row contains the folded query.
+     */
+    private boolean contains(int row, String folded) {
+        int start = foldedOffsets[row];
+        int last = foldedOffsets[row + 1] - folded.length();
+        char first = folded.charAt(0);
+        for (int i = start; i <= last; i++) {
+            if (foldedChars[i] != first) continue;
+            int j = 1;
+            while (j < folded.length() && foldedChars[i + j] == folded.charAt(j)) j++;
+            if (j == folded.length()) return true;
+        }
+        return false;
+    }
+
+    private static long trigramOf(char[] chars, int start) {
+        // Offset by one so that no trigram packs to the empty slot marker
+        return ((long) chars[start] << 32 | (long) chars[start + 1] << 16 | chars[start + 2]) + 1;
+    }
+
+    private static long trigramOf(String text, int start) {
+        return ((long) text.charAt(start) << 32 | (long) text.charAt(start + 1) << 16 | text.charAt(start + 2)) + 1;
+    }
+
+    private int insertSlot(long key) {
+        int mask = trigramKeys.length - 1;
+        int slot = hash(key) & mask;
+        while (trigramKeys[slot] != 0 && trigramKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        trigramKeys[slot] = key;
+        return slot;
+    }
+
+    private int findSlot(long key) {
+        int mask = trigramKeys.length - 1;
+        for (int slot = hash(key) & mask; trigramKeys[slot] != 0; slot = (slot + 1) & mask) {
+            if (trigramKeys[slot] == key) return slot;
+        }
+        return -1;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
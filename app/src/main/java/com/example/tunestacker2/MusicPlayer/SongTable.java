@@ -0,0 +1,530 @@
+package com.example.tunestacker2.MusicPlayer;
+
+import android.net.Uri;
+import android.provider.DocumentsContract;
+
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Compact, column-oriented table of the songs in the library directory.
+ * <p>
+ * Instead of one {@link Song} object (with its own Uri and String) per audio file, the table keeps
+ * every title and document id in a single char array addressed by offsets, and the last-modified
+ * times in a long array. A row is identified by its int index; sorted or filtered views of the
+ * library are int arrays of rows, so re-ordering the library never touches song objects.
+ * {@link Song} instances are only created, through the {@link SongRegistry}, when a row is handed
+ * to code that needs one (playback, playlists, thumbnails).
+ * <p>
+ * Tables are immutable and can be read from any thread.
+ */
+public final class SongTable {
+
+    public static final SongTable EMPTY = new Builder(null, 0).build();
+
+    // --- Constants ---
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L; // 64-bit FNV-1a, for stable ids
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // --- Data Members ---
+    private final Uri directoryUri;
+    private final int size;
+    private final char[] titleChars;
+    private final int[] titleOffsets;  // Row i spans [titleOffsets[i], titleOffsets[i + 1])
+    private final char[] idChars;
+    private final int[] idOffsets;     // Row i spans [idOffsets[i], idOffsets[i + 1])
+    private final long[] lastModified;
+    private final Object lineage;      // Shared by tables that were built by appending to this one
+    private volatile int[] idSlots = null; // Open-addressing hash of the document ids, row + 1 per slot
+    private volatile SortKeys sortKeys = null; // Collation keys of the titles, built on first use
+
+
+    /**
+     * Orders two rows of a table.
+     */
+    public interface RowComparator {
+        int compare(int rowA, int rowB);
+    }
+
+
+    /**
+     * Collation keys of every title, stored like the titles: one byte array addressed by offsets.
+     */
+    private static final class SortKeys {
+        final int generation;
+        final byte[] bytes;
+        final int[] offsets; // Row i spans [offsets[i], offsets[i + 1])
+
+        SortKeys(int generation, byte[] bytes, int[] offsets) {
+            this.generation = generation;
+            this.bytes = bytes;
+            this.offsets = offsets;
+        }
+    }
+
+
+    /**
+     * Collects rows and builds a table from them.
+     */
+    public static final class Builder {
+        private final Uri directoryUri;
+        private int size = 0;
+        private char[] titleChars;
+        private int[] titleOffsets;
+        private char[] idChars;
+        private int[] idOffsets;
+        private long[] lastModified;
+        private Object lineage = new Object();
+
+        /**
+         * @param directoryUri The tree Uri of the library directory the songs belong to.
+         * @param capacity     Expected number of rows.
+         */
+        public Builder(Uri directoryUri, int capacity) {
+            this.directoryUri = directoryUri;
+            this.titleChars = new char[Math.max(16, capacity * 32)];
+            this.titleOffsets = new int[capacity + 1];
+            this.idChars = new char[Math.max(16, capacity * 24)];
+            this.idOffsets = new int[capacity + 1];
+            this.lastModified = new long[capacity];
+        }
+
+        /**
+         * Starts a builder holding the rows of an existing table, used to append songs to it.
+         *
+         * @param base          The table to copy.
+         * @param directoryUri  The tree Uri of the library directory, if the base table has none.
+         * @param extraCapacity Expected number of additional rows.
+         */
+        public Builder(SongTable base, Uri directoryUri, int extraCapacity) {
+            this(base.directoryUri != null ? base.directoryUri : directoryUri, base.size + extraCapacity);
+            titleChars = ensureCapacity(titleChars, base.titleOffsets[base.size] + extraCapacity * 32);
+            idChars = ensureCapacity(idChars, base.idOffsets[base.size] + extraCapacity * 24);
+            System.arraycopy(base.titleChars, 0, titleChars, 0, base.titleOffsets[base.size]);
+            System.arraycopy(base.titleOffsets, 0, titleOffsets, 0, base.size + 1);
+            System.arraycopy(base.idChars, 0, idChars, 0, base.idOffsets[base.size]);
+            System.arraycopy(base.idOffsets, 0, idOffsets, 0, base.size + 1);
+            System.arraycopy(base.lastModified, 0, lastModified, 0, base.size);
+            size = base.size;
+            lineage = base.lineage;
+        }
+
+        /**
+         * Appends a row.
+         *
+         * @param documentId   The document id of the audio file.
+         * @param title        The title of the song.
+         * @param modified     The last-modified time of the audio file.
+         * @return This builder.
+         */
+        public Builder add(String documentId, String title, long modified) {
+            if (title == null) title = "";
+            if (size == lastModified.length) {
+                int capacity = Math.max(16, size * 2);
+                lastModified = Arrays.copyOf(lastModified, capacity);
+                titleOffsets = Arrays.copyOf(titleOffsets, capacity + 1);
+                idOffsets = Arrays.copyOf(idOffsets, capacity + 1);
+            }
+
+            int titleStart = titleOffsets[size];
+            titleChars = ensureCapacity(titleChars, titleStart + title.length());
+            title.getChars(0, title.length(), titleChars, titleStart);
+            titleOffsets[size + 1] = titleStart + title.length();
+
+            int idStart = idOffsets[size];
+            idChars = ensureCapacity(idChars, idStart + documentId.length());
+            documentId.getChars(0, documentId.length(), idChars, idStart);
+            idOffsets[size + 1] = idStart + documentId.length();
+
+            lastModified[size] = modified;
+            size++;
+            return this;
+        }
+
+        /**
+         * Appends a row for a song of the library directory.
+         *
+         * @param song The song.
+         * @return This builder.
+         */
+        public Builder add(Song song) {
+            return add(documentIdOf(song.getAudioUri()), song.getTitle(), song.getLastModified());
+        }
+
+        /**
+         * Builds the table, trimming the columns to their final size.
+         *
+         * @return The table.
+         */
+        public SongTable build() {
+            return new SongTable(directoryUri, size,
+                    Arrays.copyOf(titleChars, titleOffsets[size]), Arrays.copyOf(titleOffsets, size + 1),
+                    Arrays.copyOf(idChars, idOffsets[size]), Arrays.copyOf(idOffsets, size + 1),
+                    Arrays.copyOf(lastModified, size), lineage);
+        }
+
+        private static char[] ensureCapacity(char[] chars, int required) {
+            if (required <= chars.length) return chars;
+            return Arrays.copyOf(chars, Math.max(required, chars.length * 2));
+        }
+    }
+
+
+    private SongTable(Uri directoryUri, int size, char[] titleChars, int[] titleOffsets,
+                      char[] idChars, int[] idOffsets, long[] lastModified, Object lineage) {
+        this.directoryUri = directoryUri;
+        this.size = size;
+        this.titleChars = titleChars;
+        this.titleOffsets = titleOffsets;
+        this.idChars = idChars;
+        this.idOffsets = idOffsets;
+        this.lastModified = lastModified;
+        this.lineage = lineage;
+    }
+
+    /**
+     * Returns a new table holding the rows of this table followed by the given songs.
+     *
+     * @param directoryUri The tree Uri of the library directory the songs belong to.
+     * @param songs        The songs to append.
+     * @return The new table.
+     */
+    public SongTable withSongs(Uri directoryUri, List<Song> songs) {
+        Builder builder = new Builder(this, directoryUri, songs.size());
+        for (Song song : songs) {
+            builder.add(song);
+        }
+        SongTable table = builder.build();
+
+        // Carry over the collation keys already computed for this table's rows
+        SortKeys keys = sortKeys;
+        if (keys != null && keys.generation == TitleCollation.generation()) {
+            table.sortKeys = table.buildSortKeys(keys);
+        }
+        return table;
+    }
+
+    // --- Row Access ---
+
+    public int size() {
+        return size;
+    }
+
+    public Uri getDirectoryUri() {
+        return directoryUri;
+    }
+
+    public String getTitle(int row) {
+        return new String(titleChars, titleOffsets[row], titleOffsets[row + 1] - titleOffsets[row]);
+    }
+
+    public String getDocumentId(int row) {
+        return new String(idChars, idOffsets[row], idOffsets[row + 1] - idOffsets[row]);
+    }
+
+    public long getLastModified(int row) {
+        return lastModified[row];
+    }
+
+    /**
+     * Builds the Uri of the audio file of a row.
+     *
+     * @param row The row.
+     * @return The document Uri of the audio file.
+     */
+    public Uri getAudioUri(int row) {
+        return DocumentsContract.buildDocumentUriUsingTree(directoryUri, getDocumentId(row));
+    }
+
+    /**
+     * Returns the song of a row, shared with the rest of the app through the {@link SongRegistry}.
+     *
+     * @param row The row.
+     * @return The interned song.
+     */
+    public Song getSong(int row) {
+        return SongRegistry.obtain(directoryUri, getDocumentId(row), getTitle(row), lastModified[row]);
+    }
+
+    /**
+     * Looks up the row of an audio file by its document id.
+     *
+     * @param documentId The document id.
+     * @return The row, or -1 if the table holds no such file.
+     */
+    public int findRow(String documentId) {
+        if (documentId == null || size == 0) return -1;
+
+        int[] slots = idSlots;
+        if (slots == null) {
+            slots = buildIdSlots();
+            idSlots = slots;
+        }
+
+        int mask = slots.length - 1;
+        for (int slot = hashId(documentId) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int row = slots[slot] - 1;
+            if (idEquals(row, documentId)) return row;
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether this table starts with every row of another table, at the same row indices.
+     * This holds for tables built from the other one by {@link #withSongs}.
+     *
+     * @param other The other table.
+     * @return True if the rows of the other table are also rows of this table.
+     */
+    public boolean extendsTable(SongTable other) {
+        return other == this || (other.lineage == lineage && other.size <= size);
+    }
+
+    /**
+     * Checks whether a row of this table shows the same title and last-modified time as a row
+     * of another table.
+     *
+     * @param row      The row of this table.
+     * @param other    The other table.
+     * @param otherRow The row of the other table.
+     * @return True if both rows display the same.
+     */
+    public boolean sameContents(int row, SongTable other, int otherRow) {
+        if (lastModified[row] != other.lastModified[otherRow]) return false;
+
+        int start = titleOffsets[row];
+        int length = titleOffsets[row + 1] - start;
+        int otherStart = other.titleOffsets[otherRow];
+        if (length != other.titleOffsets[otherRow + 1] - otherStart) return false;
+        for (int i = 0; i < length; i++) {
+            if (titleChars[start + i] != other.titleChars[otherStart + i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns a 64-bit id of the audio file of a row, for stable RecyclerView item ids. Equal to
+     * {@link #stableId(String)} of its document id, so it matches {@link Song#getStableId()}.
+     *
+     * @param row The row.
+     * @return The id.
+     */
+    public long getStableId(int row) {
+        long hash = FNV_OFFSET;
+        for (int i = idOffsets[row]; i < idOffsets[row + 1]; i++) {
+            hash = (hash ^ idChars[i]) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Computes the 64-bit id of a document id, see {@link #getStableId(int)}.
+     *
+     * @param documentId The document id.
+     * @return The id.
+     */
+    public static long stableId(String documentId) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < documentId.length(); i++) {
+            hash = (hash ^ documentId.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Looks up the row of a song.
+     *
+     * @param song The song.
+     * @return The row, or -1 if the table holds no such file.
+     */
+    public int findRow(Song song) {
+        if (song == null || song.getAudioUri() == null) return -1;
+        return findRow(documentIdOf(song.getAudioUri()));
+    }
+
+    // --- Ordering ---
+
+    /**
+     * Returns every row of the table in table order.
+     *
+     * @return A new array of rows.
+     */
+    public int[] allRows() {
+        int[] rows = new int[size];
+        for (int i = 0; i < size; i++) {
+            rows[i] = i;
+        }
+        return rows;
+    }
+
+    /**
+     * Orders rows by last-modified time, newest first.
+     *
+     * @return The comparator.
+     */
+    public RowComparator newestFirst() {
+        return (a, b) -> Long.compare(lastModified[b], lastModified[a]);
+    }
+
+    /**
+     * Orders rows by last-modified time, oldest first.
+     *
+     * @return The comparator.
+     */
+    public RowComparator oldestFirst() {
+        return (a, b) -> Long.compare(lastModified[a], lastModified[b]);
+    }
+
+    /**
+     * Orders rows alphabetically by title, ignoring case and accents. The titles are collated
+     * once per table, so the comparisons only compare precomputed keys.
+     *
+     * @return The comparator.
+     */
+    public RowComparator alphabetical() {
+        TitleCollation.checkLocale();
+        int generation = TitleCollation.generation();
+        SortKeys keys = sortKeys;
+        if (keys == null || keys.generation != generation) {
+            keys = buildSortKeys(null);
+            sortKeys = keys;
+        }
+
+        byte[] bytes = keys.bytes;
+        int[] offsets = keys.offsets;
+        return (a, b) -> TitleCollation.compare(
+                bytes, offsets[a], offsets[a + 1] - offsets[a],
+                bytes, offsets[b], offsets[b + 1] - offsets[b]);
+    }
+
+    /**
+     * Sorts the first rows of an array. The sort is stable, so rows that compare equal keep
+     * their relative order.
+     *
+     * @param rows       The rows to sort.
+     * @param count      Number of leading entries to sort.
+     * @param comparator The order.
+     */
+    public static void sort(int[] rows, int count, RowComparator comparator) {
+        if (count < 2) return;
+        int[] buffer = Arrays.copyOf(rows, count);
+        mergeSort(buffer, rows, 0, count, comparator);
+    }
+
+    // --- Helper Methods ---
+
+    /**
+     * Top-down merge sort of src[from, to) into dst[from, to), where both hold the same rows.
+     */
+    private static void mergeSort(int[] src, int[] dst, int from, int to, RowComparator comparator) {
+        int length = to - from;
+        if (length < 8) {
+            // Insertion sort for short runs
+            for (int i = from + 1; i < to; i++) {
+                int row = dst[i];
+                int j = i - 1;
+                while (j >= from && comparator.compare(dst[j], row) > 0) {
+                    dst[j + 1] = dst[j];
+                    j--;
+                }
+                dst[j + 1] = row;
+            }
+            return;
+        }
+
+        int mid = (from + to) >>> 1;
+        mergeSort(dst, src, from, mid, comparator);
+        mergeSort(dst, src, mid, to, comparator);
+
+        // Already in order
+        if (comparator.compare(src[mid - 1], src[mid]) <= 0) {
+            System.arraycopy(src, from, dst, from, length);
+            return;
+        }
+
+        for (int i = from, p = from, q = mid; i < to; i++) {
+            if (q >= to || (p < mid && comparator.compare(src[p], src[q]) <= 0)) {
+                dst[i] = src[p++];
+            } else {
+                dst[i] = src[q++];
+            }
+        }
+    }
+
+    /**
+     * Computes the collation keys of every row.
+     *
+     * @param prefix Keys already computed for the leading rows, may be null.
+     * @return The keys of this table.
+     */
+    private SortKeys buildSortKeys(SortKeys prefix) {
+        int generation = TitleCollation.generation();
+        int[] offsets = new int[size + 1];
+        byte[] bytes;
+        int first = 0;
+        if (prefix != null) {
+            first = prefix.offsets.length - 1;
+            bytes = Arrays.copyOf(prefix.bytes, Math.max(16, prefix.bytes.length + (size - first) * 16));
+            System.arraycopy(prefix.offsets, 0, offsets, 0, first + 1);
+        } else {
+            bytes = new byte[Math.max(16, size * 16)];
+        }
+
+        for (int row = first; row < size; row++) {
+            byte[] key = TitleCollation.sortKey(getTitle(row));
+            int start = offsets[row];
+            if (start + key.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(start + key.length, bytes.length * 2));
+            }
+            System.arraycopy(key, 0, bytes, start, key.length);
+            offsets[row + 1] = start + key.length;
+        }
+        return new SortKeys(generation, Arrays.copyOf(bytes, offsets[size]), offsets);
+    }
+
+    private synchronized int[] buildIdSlots() {
+        int capacity = Integer.highestOneBit(Math.max(2, size * 2) - 1) << 1;
+        int[] slots = new int[capacity];
+        int mask = capacity - 1;
+        for (int row = 0; row < size; row++) {
+            int hash = 0;
+            for (int i = idOffsets[row]; i < idOffsets[row + 1]; i++) {
+                hash = 31 * hash + idChars[i];
+            }
+            int slot = spread(hash) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = row + 1;
+        }
+        return slots;
+    }
+
+    private boolean idEquals(int row, String documentId) {
+        int start = idOffsets[row];
+        int length = idOffsets[row + 1] - start;
+        if (length != documentId.length()) return false;
+        for (int i = 0; i < length; i++) {
+            if (idChars[start + i] != documentId.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static int hashId(String documentId) {
+        // Same as the hash computed over the id columns
+        return spread(documentId.hashCode());
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    static String documentIdOf(Uri audioUri) {
+        try {
+            return DocumentsContract.getDocumentId(audioUri);
+        } catch (IllegalArgumentException e) {
+            return audioUri.toString();
+        }
+    }
+}
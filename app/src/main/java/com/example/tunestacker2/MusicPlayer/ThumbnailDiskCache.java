@@ -0,0 +1,224 @@
+package com.example.tunestacker2.MusicPlayer;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Size-bounded directory of encoded thumbnails in app-private cache storage.
+ * <p>
+ * Extracting a thumbnail means opening the audio file through SAF and parsing its container for
+ * the embedded picture. The disk tier keeps the downscaled result as a small image file, so after
+ * a process restart a memory miss only reads and decodes a few kilobytes. Songs without embedded
+ * art are remembered as empty files, so they are not re-opened either. Entries are evicted least
+ * recently used first once the directory exceeds its byte budget; the order is kept in memory and
+ * seeded from the file times when the directory is first used. Entries can be protected from
+ * eviction for a while, so a bulk extraction does not evict what it extracted itself.
+ */
+final class ThumbnailDiskCache {
+
+    // --- Constants ---
+    private static final String LOG = "ThumbnailDiskCache";
+    private static final byte[] NO_ART = new byte[0];
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    // --- Data Members ---
+    private final File directory;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(64, 0.75f, true); // File name to size, eldest first
+    private final Set<String> protectedKeys = new HashSet<>(); // Never evicted until released
+    private long totalBytes = 0;
+    private boolean indexed = false;
+    private int tempCounter = 0;
+
+
+    /**
+     * @param directory The directory holding the entries, created on first use.
+     * @param maxBytes  Byte budget of the directory.
+     */
+    ThumbnailDiskCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Reads an entry.
+     *
+     * @param key The key, a valid file name.
+     * @return The encoded thumbnail, an empty array if the song has no embedded art, or null if
+     *         the entry does not exist.
+     */
+    byte[] get(String key) {
+        File file;
+        synchronized (this) {
+            ensureIndexed();
+            Long size = entries.get(key);
+            if (size == null) return null;
+            if (size == 0) return NO_ART;
+            file = new File(directory, key);
+        }
+
+        try (FileInputStream in = new FileInputStream(file)) {
+            byte[] data = new byte[(int) file.length()];
+            int read = 0;
+            while (read < data.length) {
+                int count = in.read(data, read, data.length - read);
+                if (count < 0) break;
+                read += count;
+            }
+            return read == data.length ? data : Arrays.copyOf(data, read);
+        } catch (IOException e) {
+            // Evicted in the meantime or deleted by the system
+            synchronized (this) {
+                Long size = entries.remove(key);
+                if (size != null) totalBytes -= size;
+                protectedKeys.remove(key);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether an entry exists, without reading it. An existing entry counts as recently
+     * used.
+     *
+     * @param key The key.
+     * @return True if the entry exists.
+     */
+    synchronized boolean contains(String key) {
+        ensureIndexed();
+        return entries.get(key) != null;
+    }
+
+    /**
+     * Protects an entry from eviction until {@link #releaseProtected} is called.
+     *
+     * @param key The key.
+     */
+    synchronized void protect(String key) {
+        if (entries.containsKey(key)) protectedKeys.add(key);
+    }
+
+    /**
+     * Makes the protected entries evictable again, evicting entries if the budget is exceeded.
+     */
+    synchronized void releaseProtected() {
+        protectedKeys.clear();
+        trimToSize();
+    }
+
+    /**
+     * Returns how many bytes of the budget are held by protected entries.
+     *
+     * @return The size of the protected entries.
+     */
+    synchronized long getProtectedBytes() {
+        long bytes = 0;
+        for (String key : protectedKeys) {
+            Long size = entries.get(key);
+            if (size != null) bytes += size;
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes an entry, evicting the least recently used entries if the budget is exceeded.
+     * The file is written under a temporary name first, so readers never see a partial file.
+     *
+     * @param key  The key, a valid file name.
+     * @param data The encoded thumbnail, or null or empty if the song has no embedded art.
+     */
+    void put(String key, byte[] data) {
+        if (data == null) data = NO_ART;
+
+        File temp;
+        synchronized (this) {
+            ensureIndexed();
+            temp = new File(directory, key + "." + (tempCounter++) + TEMP_SUFFIX);
+        }
+
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(data);
+        } catch (IOException e) {
+            Log.e(LOG, "Error writing thumbnail", e);
+            temp.delete();
+            return;
+        }
+
+        synchronized (this) {
+            File file = new File(directory, key);
+            if (!temp.renameTo(file)) {
+                temp.delete();
+                return;
+            }
+
+            Long previous = entries.put(key, (long) data.length);
+            if (previous != null) totalBytes -= previous;
+            totalBytes += data.length;
+            trimToSize();
+        }
+    }
+
+    // --- Helper Methods ---
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            if (protectedKeys.contains(eldest.getKey())) continue;
+
+            new File(directory, eldest.getKey()).delete();
+            totalBytes -= eldest.getValue();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Lists the directory once, oldest file first, and drops temporary files left behind by an
+     * interrupted write.
+     */
+    private void ensureIndexed() {
+        if (indexed) return;
+        indexed = true;
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.e(LOG, "Could not create " + directory);
+            return;
+        }
+
+        File[] files = directory.listFiles();
+        if (files == null) return;
+
+        long[] times = new long[files.length];
+        for (int i = 0; i < files.length; i++) {
+            times[i] = files[i].lastModified();
+        }
+        Integer[] order = new Integer[files.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(times[a], times[b]));
+
+        for (int i : order) {
+            File file = files[i];
+            if (file.getName().endsWith(TEMP_SUFFIX)) {
+                file.delete();
+                continue;
+            }
+            long size = file.length();
+            entries.put(file.getName(), size);
+            totalBytes += size;
+        }
+        trimToSize();
+    }
+}
@@ -7,32 +7,79 @@ import android.media.MediaMetadataRetriever;
 import android.net.Uri;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.Process;
 import android.util.Log;
 
 import androidx.collection.LruCache;
 
 import com.example.tunestacker2.R;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A utility class to load and cache thumbnail images for songs asynchronously or synchronously.
+ * <p>
+ * Thumbnails are cached in two tiers: decoded bitmaps in memory, and the downscaled images in
+ * app-private cache storage ({@link ThumbnailDiskCache}), so the audio file is only opened and
+ * parsed once per song and modification, not once per process.
+ * <p>
+ * Views that release the thumbnails they display ({@link #acquireThumbnailSync},
+ * {@link #acquireThumbnailAsync}, {@link #releaseThumbnail}) let an evicted bitmap return to the
+ * {@link BitmapPool} once no view displays it any more, so steady-state decodes reuse its memory.
+ * Bitmaps handed out by the other methods are never pooled, their callers do not say when they
+ * stop displaying them.
  */
 public class ThumbnailLoader {
     // --- Constants ---
     private static final String LOG = "ThumbnailLoader";
 
     public static final int DEFAULT_THUMBNAIL = R.drawable.default_thumbail_2;
+    private static final int SMALL_SIZE = 64;
+    private static final int LARGE_SIZE = 256;
+    private static final int DISK_QUALITY = 90;                        // JPEG quality of the disk tier
+    private static final long SMALL_DISK_BYTES = 24L * 1024 * 1024;
+    private static final long LARGE_DISK_BYTES = 48L * 1024 * 1024;
+    private static final int SMALL_ENTRY_BYTES = 4 * 1024;             // Typical JPEG of a 64x64 thumbnail
+    private static final int LARGE_ENTRY_BYTES = 24 * 1024;            // Typical JPEG of a 256x256 thumbnail
 
     // --- Cache and Background Operations ---
-    private static final LruCache<String, Bitmap> cache64x64 = new LruCache<>(256); // cache ~256 images
+    private static final long MAX_MEMORY = Runtime.getRuntime().maxMemory(); // Heap limit of the memory class
+    private static final BitmapPool bitmapPool = new BitmapPool(MAX_MEMORY / 64);
+    private static final BitmapCache cache64x64 = new BitmapCache((int) (MAX_MEMORY / 16));
+    private static final BitmapCache cache256x256 = new BitmapCache((int) (MAX_MEMORY / 32));
     private static final int CORES = Runtime.getRuntime().availableProcessors();
-    private static final ExecutorService executor = Executors.newFixedThreadPool(Math.min(4, CORES)); // adjust thread count as needed
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(Math.min(4, CORES), Math.min(4, CORES),
+            0L, TimeUnit.MILLISECONDS, new LifoQueue()); // Newest request first, the rows on screen are served before the backlog
+    private static final ThreadPoolExecutor prefetchExecutor = new ThreadPoolExecutor(1, 1,
+            0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "ThumbnailPrefetch")); // Nearest predicted row first, only while no visible load is pending
+    private static final Map<String, Job> inFlight = new HashMap<>(); // Queued and running loads by size and Uri, guards the jobs
+    private static final Object idleLock = new Object(); // Notified when a visible load finishes
+    private static final long IDLE_POLL_MS = 50;
     private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final Map<Bitmap, Integer> displayCounts = new WeakHashMap<>(); // Views displaying each acquired bitmap, guards the sets below
+    private static final Set<Bitmap> evictedDisplayed = Collections.newSetFromMap(new WeakHashMap<>()); // Evicted, pooled when the count reaches 0
+    private static final Set<Bitmap> untracked = Collections.newSetFromMap(new WeakHashMap<>()); // Handed to callers that never release, never pooled
 
     private static volatile Bitmap defaultThumbnail = null;
+    private static ThumbnailDiskCache smallDiskCache = null;
+    private static ThumbnailDiskCache largeDiskCache = null;
 
     /**
      * Callback interface for asynchronous thumbnail loading.
@@ -41,6 +88,229 @@ public class ThumbnailLoader {
         void onThumbnailLoaded(Bitmap bitmap);
     }
 
+    /**
+     * Handle of an asynchronous thumbnail load. A view that no longer needs the thumbnail, for
+     * example a recycled row, cancels its request: the callback is not called, and the load is
+     * dropped if no other request waits for it and it has not started yet.
+     */
+    public static final class Request {
+        private final ThumbnailCallback callback;
+        private final boolean acquired; // The callback owns the bitmap and releases it
+        private volatile boolean cancelled = false;
+        private Job job = null; // Guarded by inFlight
+
+        private Request(ThumbnailCallback callback, boolean acquired) {
+            this.callback = callback;
+            this.acquired = acquired;
+        }
+
+        public void cancel() {
+            cancelled = true;
+            synchronized (inFlight) {
+                if (job == null) return;
+
+                job.requests.remove(this);
+                if (job.requests.isEmpty() && !job.started && !job.prefetch && executor.remove(job)) {
+                    if (inFlight.get(job.key) == job) inFlight.remove(job.key);
+                }
+                job = null;
+            }
+        }
+
+        /**
+         * Counts the bitmap as displayed by this request until it is delivered, or marks it as
+         * never pooled. Must be called while the bitmap is still in its memory cache.
+         */
+        private void hold(Bitmap bitmap) {
+            if (acquired) {
+                retain(bitmap);
+            } else {
+                markUntracked(bitmap);
+            }
+        }
+
+        private void deliver(Bitmap bitmap) {
+            if (!cancelled && callback != null) {
+                callback.onThumbnailLoaded(bitmap);
+            } else if (acquired) {
+                releaseThumbnail(bitmap);
+            }
+        }
+    }
+
+    /**
+     * A load of one thumbnail, shared by every request for the same song and size. A prefetch
+     * runs on the {@link #prefetchExecutor} without any request, until a request for it arrives
+     * and it moves to the visible loads.
+     */
+    private static final class Job implements Runnable {
+        final String key;
+        final Song song;
+        final Context context;
+        final int size;
+        final List<Request> requests = new ArrayList<>(2); // Guarded by inFlight
+        boolean started = false;                           // Guarded by inFlight
+        boolean prefetch = false;                          // Guarded by inFlight
+
+        Job(String key, Song song, Context context, int size) {
+            this.key = key;
+            this.song = song;
+            this.context = context;
+            this.size = size;
+        }
+
+        @Override
+        public void run() {
+            boolean prefetching;
+            synchronized (inFlight) {
+                prefetching = prefetch;
+            }
+            if (prefetching) awaitIdleVisibleLoads(this);
+
+            synchronized (inFlight) {
+                if (requests.isEmpty() && !prefetch) {
+                    // Every request was cancelled while it was being dequeued
+                    if (inFlight.get(key) == this) inFlight.remove(key);
+                    return;
+                }
+                started = true;
+            }
+
+            Bitmap bitmap = loadThumbnail(song, context, size);
+            String uri = song.getAudioUri().toString();
+            if (size == SMALL_SIZE) {
+                // Fallback to default
+                if (bitmap == null) {
+                    bitmap = getDefaultThumbnail(context);
+                }
+                synchronized (cache64x64) {
+                    cache64x64.put(uri, bitmap);
+                    retain(bitmap); // Not pooled by an eviction before the requests hold it
+                }
+            } else if (bitmap != null) {
+                synchronized (cache256x256) {
+                    cache256x256.put(uri, bitmap);
+                    retain(bitmap);
+                }
+            }
+
+            List<Request> waiting;
+            synchronized (inFlight) {
+                if (inFlight.get(key) == this) inFlight.remove(key);
+                waiting = new ArrayList<>(requests);
+                requests.clear();
+                for (Request request : waiting) {
+                    request.job = null;
+                    request.hold(bitmap);
+                }
+            }
+            releaseThumbnail(bitmap);
+
+            synchronized (idleLock) {
+                idleLock.notifyAll();
+            }
+
+            // Large thumbnails only callback when the bitmap is loaded
+            if (bitmap == null || waiting.isEmpty()) return;
+            Bitmap finalBitmap = bitmap;
+            mainHandler.post(() -> {
+                for (Request request : waiting) {
+                    request.deliver(finalBitmap);
+                }
+            });
+        }
+    }
+
+    /**
+     * Work queue that hands out the most recently queued task first.
+     */
+    private static class LifoQueue extends LinkedBlockingDeque<Runnable> {
+        @Override
+        public boolean offer(Runnable runnable) {
+            return offerFirst(runnable);
+        }
+    }
+
+    /**
+     * Memory cache bounded by the bytes of its bitmaps instead of their number. Evicted bitmaps
+     * are pooled once no view displays them any more.
+     */
+    private static class BitmapCache extends LruCache<String, Bitmap> {
+        BitmapCache(int maxBytes) {
+            super(maxBytes);
+        }
+
+        @Override
+        protected int sizeOf(String key, Bitmap bitmap) {
+            // The default thumbnail is shared by every song without art
+            return bitmap == defaultThumbnail ? 1 : bitmap.getAllocationByteCount();
+        }
+
+        @Override
+        protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+            if (oldValue != newValue) recycleWhenUndisplayed(oldValue);
+        }
+    }
+
+    /**
+     * Counts one more view displaying a bitmap.
+     */
+    private static void retain(Bitmap bitmap) {
+        if (bitmap == null || bitmap == defaultThumbnail) return;
+        synchronized (displayCounts) {
+            Integer count = displayCounts.get(bitmap);
+            displayCounts.put(bitmap, count == null ? 1 : count + 1);
+        }
+    }
+
+    /**
+     * Excludes a bitmap from pooling, for callers that do not release what they display.
+     */
+    private static void markUntracked(Bitmap bitmap) {
+        if (bitmap == null || bitmap == defaultThumbnail) return;
+        synchronized (displayCounts) {
+            untracked.add(bitmap);
+        }
+    }
+
+    /**
+     * Pools a bitmap removed from its memory cache, now if no view displays it, otherwise when the
+     * last view releases it.
+     */
+    private static void recycleWhenUndisplayed(Bitmap bitmap) {
+        if (bitmap == null || bitmap == defaultThumbnail) return;
+        synchronized (displayCounts) {
+            if (untracked.contains(bitmap)) return;
+            if (displayCounts.containsKey(bitmap)) {
+                evictedDisplayed.add(bitmap);
+                return;
+            }
+        }
+        bitmapPool.put(bitmap);
+    }
+
+    /**
+     * Releases a thumbnail a view acquired and no longer displays. The view must show something
+     * else before, the bitmap may be decoded into right away.
+     *
+     * @param bitmap The thumbnail from {@link #acquireThumbnailSync} or an acquiring request, may
+     *               be null.
+     */
+    public static void releaseThumbnail(Bitmap bitmap) {
+        if (bitmap == null || bitmap == defaultThumbnail) return;
+        synchronized (displayCounts) {
+            Integer count = displayCounts.get(bitmap);
+            if (count == null) return;
+            if (count > 1) {
+                displayCounts.put(bitmap, count - 1);
+                return;
+            }
+            displayCounts.remove(bitmap);
+            if (!evictedDisplayed.remove(bitmap)) return;
+        }
+        bitmapPool.put(bitmap);
+    }
+
     /**
      * Retrieves the default thumbnail image.
      *
@@ -65,54 +335,24 @@ public class ThumbnailLoader {
      * @param song     The song for which to load the thumbnail.
      * @param context  The application context.
      * @param callback The callback to receive the loaded thumbnail.
+     * @return The request, which can be cancelled.
      */
-    public static void loadThumbnailAsync(Song song, Context context, ThumbnailCallback callback) {
-        if(song == null || song.getAudioUri() == null) {
-            mainHandler.post(() -> callback.onThumbnailLoaded(getDefaultThumbnail(context)));
-            return;
-        }
-
-        Uri audioUri = song.getAudioUri();
-        synchronized (cache64x64) {
-            Bitmap cached = cache64x64.get(audioUri.toString());
-            if (cached != null) {
-                mainHandler.post(() -> callback.onThumbnailLoaded(cached));
-                return;
-            }
-        }
-
-        executor.execute(() -> {
-            Bitmap bitmap = null;
-
-            // Try embedded image
-            MediaMetadataRetriever mmr = new MediaMetadataRetriever();
-            try {
-                mmr.setDataSource(context.getApplicationContext(), audioUri);
-                byte[] art = mmr.getEmbeddedPicture();
-                if (art != null) {
-                    bitmap = decodeSampledBitmapFromBytes(art, 64, 64);
-                }
-            } catch (Exception e) {
-                Log.e(LOG, "Error loading thumbnail", e);
-            } finally {
-                try {
-                    mmr.release();
-                } catch (IOException ignore) {}
-            }
-
-            // Fallback to default
-            if (bitmap == null) {
-                bitmap = getDefaultThumbnail(context);
-            }
+    public static Request loadThumbnailAsync(Song song, Context context, ThumbnailCallback callback) {
+        return loadAsync(new Request(callback, false), song, context, SMALL_SIZE);
+    }
 
-            synchronized (cache64x64) {
-                cache64x64.put(audioUri.toString(), bitmap);
-            }
-            Bitmap finalBitmap = bitmap;
-            mainHandler.post(() -> {
-                callback.onThumbnailLoaded(finalBitmap);
-            });
-        });
+    /**
+     * Loads a 64x64 thumbnail for a song asynchronously for a view that releases it with
+     * {@link #releaseThumbnail} when it stops displaying it. A cancelled request releases the
+     * thumbnail itself.
+     *
+     * @param song     The song for which to load the thumbnail.
+     * @param context  The application context.
+     * @param callback The callback to receive the loaded thumbnail.
+     * @return The request, which can be cancelled.
+     */
+    public static Request acquireThumbnailAsync(Song song, Context context, ThumbnailCallback callback) {
+        return loadAsync(new Request(callback, true), song, context, SMALL_SIZE);
     }
 
     /**
@@ -132,6 +372,7 @@ public class ThumbnailLoader {
         synchronized (cache64x64) {
             Bitmap cached = cache64x64.get(audioUri.toString());
             if (cached != null) {
+                markUntracked(cached);
                 return cached;
             }
         }
@@ -152,54 +393,397 @@ public class ThumbnailLoader {
 
         Uri audioUri = song.getAudioUri();
         synchronized (cache64x64) {
-            return cache64x64.get(audioUri.toString());
+            Bitmap cached = cache64x64.get(audioUri.toString());
+            markUntracked(cached);
+            return cached;
+        }
+    }
+
+    /**
+     * Loads a 64x64 thumbnail for a song synchronously from cache for a view that releases it
+     * with {@link #releaseThumbnail} when it stops displaying it.
+     *
+     * @param song The song whose thumbnail is to be retrieved.
+     * @return A thumbnail bitmap, either from cache or null.
+     */
+    public static Bitmap acquireThumbnailSync(Song song) {
+        if(song == null || song.getAudioUri() == null) {
+            return null;
+        }
+
+        Uri audioUri = song.getAudioUri();
+        synchronized (cache64x64) {
+            Bitmap cached = cache64x64.get(audioUri.toString());
+            retain(cached);
+            return cached;
         }
     }
 
     /**
-     * Loads a larger (256x256) thumbnail for a song asynchronously.
+     * Loads a larger (256x256) thumbnail for a song asynchronously, from the memory cache if it
+     * was loaded before.
+     *
+     * @param song     The song for which to load the thumbnail.
+     * @param context  The application context.
+     * @param callback The callback to receive the loaded thumbnail.
+     * @return The request, which can be cancelled.
+     */
+    public static Request loadLargeThumbnailAsync(Song song, Context context, ThumbnailCallback callback) {
+        return loadAsync(new Request(callback, false), song, context, LARGE_SIZE);
+    }
+
+    /**
+     * Loads a larger (256x256) thumbnail for a song asynchronously for a view that releases it
+     * with {@link #releaseThumbnail} when it stops displaying it. A cancelled request releases
+     * the thumbnail itself.
      *
      * @param song     The song for which to load the thumbnail.
      * @param context  The application context.
      * @param callback The callback to receive the loaded thumbnail.
+     * @return The request, which can be cancelled.
      */
-    public static void loadLargeThumbnailAsync(Song song, Context context, ThumbnailCallback callback) {
+    public static Request acquireLargeThumbnailAsync(Song song, Context context, ThumbnailCallback callback) {
+        return loadAsync(new Request(callback, true), song, context, LARGE_SIZE);
+    }
+
+    /**
+     * Delivers a thumbnail from the memory cache or queues its load. Small thumbnails fall back
+     * to the default thumbnail, large ones are only delivered when the song has embedded art.
+     *
+     * @param request The request.
+     * @param song    The song.
+     * @param context The application context.
+     * @param size    {@link #SMALL_SIZE} or {@link #LARGE_SIZE}.
+     * @return The request.
+     */
+    private static Request loadAsync(Request request, Song song, Context context, int size) {
         if(song == null || song.getAudioUri() == null) {
-            return;
+            if (size == SMALL_SIZE) mainHandler.post(() -> request.deliver(getDefaultThumbnail(context)));
+            return request;
         }
 
-        Uri audioUri = song.getAudioUri();
-        executor.execute(() -> {
-            Bitmap bitmap = null;
+        BitmapCache cache = size == LARGE_SIZE ? cache256x256 : cache64x64;
+        synchronized (cache) {
+            Bitmap cached = cache.get(song.getAudioUri().toString());
+            if (cached != null) {
+                request.hold(cached);
+                mainHandler.post(() -> request.deliver(cached));
+                return request;
+            }
+        }
 
-            // Try embedded image
-            MediaMetadataRetriever mmr = new MediaMetadataRetriever();
-            try {
-                mmr.setDataSource(context.getApplicationContext(), audioUri);
-                byte[] art = mmr.getEmbeddedPicture();
-                if (art != null) {
-                    bitmap = decodeSampledBitmapFromBytes(art, 256, 256);
+        enqueue(request, song, context, size);
+        return request;
+    }
+
+    /**
+     * Attaches a request to the load of the same thumbnail if one is queued or running, otherwise
+     * queues a new load. A queued load that is requested again moves to the front of the queue.
+     *
+     * @param request The request.
+     * @param song    The song.
+     * @param context The application context.
+     * @param size    {@link #SMALL_SIZE} or {@link #LARGE_SIZE}.
+     */
+    private static void enqueue(Request request, Song song, Context context, int size) {
+        String key = size + ":" + song.getAudioUri();
+        synchronized (inFlight) {
+            Job job = inFlight.get(key);
+            if (job == null) {
+                job = new Job(key, song, context.getApplicationContext(), size);
+                inFlight.put(key, job);
+                job.requests.add(request);
+                request.job = job;
+                executor.execute(job);
+                return;
+            }
+
+            job.requests.add(request);
+            request.job = job;
+            if (job.started) return;
+
+            if (job.prefetch) {
+                // Someone is waiting for a prefetch now, load it with the visible rows
+                if (prefetchExecutor.remove(job)) {
+                    job.prefetch = false;
+                    executor.execute(job);
                 }
-            } catch (Exception e) {
-                Log.e(LOG, "Error loading thumbnail", e);
-            } finally {
+            } else if (executor.remove(job)) {
+                executor.execute(job);
+            }
+        }
+    }
+
+    /**
+     * Warms the memory cache with the thumbnails of rows that are about to be displayed.
+     * Prefetches run one at a time at background priority and only while no visible load is
+     * pending. Prefetches of an earlier call that have not started are dropped, the songs of
+     * the newest prediction are loaded first.
+     *
+     * @param songs   The songs, nearest row first.
+     * @param context The application context.
+     * @param large   Whether to prefetch the 256x256 instead of the 64x64 thumbnails.
+     */
+    public static void prefetchThumbnails(List<Song> songs, Context context, boolean large) {
+        int size = large ? LARGE_SIZE : SMALL_SIZE;
+        BitmapCache cache = large ? cache256x256 : cache64x64;
+        synchronized (inFlight) {
+            cancelQueuedPrefetches();
+
+            for (Song song : songs) {
+                if (song == null || song.getAudioUri() == null) continue;
+
+                String key = size + ":" + song.getAudioUri();
+                if (inFlight.containsKey(key)) continue;
+                synchronized (cache) {
+                    if (cache.get(song.getAudioUri().toString()) != null) continue;
+                }
+
+                Job job = new Job(key, song, context.getApplicationContext(), size);
+                job.prefetch = true;
+                inFlight.put(key, job);
+                prefetchExecutor.execute(job);
+            }
+        }
+    }
+
+    /**
+     * Extracts the thumbnails of a song into the disk tier unless they are there already, without
+     * keeping them in memory. Waits while visible loads are pending, so bulk extraction never takes
+     * time from the rows on screen. The extracted entries are protected from eviction until
+     * {@link #releasePreloadedThumbnails} is called. Must be called on a background thread.
+     *
+     * @param song    The song.
+     * @param context The application context.
+     * @return True if the audio file had to be opened.
+     */
+    public static boolean preloadThumbnail(Song song, Context context) {
+        if (song == null || song.getAudioUri() == null) return false;
+        if (isExtracted(context, diskKey(song))) return false;
+        synchronized (inFlight) {
+            // Already being loaded for the list
+            if (inFlight.containsKey(SMALL_SIZE + ":" + song.getAudioUri())) return false;
+        }
+
+        awaitIdleVisibleLoads(null);
+        bitmapPool.put(extractThumbnails(song, context, SMALL_SIZE));
+
+        // Later songs of the same pass evict other entries, not this one
+        String key = diskKey(song);
+        getDiskCache(context, SMALL_SIZE).protect(key);
+        getDiskCache(context, LARGE_SIZE).protect(key);
+        return true;
+    }
+
+    /**
+     * Ends a preloading pass, the entries it extracted can be evicted again.
+     *
+     * @param context The application context.
+     */
+    public static void releasePreloadedThumbnails(Context context) {
+        getDiskCache(context, SMALL_SIZE).releaseProtected();
+        getDiskCache(context, LARGE_SIZE).releaseProtected();
+    }
+
+    /**
+     * Checks whether the thumbnails of a row were extracted into both disk tiers, without
+     * creating a song for the row. Extracted thumbnails count as recently used, so they are
+     * evicted after the thumbnails of songs that were not checked.
+     *
+     * @param table   The song table.
+     * @param row     The row.
+     * @param context The application context.
+     * @return True if a memory miss for the row does not have to open the audio file.
+     */
+    public static boolean isThumbnailExtracted(SongTable table, int row, Context context) {
+        return isExtracted(context, diskKey(table.getStableId(row), table.getLastModified(row)));
+    }
+
+    /**
+     * Returns how many songs fit into the disk tiers, the number of songs worth preloading.
+     *
+     * @return The number of songs whose thumbnails fit into both disk budgets.
+     */
+    public static int getDiskCapacity() {
+        return (int) Math.min(SMALL_DISK_BYTES / SMALL_ENTRY_BYTES, LARGE_DISK_BYTES / LARGE_ENTRY_BYTES);
+    }
+
+    /**
+     * Checks whether the thumbnails of one more song fit into the disk tiers next to the ones the
+     * current preloading pass extracted, evicting only entries that are not protected.
+     *
+     * @param context The application context.
+     * @return True if both disk tiers have room for another preloaded entry.
+     */
+    public static boolean hasPreloadRoom(Context context) {
+        return getDiskCache(context, SMALL_SIZE).getProtectedBytes() + SMALL_ENTRY_BYTES <= SMALL_DISK_BYTES
+                && getDiskCache(context, LARGE_SIZE).getProtectedBytes() + LARGE_ENTRY_BYTES <= LARGE_DISK_BYTES;
+    }
+
+    /**
+     * Holds background work back while visible loads are queued or running.
+     *
+     * @param job A prefetch that stops waiting once a request waits for it, or null.
+     */
+    private static void awaitIdleVisibleLoads(Job job) {
+        synchronized (idleLock) {
+            while (true) {
+                if (job != null) {
+                    synchronized (inFlight) {
+                        if (!job.requests.isEmpty()) return;
+                    }
+                }
+                if (executor.getActiveCount() == 0 && executor.getQueue().isEmpty()) return;
+
                 try {
-                    mmr.release();
-                } catch (IOException ignore) {}
+                    idleLock.wait(IDLE_POLL_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
             }
+        }
+    }
 
-            // Only callback when the bitmap is loaded
-            if (bitmap != null) {
-                Bitmap finalBitmap = bitmap;
-                mainHandler.post(() -> {
-                    callback.onThumbnailLoaded(finalBitmap);
-                });
+    /**
+     * Drops the queued prefetches no request waits for. Must hold the inFlight lock.
+     */
+    private static void cancelQueuedPrefetches() {
+        Iterator<Job> iterator = inFlight.values().iterator();
+        while (iterator.hasNext()) {
+            Job job = iterator.next();
+            if (job.prefetch && !job.started && job.requests.isEmpty() && prefetchExecutor.remove(job)) {
+                iterator.remove();
             }
-        });
+        }
+    }
+
+    /**
+     * Loads a thumbnail from the disk tier, extracting it from the audio file on a miss.
+     * Must be called on a background thread.
+     *
+     * @param song    The song.
+     * @param context The application context.
+     * @param size    {@link #SMALL_SIZE} or {@link #LARGE_SIZE}.
+     * @return The thumbnail, or null if the song has no embedded art.
+     */
+    private static Bitmap loadThumbnail(Song song, Context context, int size) {
+        byte[] cached = getDiskCache(context, size).get(diskKey(song));
+        if (cached != null) {
+            return cached.length > 0 ? decodeSampledBitmapFromBytes(cached, size, size) : null;
+        }
+        return extractThumbnails(song, context, size);
+    }
+
+    /**
+     * Extracts the embedded picture of a song and stores both thumbnail sizes in the disk tier,
+     * so the audio file is not opened again for the other size.
+     *
+     * @param song    The song.
+     * @param context The application context.
+     * @param size    The size to return.
+     * @return The thumbnail of the requested size, or null if the song has no embedded art.
+     */
+    private static Bitmap extractThumbnails(Song song, Context context, int size) {
+        byte[] art;
+        MediaMetadataRetriever mmr = new MediaMetadataRetriever();
+        try {
+            mmr.setDataSource(context.getApplicationContext(), song.getAudioUri());
+            art = mmr.getEmbeddedPicture();
+        } catch (Exception e) {
+            // Not remembered, the file may be readable next time
+            Log.e(LOG, "Error loading thumbnail", e);
+            return null;
+        } finally {
+            try {
+                mmr.release();
+            } catch (IOException ignore) {}
+        }
+
+        Bitmap small = art != null ? scaleToFit(decodeSampledBitmapFromBytes(art, SMALL_SIZE, SMALL_SIZE), SMALL_SIZE) : null;
+        Bitmap large = art != null ? scaleToFit(decodeSampledBitmapFromBytes(art, LARGE_SIZE, LARGE_SIZE), LARGE_SIZE) : null;
+
+        String key = diskKey(song);
+        getDiskCache(context, SMALL_SIZE).put(key, encode(small));
+        getDiskCache(context, LARGE_SIZE).put(key, encode(large));
+
+        // The other size was only needed for the disk tier
+        bitmapPool.put(size == LARGE_SIZE ? small : large);
+        return size == LARGE_SIZE ? large : small;
+    }
+
+    /**
+     * Scales a decoded picture down to fit the thumbnail size, keeping its aspect ratio. Sampling
+     * only divides by powers of two and can leave the picture up to twice the size, which the
+     * memory and disk budgets do not account for.
+     *
+     * @param bitmap The sampled picture, may be null.
+     * @param size   {@link #SMALL_SIZE} or {@link #LARGE_SIZE}.
+     * @return The thumbnail, at most size x size.
+     */
+    private static Bitmap scaleToFit(Bitmap bitmap, int size) {
+        if (bitmap == null) return null;
+
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        if (width <= size && height <= size) return bitmap;
+
+        float scale = Math.min((float) size / width, (float) size / height);
+        Bitmap scaled = Bitmap.createScaledBitmap(bitmap,
+                Math.max(1, Math.round(width * scale)), Math.max(1, Math.round(height * scale)), true);
+        if (scaled != bitmap) bitmapPool.put(bitmap); // The sampled picture was never displayed
+        return scaled;
+    }
+
+    /**
+     * Checks whether both sizes of an entry are in the disk tier.
+     */
+    private static boolean isExtracted(Context context, String key) {
+        return getDiskCache(context, SMALL_SIZE).contains(key) && getDiskCache(context, LARGE_SIZE).contains(key);
+    }
+
+    /**
+     * Returns the disk tier of a thumbnail size, creating it on first use.
+     */
+    private static synchronized ThumbnailDiskCache getDiskCache(Context context, int size) {
+        if (smallDiskCache == null) {
+            File root = new File(context.getApplicationContext().getCacheDir(), "thumbnails");
+            smallDiskCache = new ThumbnailDiskCache(new File(root, "small"), SMALL_DISK_BYTES);
+            largeDiskCache = new ThumbnailDiskCache(new File(root, "large"), LARGE_DISK_BYTES);
+        }
+        return size == LARGE_SIZE ? largeDiskCache : smallDiskCache;
+    }
+
+    /**
+     * Builds the disk key of a song from its document id and last-modified time, so a modified
+     * file gets a new entry.
+     */
+    private static String diskKey(Song song) {
+        return diskKey(song.getStableId(), song.getLastModified());
+    }
+
+    private static String diskKey(long stableId, long lastModified) {
+        return Long.toHexString(stableId) + "_" + Long.toHexString(lastModified);
     }
 
     /**
-     * Decodes a bitmap from byte array with downsampling.
+     * Encodes a thumbnail for the disk tier.
+     *
+     * @param bitmap The thumbnail, may be null.
+     * @return The JPEG data, or null if there is no thumbnail.
+     */
+    private static byte[] encode(Bitmap bitmap) {
+        if (bitmap == null) return null;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8 * 1024);
+        bitmap.compress(Bitmap.CompressFormat.JPEG, DISK_QUALITY, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a bitmap from byte array with downsampling. The bitmap is decoded into a pooled
+     * bitmap when one is large enough, and is mutable so it can be pooled again if it is only
+     * needed for extraction.
      *
      * @param data      The raw image byte data.
      * @param reqWidth  The requested width.
@@ -210,12 +794,29 @@ public class ThumbnailLoader {
         BitmapFactory.Options options = new BitmapFactory.Options();
         options.inJustDecodeBounds = true;
         BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) return null;
 
         options.inSampleSize = calculateInSampleSize(options, reqWidth, reqHeight);
         options.inJustDecodeBounds = false;
+        options.inMutable = true;
 
+        // Decoders round sampled sizes differently, leave room for one extra row and column
+        int width = options.outWidth / options.inSampleSize + 1;
+        int height = options.outHeight / options.inSampleSize + 1;
+        options.inBitmap = bitmapPool.get(width * height * 4);
 
-        return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        try {
+            Bitmap bitmap = BitmapFactory.decodeByteArray(data, 0, data.length, options);
+            if (bitmap == null && options.inBitmap != null) {
+                bitmapPool.put(options.inBitmap);
+            }
+            return bitmap;
+        } catch (IllegalArgumentException e) {
+            // The pooled bitmap could not be reused, decode into a new one
+            bitmapPool.put(options.inBitmap);
+            options.inBitmap = null;
+            return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        }
     }
 
     /**
@@ -0,0 +1,98 @@
+package com.example.tunestacker2.MusicPlayer;
+
+import java.text.Collator;
+import java.util.Locale;
+
+
+/**
+ * Shared collation of song titles for alphabetical sorting.
+ * <p>
+ * Comparing two titles with a {@link Collator} re-collates both strings on every comparison.
+ * Instead, each title is turned into a binary sort key once, with a single shared collator, and
+ * sorts compare the keys byte by byte, which gives the same order. Keys carry over between sorts
+ * (they are cached on the {@link Song} and in the {@link SongTable}); when the default locale
+ * changes the generation is bumped and cached keys are recomputed on next use. The locale is
+ * checked once per sort and on configuration changes, not on every comparison.
+ */
+public final class TitleCollation {
+
+    // --- Data Members ---
+    private static Collator collator = null; // Guarded by the class, collators are not thread-safe
+    private static Locale collatorLocale = null;
+    private static volatile int generation = 0;
+
+
+    private TitleCollation() {
+        // Static utility class
+    }
+
+    /**
+     * Computes the sort key of a title, ignoring case and accents.
+     *
+     * @param title The title.
+     * @return The binary sort key.
+     */
+    public static synchronized byte[] sortKey(String title) {
+        if (collator == null) ensureCollator();
+        return collator.getCollationKey(title != null ? title : "").toByteArray();
+    }
+
+    /**
+     * Returns the generation of the sort keys, which changes whenever keys computed before
+     * can no longer be compared with new ones. A plain read, see {@link #checkLocale()}.
+     *
+     * @return The current generation.
+     */
+    public static int generation() {
+        return generation;
+    }
+
+    /**
+     * Switches to a collator for the current default locale if it changed, bumping the
+     * generation. Called once before a sort and when the configuration changes.
+     */
+    public static synchronized void checkLocale() {
+        ensureCollator();
+    }
+
+    /**
+     * Compares two sort keys.
+     *
+     * @param a The first key.
+     * @param b The second key.
+     * @return A negative, zero or positive value like a comparator.
+     */
+    public static int compare(byte[] a, byte[] b) {
+        return compare(a, 0, a.length, b, 0, b.length);
+    }
+
+    /**
+     * Compares two sort keys stored inside larger arrays.
+     *
+     * @param a       Array holding the first key.
+     * @param aStart  Offset of the first key.
+     * @param aLength Length of the first key.
+     * @param b       Array holding the second key.
+     * @param bStart  Offset of the second key.
+     * @param bLength Length of the second key.
+     * @return A negative, zero or positive value like a comparator.
+     */
+    public static int compare(byte[] a, int aStart, int aLength, byte[] b, int bStart, int bLength) {
+        int length = Math.min(aLength, bLength);
+        for (int i = 0; i < length; i++) {
+            int difference = (a[aStart + i] & 0xFF) - (b[bStart + i] & 0xFF);
+            if (difference != 0) return difference;
+        }
+        return aLength - bLength;
+    }
+
+    private static void ensureCollator() {
+        Locale locale = Locale.getDefault();
+        if (collator != null && locale.equals(collatorLocale)) return;
+
+        collator = Collator.getInstance(locale);
+        collator.setStrength(Collator.PRIMARY);
+        collatorLocale = locale;
+        generation++;
+    }
+}
@@ -17,13 +17,16 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.tunestacker2.Data.DataManager;
 import com.example.tunestacker2.MusicPlayer.Song;
+import com.example.tunestacker2.MusicPlayer.SongTable;
 import com.example.tunestacker2.MusicPlayer.ThumbnailLoader;
 import com.example.tunestacker2.R;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Set;
 
 public class LibraryAdapter extends RecyclerView.Adapter<LibraryAdapter.SongViewHolder> {
 
@@ -37,19 +40,102 @@ public class LibraryAdapter extends RecyclerView.Adapter<LibraryAdapter.SongView
         void onToggleSelection(int pos);
     }
 
+    private static final Object PAYLOAD_SELECTION = new Object(); // Rebinds only the checkbox and options button
+    private static final String DIFF_KEY = "library_rows";         // Latest-wins key of the row diffs
 
-    private final List<Song> songs;
+
+    // Displayed rows of the song table, in display order. Owned by the adapter, never modified.
+    private SongTable table = SongTable.EMPTY;
+    private int[] rows = new int[0];
+    private int rowCount = 0;
+    private int submitGeneration = 0; // Incremented per submission, so stale diffs are dropped
 
     private boolean isMultiSelectMode = false;
-    private final Set<Song> selectedSongUris = new HashSet<>();
+    private final BitSet selectedRows = new BitSet(); // Selected rows of the song table
 
     private final Context context;
     private final SongAdapterListener listener;
 
-    public LibraryAdapter(Context context, List<Song> songs, SongAdapterListener listener) {
+    public LibraryAdapter(Context context, SongAdapterListener listener) {
         this.context = context;
-        this.songs = songs;
         this.listener = listener;
+        setHasStableIds(true);
+    }
+
+    /**
+     * Displays new rows. The rows are copied, the difference to the displayed rows is computed on
+     * a background thread and only the inserted, removed and changed items are rebound. Until
+     * then, positions reported by the adapter still refer to the previously displayed rows.
+     *
+     * @param table    The song table the rows refer to.
+     * @param rows     The rows to display, in display order.
+     * @param rowCount Number of leading entries of the array to display.
+     */
+    public void submitSongs(SongTable table, int[] rows, int rowCount) {
+        int submission = ++submitGeneration;
+        SongTable oldTable = this.table;
+        int[] oldRows = this.rows;
+        int oldCount = this.rowCount;
+        int[] newRows = Arrays.copyOf(rows, rowCount);
+
+        DataManager.getInstance().diffAsync(DIFF_KEY,
+                () -> SongRowDiff.calculate(oldTable, oldRows, oldCount, table, newRows, rowCount),
+                diff -> {
+                    if (submission != submitGeneration) return;
+
+                    setSongs(table, newRows, rowCount);
+                    if (diff != null) {
+                        diff.dispatchUpdatesTo(this);
+                    } else {
+                        notifyDataSetChanged();
+                    }
+                });
+    }
+
+    /**
+     * Replaces the displayed rows. When the table changes, selected songs that are still in the
+     * new table stay selected.
+     *
+     * @param table    The song table the rows refer to.
+     * @param rows     The displayed rows, in display order.
+     * @param rowCount Number of leading entries of the array that are displayed.
+     */
+    private void setSongs(SongTable table, int[] rows, int rowCount) {
+        if (table != this.table && !selectedRows.isEmpty()) {
+            BitSet remapped = new BitSet();
+            for (int row = selectedRows.nextSetBit(0); row >= 0; row = selectedRows.nextSetBit(row + 1)) {
+                int newRow = table.findRow(this.table.getDocumentId(row));
+                if (newRow >= 0) remapped.set(newRow);
+            }
+            selectedRows.clear();
+            selectedRows.or(remapped);
+        }
+        this.table = table;
+        this.rows = rows;
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * Returns the song displayed at a position.
+     *
+     * @param position The adapter position.
+     * @return The song.
+     */
+    public Song getSong(int position) {
+        return table.getSong(rows[position]);
+    }
+
+    /**
+     * Returns the displayed songs.
+     *
+     * @return A new list of the songs, in display order.
+     */
+    public List<Song> getSongs() {
+        List<Song> songs = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            songs.add(table.getSong(rows[i]));
+        }
+        return songs;
     }
 
     public void setMultiSelectMode(boolean enabled) {
@@ -57,9 +143,9 @@ public class LibraryAdapter extends RecyclerView.Adapter<LibraryAdapter.SongView
 
         isMultiSelectMode = enabled;
         if (!enabled) {
-            selectedSongUris.clear();
+            selectedRows.clear();
         }
-        notifyDataSetChanged();
+        notifyItemRangeChanged(0, rowCount, PAYLOAD_SELECTION);
     }
 
     public boolean isMultiSelectMode() {
@@ -67,31 +153,39 @@ public class LibraryAdapter extends RecyclerView.Adapter<LibraryAdapter.SongView
     }
 
     public void toggleSelection(int position) {
-        if (position < 0 || position >= songs.size()) return;
+        if (position < 0 || position >= rowCount) return;
 
-        Song song = songs.get(position);
-        if (selectedSongUris.contains(song)) {
-            selectedSongUris.remove(song);
-        } else {
-            selectedSongUris.add(song);
-        }
-        notifyItemChanged(position);
+        selectedRows.flip(rows[position]);
+        notifyItemChanged(position, PAYLOAD_SELECTION);
     }
 
     public void selectAll() {
-        for (Song song : songs) {
-            selectedSongUris.add(song);
+        for (int i = 0; i < rowCount; i++) {
+            selectedRows.set(rows[i]);
         }
-        notifyDataSetChanged();
+        notifyItemRangeChanged(0, rowCount, PAYLOAD_SELECTION);
     }
 
     public void clearSelections() {
-        selectedSongUris.clear();
-        notifyDataSetChanged();
+        selectedRows.clear();
+        notifyItemRangeChanged(0, rowCount, PAYLOAD_SELECTION);
+    }
+
+    public int getSelectedCount() {
+        return selectedRows.cardinality();
     }
 
-    public Set<Song> getSelectedSongs() {
-        return selectedSongUris;
+    /**
+     * Returns the selected songs.
+     *
+     * @return A new list of the selected songs, in table order.
+     */
+    public List<Song> getSelectedSongs() {
+        List<Song> selected = new ArrayList<>(selectedRows.cardinality());
+        for (int row = selectedRows.nextSetBit(0); row >= 0; row = selectedRows.nextSetBit(row + 1)) {
+            selected.add(table.getSong(row));
+        }
+        return selected;
     }
 
 
@@ -104,34 +198,31 @@ public class LibraryAdapter extends RecyclerView.Adapter<LibraryAdapter.SongView
 
     @Override
     public void onBindViewHolder(@NonNull SongViewHolder holder, int position) {
-        Song song = songs.get(position);
+        int row = rows[position];
+        Song song = table.getSong(row);
         holder.songTitle.setText(song.getTitle());
 
         // Set placeholder first (important for recycling!)
+        cancelThumbnail(holder);
         holder.thumbnail.setImageResource(ThumbnailLoader.DEFAULT_THUMBNAIL);
 
         // Tag the view to track recycling
         holder.thumbnail.setTag(song.getAudioUri().toString());
 
-        // Show or hide the checkbox
-        holder.checkBox.setVisibility(isMultiSelectMode ? View.VISIBLE : View.GONE);
-        holder.checkBox.setChecked(selectedSongUris.contains(song));
-
-
-        // Hide options menu in selection mode
-        holder.optionsButton.setVisibility(isMultiSelectMode ? View.GONE : View.VISIBLE);
-
+        bindSelection(holder, row);
 
         // Load the thumbnail asynchronously
-        Bitmap img = ThumbnailLoader.loadThumbnailSync(song);
+        Bitmap img = ThumbnailLoader.acquireThumbnailSync(song);
         if (img != null) {
-            holder.thumbnail.setImageBitmap(img);
+            showThumbnail(holder, img);
         } else {
             holder.thumbnail.setImageResource(ThumbnailLoader.DEFAULT_THUMBNAIL);
-            ThumbnailLoader.loadThumbnailAsync(song, context.getApplicationContext(), bitmap -> {
+            holder.thumbnailRequest = ThumbnailLoader.acquireThumbnailAsync(song, context.getApplicationContext(), bitmap -> {
                 if (holder != null && holder.thumbnail != null &&
                         holder.thumbnail.getTag().equals(song.getAudioUri().toString())) {
-                    holder.thumbnail.setImageBitmap(bitmap);
+                    showThumbnail(holder, bitmap);
+                } else {
+                    ThumbnailLoader.releaseThumbnail(bitmap);
                 }
             });
         }
@@ -192,9 +283,67 @@ public class LibraryAdapter extends RecyclerView.Adapter<LibraryAdapter.SongView
     }
 
 
+    /**
+     * Partial bind for selection changes: updates the checkbox and options button without
+     * reloading the thumbnail or restarting the animation.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull SongViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        bindSelection(holder, rows[position]);
+    }
+
+    private void bindSelection(SongViewHolder holder, int row) {
+        // Show or hide the checkbox
+        holder.checkBox.setVisibility(isMultiSelectMode ? View.VISIBLE : View.GONE);
+        holder.checkBox.setChecked(selectedRows.get(row));
+
+        // Hide options menu in selection mode
+        holder.optionsButton.setVisibility(isMultiSelectMode ? View.GONE : View.VISIBLE);
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull SongViewHolder holder) {
+        super.onViewRecycled(holder);
+        cancelThumbnail(holder);
+    }
+
+    /**
+     * Cancels the thumbnail load of a row that no longer shows its song, and releases the
+     * thumbnail it displayed so the bitmap can be reused once it leaves the cache.
+     */
+    private static void cancelThumbnail(SongViewHolder holder) {
+        if (holder.thumbnailRequest != null) {
+            holder.thumbnailRequest.cancel();
+            holder.thumbnailRequest = null;
+        }
+        if (holder.thumbnailBitmap != null) {
+            holder.thumbnail.setImageResource(ThumbnailLoader.DEFAULT_THUMBNAIL);
+            ThumbnailLoader.releaseThumbnail(holder.thumbnailBitmap);
+            holder.thumbnailBitmap = null;
+        }
+    }
+
+    /**
+     * Displays an acquired thumbnail in a row, releasing the one it displayed before.
+     */
+    private static void showThumbnail(SongViewHolder holder, Bitmap bitmap) {
+        holder.thumbnail.setImageBitmap(bitmap);
+        if (holder.thumbnailBitmap != null) ThumbnailLoader.releaseThumbnail(holder.thumbnailBitmap);
+        holder.thumbnailBitmap = bitmap;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return table.getStableId(rows[position]);
+    }
+
     @Override
     public int getItemCount() {
-        return songs.size();
+        return rowCount;
     }
 
     /**
@@ -263,6 +412,8 @@ public class LibraryAdapter extends RecyclerView.Adapter<LibraryAdapter.SongView
         TextView songTitle;
         ImageButton optionsButton;
         CheckBox checkBox;
+        ThumbnailLoader.Request thumbnailRequest; // Pending thumbnail load of the bound song
+        Bitmap thumbnailBitmap;                   // Acquired thumbnail the row displays, released when rebound
 
         public SongViewHolder(@NonNull View itemView) {
             super(itemView);
@@ -42,13 +42,15 @@ import android.widget.Toast;
 import com.example.tunestacker2.Data.DataManager;
 import com.example.tunestacker2.Data.FileUtils;
 import com.example.tunestacker2.MusicPlayer.Song;
+import com.example.tunestacker2.MusicPlayer.SongSearchIndex;
+import com.example.tunestacker2.MusicPlayer.SongTable;
 import com.example.tunestacker2.R;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
-import java.text.Collator;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Locale;
 import java.util.Set;
 
 
@@ -89,6 +91,9 @@ public class LibraryFragment extends Fragment {
         void requestPlaylistRefresh(boolean freshRefresh);
     }
 
+    // --- Constants ---
+    private static final int SORT_BEST_MATCH = 3; // Sort id that ranks search results by match quality
+
     // --- Member Variables ---
 
     // UI Elements
@@ -103,11 +108,16 @@ public class LibraryFragment extends Fragment {
 
     // Adapters and Data
     private LibraryAdapter songAdapter;
-    private List<Song> fullSongList = new ArrayList<>();     // Holds all songs, unsorted initially, then sorted
-    private List<Song> filteredSongList = new ArrayList<>(); // Holds songs currently displayed after filtering
+    private SongTable songTable = SongTable.EMPTY; // Holds all songs of the library
+    private int[] sortedRows = new int[0];         // Rows of the table in sort order
+    private int sortedCount = 0;
+    private int[] visibleRows = new int[0];        // Rows currently displayed after filtering
+    private int visibleCount = 0;
 
     // State
-    private int selectedSortId = 0; // 0: Alpha, 1: Newest, 2: Oldest. Persisted via DataManager.Settings.
+    private int selectedSortId = 0; // 0: Alpha, 1: Newest, 2: Oldest, 3: Best match. Persisted via DataManager.Settings.
+    private int refreshGeneration = 0; // Incremented per refresh, so stale streamed chunks are dropped
+    private int searchGeneration = 0;  // Incremented per search, so stale search results are dropped
     private LibraryFragmentRequestsListener listener; // Listener for activity communication
     private final Handler handler = new Handler(Looper.getMainLooper());
     private Runnable hideRunnable;
@@ -230,13 +240,22 @@ public class LibraryFragment extends Fragment {
         recyclerView.setLayoutManager(new LinearLayoutManager(requireContext(), LinearLayoutManager.VERTICAL, false));
 
         // Create and set the adapter
-        songAdapter = new LibraryAdapter(requireContext(), filteredSongList, createSongAdapterListener());
+        songAdapter = new LibraryAdapter(requireContext(), createSongAdapterListener());
         recyclerView.setAdapter(songAdapter);
+        ThumbnailPrefetcher prefetcher = new ThumbnailPrefetcher(requireContext(), pos ->
+                pos >= 0 && pos < songAdapter.getItemCount() ? songAdapter.getSong(pos) : null, false);
 
-        // Scroll listener to show/hide button
+        // Scroll listener to show/hide button and prefetch thumbnails
         recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+                prefetcher.onScrollStateChanged(recyclerView, newState);
+            }
+
             @Override
             public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                prefetcher.onScrolled(recyclerView, dy);
+
                 LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
                 if (layoutManager != null) {
                     int firstVisiblePosition = layoutManager.findFirstVisibleItemPosition();
@@ -271,17 +290,17 @@ public class LibraryFragment extends Fragment {
         return new LibraryAdapter.SongAdapterListener() {
             @Override
             public void onSongDeleted(int pos) {
-                if (filteredSongList.isEmpty() || pos < 0 || pos >= filteredSongList.size() || getContext() == null) return;
+                if (pos < 0 || pos >= songAdapter.getItemCount() || getContext() == null) return;
 
                 Context context = getContext();
-                Song song = filteredSongList.get(pos);
+                Song song = songAdapter.getSong(pos);
+                int row = songTable.findRow(song);
 
                 // Delete the audio
                 boolean result = FileUtils.deleteFileUri(context.getApplicationContext(), song.getAudioUri());
                 if(result) {
-                    filteredSongList.remove(pos);
-                    songAdapter.notifyItemRemoved(pos);
-                    songAdapter.notifyItemRangeChanged(pos, filteredSongList.size());
+                    visibleCount = removeRow(visibleRows, visibleCount, row);
+                    songAdapter.submitSongs(songTable, visibleRows, visibleCount);
                     Toast.makeText(context, "Deleted: " + song.getTitle(), Toast.LENGTH_SHORT).show();
                     if(listener != null) listener.requestPlaylistRefresh(true);
                 }
@@ -290,15 +309,15 @@ public class LibraryFragment extends Fragment {
                 }
 
                 // If a song is deleted, it will also remove it from the full list
-                fullSongList.remove(song);
+                sortedCount = removeRow(sortedRows, sortedCount, row);
             }
 
             @Override
             public void onSongClicked(int pos) {
-                if(filteredSongList.isEmpty()) return;
+                if(songAdapter.getItemCount() == 0) return;
 
                 if (listener != null) {
-                    listener.onLaunchMediaPlayer(filteredSongList, pos, 1);
+                    listener.onLaunchMediaPlayer(songAdapter.getSongs(), pos, 1);
                 }
                 if (searchBar.isFocused()) {
                     hideKeyboard(searchBar);
@@ -307,20 +326,20 @@ public class LibraryFragment extends Fragment {
 
             @Override
             public void onSongAddPlaylist(int pos) {
-                if(filteredSongList.isEmpty() || pos < 0 || pos >= filteredSongList.size()) return;
+                if(pos < 0 || pos >= songAdapter.getItemCount()) return;
 
                 Log.d("LibraryFragment", "onSongAddPlaylist called");
                 List<Song> selectedSongs = new ArrayList<>();
-                selectedSongs.add(filteredSongList.get(pos));
+                selectedSongs.add(songAdapter.getSong(pos));
                 ShowPlaylistPickerDialog(selectedSongs);
             }
 
             @Override
             public void onSongCopy(int pos) {
-                if (filteredSongList.isEmpty() || pos < 0 || pos >= filteredSongList.size() || getContext() == null) return;
+                if (pos < 0 || pos >= songAdapter.getItemCount() || getContext() == null) return;
 
                 Context context = getContext();
-                Song song = filteredSongList.get(pos);
+                Song song = songAdapter.getSong(pos);
 
                 ClipboardManager clipboard = (ClipboardManager) context.getSystemService(Context.CLIPBOARD_SERVICE);
                 ClipData clip = ClipData.newPlainText("Song Title", song.getTitle());
@@ -331,10 +350,10 @@ public class LibraryFragment extends Fragment {
 
             @Override
             public void onSongShare(int pos) {
-                if (filteredSongList.isEmpty() || pos < 0 || pos >= filteredSongList.size() || getContext() == null) return;
+                if (pos < 0 || pos >= songAdapter.getItemCount() || getContext() == null) return;
 
                 Context context = getContext();
-                Song song = filteredSongList.get(pos);
+                Song song = songAdapter.getSong(pos);
 
                 Intent shareIntent = new Intent(Intent.ACTION_SEND);
                 shareIntent.setType("audio/*");
@@ -490,7 +509,7 @@ public class LibraryFragment extends Fragment {
         multiSelectMenuView.findViewById(R.id.btnDelete).setOnClickListener(v -> {
             if(songAdapter == null || multiSelectMenuView == null) return;
 
-            Set<Song> selected = songAdapter.getSelectedSongs();
+            List<Song> selected = songAdapter.getSelectedSongs();
             int count = selected.size();
             if (count == 0) return;
 
@@ -501,13 +520,12 @@ public class LibraryFragment extends Fragment {
         multiSelectMenuView.findViewById(R.id.btnPlay).setOnClickListener(v -> {
             if(songAdapter == null || multiSelectMenuView == null) return;
 
-            Set<Song> selected = songAdapter.getSelectedSongs();
+            List<Song> selected = songAdapter.getSelectedSongs();
             int count = selected.size();
             if (count == 0) return;
 
             if (listener != null) {
-                List<Song> songList = new ArrayList<>(selected);
-                listener.onLaunchMediaPlayer(songList, 0, 2);
+                listener.onLaunchMediaPlayer(selected, 0, 2);
             }
             if (searchBar.isFocused()) {
                 hideKeyboard(searchBar);
@@ -519,7 +537,7 @@ public class LibraryFragment extends Fragment {
         multiSelectMenuView.findViewById(R.id.btnAdd).setOnClickListener(v -> {
             if(songAdapter == null || multiSelectMenuView == null) return;
 
-            List<Song> selectedSongs = new ArrayList<>(songAdapter.getSelectedSongs());
+            List<Song> selectedSongs = songAdapter.getSelectedSongs();
             if(selectedSongs.isEmpty()) return;
 
             ShowPlaylistPickerDialog(selectedSongs);
@@ -555,7 +573,7 @@ public class LibraryFragment extends Fragment {
         if (multiSelectMenuView == null || songAdapter == null ||
                 !songAdapter.isMultiSelectMode() || multiSelectTextView == null) return;
 
-        int count = songAdapter.getSelectedSongs().size();
+        int count = songAdapter.getSelectedCount();
         multiSelectTextView.setText(count + " selected");
     }
 
@@ -623,9 +641,9 @@ public class LibraryFragment extends Fragment {
 
     /**
      * Displays a confirmation dialog before deleting multiple selected songs.
-     * @param songsToDelete The set of {@link Song} objects selected for deletion.
+     * @param songsToDelete The list of {@link Song} objects selected for deletion.
      */
-    private void OpenDeleteConfirmation(Set<Song> songsToDelete) {
+    private void OpenDeleteConfirmation(List<Song> songsToDelete) {
         if (!isAdded() || getContext() == null) return;
 
         // Inflate the confirmation dialog layout
@@ -681,13 +699,15 @@ public class LibraryFragment extends Fragment {
         final View[] dots = {
                 popupView.findViewById(R.id.dot_alpha),
                 popupView.findViewById(R.id.dot_newest),
-                popupView.findViewById(R.id.dot_oldest)
+                popupView.findViewById(R.id.dot_oldest),
+                popupView.findViewById(R.id.dot_best)
         };
         // Array of sort option buttons and their IDs
         final int[] optionIds = {
                 R.id.sort_alpha,
                 R.id.sort_newest,
-                R.id.sort_oldest
+                R.id.sort_oldest,
+                R.id.sort_best
         };
 
         // Hide all dots, then show the selected one
@@ -809,46 +829,203 @@ public class LibraryFragment extends Fragment {
     // --- Data Handling (Refresh, Sort, Filter) ---
 
     /**
-     * Sorts the {@link #fullSongList} based on the {@link #selectedSortId}.
+     * Sorts the rows of the {@link #songTable} based on the {@link #selectedSortId}.
      * Does not update the UI directly; {@link #applySearchFilter} should be called afterwards
-     * to update the displayed list ({@link #filteredSongList}) and notify the adapter.
+     * to update the displayed rows ({@link #visibleRows}) and notify the adapter.
      */
     private void applySort() {
+        sortedRows = songTable.allRows();
+        sortedCount = sortedRows.length;
+        SongTable.sort(sortedRows, sortedCount, getSortComparator());
+    }
+
+    /**
+     * Returns the row order matching the {@link #selectedSortId}.
+     * @return The comparator used to order the rows of the {@link #songTable}.
+     */
+    private SongTable.RowComparator getSortComparator() {
         switch (selectedSortId) {
-            case 0: fullSongList.sort(Song.ALPHABETICAL_COMPARATOR); break;
-            case 1: fullSongList.sort(Song.NEWEST_COMPARATOR); break;
-            case 2: fullSongList.sort(Song.OLDEST_COMPARATOR); break;
-            default: fullSongList.sort(Song.ALPHABETICAL_COMPARATOR); break;
+            case 1:
+            case SORT_BEST_MATCH: return songTable.newestFirst(); // Without a query, recency ranks first
+            case 2: return songTable.oldestFirst();
+            case 0:
+            default: return songTable.alphabetical();
         }
     }
 
     /**
-     * Filters the {@link #fullSongList} based on the provided query string and populates
-     * the {@link #filteredSongList} with the results.
-     * Notifies the {@link #songAdapter} that the data set has changed.
+     * Filters the sorted rows based on the provided query string and populates
+     * the {@link #visibleRows} with the results. Non-empty queries are answered by the search
+     * index on a background thread; a result is dropped if a newer search was started or the
+     * song table changed in the meantime.
      * @param query The search query string. If null or empty, displays all songs.
      */
     private void applySearchFilter(String query) {
-        filteredSongList.clear();
+        int search = ++searchGeneration;
         if (query == null || query.trim().isEmpty()) {
-            // If query is empty, show all songs (from the sorted full list)
-            filteredSongList.addAll(fullSongList);
-        } else {
-            // Otherwise, do string matching
-            Collator collator = Collator.getInstance(Locale.getDefault());
-            collator.setStrength(Collator.PRIMARY);
-
-            for (Song song : fullSongList) {
-                String title = song.getTitle();
-                if (collator.compare(title, query) == 0 || title.toLowerCase().contains(query.toLowerCase())) {
-                    filteredSongList.add(song);
-                }
+            // If query is empty, show all songs (in sort order)
+            showMatches(null);
+            return;
+        }
+
+        // Otherwise, search the index off the main thread
+        SongTable table = songTable;
+        if (selectedSortId == SORT_BEST_MATCH) {
+            DataManager.getInstance().rankSongsAsync(table, query, rankedRows -> {
+                if (!isAdded() || search != searchGeneration || table != songTable || rankedRows == null) return;
+
+                showRanked(rankedRows);
+            });
+            return;
+        }
+        DataManager.getInstance().searchSongsAsync(table, query, matches -> {
+            // A failed search keeps the displayed rows, null would show every song
+            if (!isAdded() || search != searchGeneration || table != songTable || matches == null) return;
+
+            showMatches(matches);
+        });
+    }
+
+    /**
+     * Displays the sorted rows that are part of a search result.
+     * Submits the rows to the {@link #songAdapter}, which rebinds only the items that changed.
+     * @param matches The matching rows of the {@link #songTable}, or null to display every row.
+     */
+    private void showMatches(BitSet matches) {
+        if (visibleRows.length < sortedCount) {
+            visibleRows = new int[sortedCount];
+        }
+        visibleCount = 0;
+        for (int i = 0; i < sortedCount; i++) {
+            int row = sortedRows[i];
+            if (matches == null || matches.get(row)) {
+                visibleRows[visibleCount++] = row;
             }
         }
         if (songAdapter != null) {
-            songAdapter.notifyDataSetChanged();
+            songAdapter.submitSongs(songTable, visibleRows, visibleCount);
         }
+    }
 
+    /**
+     * Displays ranked search results in rank order, leaving out rows that were deleted since
+     * the table was loaded.
+     * Submits the rows to the {@link #songAdapter}, which rebinds only the items that changed.
+     * @param rankedRows The matching rows of the {@link #songTable}, best match first.
+     */
+    private void showRanked(int[] rankedRows) {
+        BitSet present = new BitSet(songTable.size());
+        for (int i = 0; i < sortedCount; i++) {
+            present.set(sortedRows[i]);
+        }
+
+        if (visibleRows.length < rankedRows.length) {
+            visibleRows = new int[rankedRows.length];
+        }
+        visibleCount = 0;
+        for (int row : rankedRows) {
+            if (present.get(row)) visibleRows[visibleCount++] = row;
+        }
+        if (songAdapter != null) {
+            songAdapter.submitSongs(songTable, visibleRows, visibleCount);
+        }
+    }
+
+    /**
+     * Checks whether a song title matches the search query.
+     * @param title The title of the song to check.
+     * @param foldedQuery The search query folded by {@link SongSearchIndex#fold}, null or blank matches everything.
+     * @return True if the song should be displayed.
+     */
+    private boolean matchesQuery(String title, String foldedQuery) {
+        if (foldedQuery == null || foldedQuery.trim().isEmpty()) return true;
+
+        return SongSearchIndex.fold(title).contains(foldedQuery);
+    }
+
+    /**
+     * Merges a chunk of songs streamed from an ongoing directory scan into the
+     * {@link #songTable}, {@link #sortedRows} and {@link #visibleRows}, keeping the rows in sort order.
+     * The adapter finds the inserted rows by diffing.
+     * @param chunk The songs found since the previous chunk.
+     */
+    private void mergeSongChunk(List<Song> chunk) {
+        int firstNewRow = songTable.size();
+        songTable = songTable.withSongs(DataManager.Settings.GetAudioDirectory(), chunk);
+        sortedRows = Arrays.copyOf(sortedRows, songTable.size());
+        visibleRows = Arrays.copyOf(visibleRows, songTable.size());
+
+        SongTable.RowComparator comparator = getSortComparator();
+        int[] newRows = new int[chunk.size()];
+        for (int i = 0; i < newRows.length; i++) {
+            newRows[i] = firstNewRow + i;
+        }
+        SongTable.sort(newRows, newRows.length, comparator);
+
+        String query = searchBar != null && searchBar.getText() != null ? searchBar.getText().toString() : null;
+        String foldedQuery = query != null ? SongSearchIndex.fold(query) : null;
+
+        for (int row : newRows) {
+            sortedCount = insertRow(sortedRows, sortedCount, insertionPoint(sortedRows, sortedCount, row, comparator), row);
+            if (!matchesQuery(songTable.getTitle(row), foldedQuery)) continue;
+
+            int pos = insertionPoint(visibleRows, visibleCount, row, comparator);
+            visibleCount = insertRow(visibleRows, visibleCount, pos, row);
+        }
+        songAdapter.submitSongs(songTable, visibleRows, visibleCount);
+    }
+
+    /**
+     * Finds the index at which a row should be inserted to keep an array of rows sorted.
+     * @param rows The sorted rows.
+     * @param count The number of rows in use.
+     * @param row The row to insert.
+     * @param comparator The comparator the rows are sorted by.
+     * @return The index after any equal rows.
+     */
+    private static int insertionPoint(int[] rows, int count, int row, SongTable.RowComparator comparator) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparator.compare(rows[mid], row) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Inserts a row into an array of rows that has room for it.
+     * @param rows The rows.
+     * @param count The number of rows in use.
+     * @param index The index to insert at.
+     * @param row The row to insert.
+     * @return The new number of rows in use.
+     */
+    private static int insertRow(int[] rows, int count, int index, int row) {
+        System.arraycopy(rows, index, rows, index + 1, count - index);
+        rows[index] = row;
+        return count + 1;
+    }
+
+    /**
+     * Removes a row from an array of rows.
+     * @param rows The rows.
+     * @param count The number of rows in use.
+     * @param row The row to remove.
+     * @return The new number of rows in use.
+     */
+    private static int removeRow(int[] rows, int count, int row) {
+        for (int i = 0; i < count; i++) {
+            if (rows[i] == row) {
+                System.arraycopy(rows, i + 1, rows, i, count - i - 1);
+                return count - 1;
+            }
+        }
+        return count;
     }
 
     /**
@@ -867,12 +1044,24 @@ public class LibraryFragment extends Fragment {
             return;
         }
 
+        // Stream rows in while the directory is scanned if nothing is displayed yet
+        int generation = ++refreshGeneration;
+        boolean streamChunks = songTable.size() == 0;
+
         // Asynchronously fetch songs from the directory
-        DataManager.getInstance().getSongsInDirectoryAsync(updatedSongs -> {
-            if (!isAdded()) return;
+        DataManager.getInstance().getSongTableAsync(chunk -> {
+            if (!isAdded() || !streamChunks || generation != refreshGeneration || songAdapter == null) return;
+
+            mergeSongChunk(chunk);
+        }, table -> {
+            if (!isAdded() || generation != refreshGeneration) return;
+            if (table == null) {
+                // The scan failed, keep displaying the previous table
+                if (swipeRefreshLayout != null) swipeRefreshLayout.setRefreshing(false);
+                return;
+            }
 
-            fullSongList.clear();
-            fullSongList.addAll(updatedSongs);
+            songTable = table;
 
             applySort();
             if (searchBar != null && searchBar.getText() != null) {
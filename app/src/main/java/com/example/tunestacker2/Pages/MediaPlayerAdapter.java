@@ -23,6 +23,8 @@ public class MediaPlayerAdapter extends RecyclerView.Adapter<MediaPlayerAdapter.
         void onSongClicked(int pos);
     }
 
+    private static final Object PAYLOAD_SELECTION = new Object(); // Rebinds only the highlight
+
 
     private final List<Song> songs;
     private final Context context;
@@ -35,6 +37,7 @@ public class MediaPlayerAdapter extends RecyclerView.Adapter<MediaPlayerAdapter.
         this.songs = songs;
         this.listener = listener;
         this.selectedPosition = pos;
+        setHasStableIds(true);
     }
 
     public void selectSong(int position) {
@@ -45,8 +48,19 @@ public class MediaPlayerAdapter extends RecyclerView.Adapter<MediaPlayerAdapter.
         selectedPosition = position;
 
         // Only update the affected views
-        if (oldPosition != RecyclerView.NO_POSITION) notifyItemChanged(oldPosition);
-        notifyItemChanged(position);
+        if (oldPosition != RecyclerView.NO_POSITION) notifyItemChanged(oldPosition, PAYLOAD_SELECTION);
+        notifyItemChanged(position, PAYLOAD_SELECTION);
+    }
+
+    /**
+     * Rebinds every item after the songs were re-ordered in place, for example shuffled, and
+     * moves the highlight to the given position.
+     *
+     * @param position The position of the playing song.
+     */
+    public void songsReordered(int position) {
+        selectedPosition = position;
+        notifyDataSetChanged();
     }
 
 
@@ -66,15 +80,18 @@ public class MediaPlayerAdapter extends RecyclerView.Adapter<MediaPlayerAdapter.
         holder.thumbnail.setTag(song.getAudioUri().toString());
 
         // Set placeholder first (important for recycling!)
-        Bitmap img = ThumbnailLoader.loadThumbnailSync(song);
+        cancelThumbnail(holder);
+        Bitmap img = ThumbnailLoader.acquireThumbnailSync(song);
         if (img != null) {
-            holder.thumbnail.setImageBitmap(img);
+            showThumbnail(holder, img);
         } else {
             holder.thumbnail.setImageResource(ThumbnailLoader.DEFAULT_THUMBNAIL);
-            ThumbnailLoader.loadThumbnailAsync(song, context.getApplicationContext(), bitmap -> {
+            holder.thumbnailRequest = ThumbnailLoader.acquireThumbnailAsync(song, context.getApplicationContext(), bitmap -> {
                 if (holder != null && holder.thumbnail != null &&
                         holder.thumbnail.getTag().equals(song.getAudioUri().toString())) {
-                    holder.thumbnail.setImageBitmap(bitmap);
+                    showThumbnail(holder, bitmap);
+                } else {
+                    ThumbnailLoader.releaseThumbnail(bitmap);
                 }
             });
         }
@@ -88,6 +105,22 @@ public class MediaPlayerAdapter extends RecyclerView.Adapter<MediaPlayerAdapter.
             }
         });
 
+        bindSelection(holder, position);
+    }
+
+    /**
+     * Partial bind for selection changes: updates the highlight without reloading the thumbnail.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull SongViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        bindSelection(holder, position);
+    }
+
+    private void bindSelection(SongViewHolder holder, int position) {
         if (position == selectedPosition) {
             holder.itemView.setBackgroundResource(R.drawable.search_bar_background);
         }
@@ -96,6 +129,41 @@ public class MediaPlayerAdapter extends RecyclerView.Adapter<MediaPlayerAdapter.
         }
     }
 
+    @Override
+    public void onViewRecycled(@NonNull SongViewHolder holder) {
+        super.onViewRecycled(holder);
+        cancelThumbnail(holder);
+    }
+
+    /**
+     * Cancels the thumbnail load of a row that no longer shows its song, and releases the
+     * thumbnail it displayed so the bitmap can be reused once it leaves the cache.
+     */
+    private static void cancelThumbnail(SongViewHolder holder) {
+        if (holder.thumbnailRequest != null) {
+            holder.thumbnailRequest.cancel();
+            holder.thumbnailRequest = null;
+        }
+        if (holder.thumbnailBitmap != null) {
+            holder.thumbnail.setImageResource(ThumbnailLoader.DEFAULT_THUMBNAIL);
+            ThumbnailLoader.releaseThumbnail(holder.thumbnailBitmap);
+            holder.thumbnailBitmap = null;
+        }
+    }
+
+    /**
+     * Displays an acquired thumbnail in a row, releasing the one it displayed before.
+     */
+    private static void showThumbnail(SongViewHolder holder, Bitmap bitmap) {
+        holder.thumbnail.setImageBitmap(bitmap);
+        if (holder.thumbnailBitmap != null) ThumbnailLoader.releaseThumbnail(holder.thumbnailBitmap);
+        holder.thumbnailBitmap = bitmap;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return songs.get(position).getStableId();
+    }
 
     @Override
     public int getItemCount() {
@@ -105,6 +173,8 @@ public class MediaPlayerAdapter extends RecyclerView.Adapter<MediaPlayerAdapter.
     static class SongViewHolder extends RecyclerView.ViewHolder {
         ImageView thumbnail;
         TextView songTitle;
+        ThumbnailLoader.Request thumbnailRequest; // Pending thumbnail load of the bound song
+        Bitmap thumbnailBitmap;                   // Acquired thumbnail the row displays, released when rebound
 
         public SongViewHolder(@NonNull View itemView) {
             super(itemView);
@@ -537,7 +537,9 @@ public class MediaPlayerFragment extends Fragment {
 
     /**
      * Shuffles the `songList` in place, keeping the currently selected song at the top (index 0).
-     * Updates `currentSongIndex` to 0 and notifies the RecyclerView adapter.
+     * Updates `currentSongIndex` to 0 and notifies the RecyclerView adapter. Every position
+     * changes, so the whole list is rebound; the stable ids let the RecyclerView keep the view
+     * holders of the songs that stay on screen.
      */
     private void shufflePlaylist() {
         if (songList == null || songList.size() <= 1 || currentSongIndex < 0 || currentSongIndex >= songList.size()) {
@@ -555,7 +557,7 @@ public class MediaPlayerFragment extends Fragment {
         songList.addAll(temp);
 
         currentSongIndex = 0;
-        recyclerView.getAdapter().notifyDataSetChanged();
+        playerAdapter.songsReordered(currentSongIndex);
     }
 
     /**
@@ -53,12 +53,13 @@ public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.Playli
 
         // Tag the view to track recycling
         holder.songThumbnail.setTag(item.getTitle());
+        cancelThumbnail(holder);
 
         // Load the thumbnail asynchronously
         if (!songs.isEmpty()) {
             Song song = songs.get(0);
             holder.songThumbnail.setImageBitmap(ThumbnailLoader.loadThumbnailNonNullSync(song, context.getApplicationContext()));
-            ThumbnailLoader.loadLargeThumbnailAsync(song, context.getApplicationContext(), bitmap -> {
+            holder.thumbnailRequest = ThumbnailLoader.loadLargeThumbnailAsync(song, context.getApplicationContext(), bitmap -> {
                 if (holder != null && holder.songThumbnail != null &&
                         holder.songThumbnail.getTag().equals(item.getTitle())) {
                     holder.songThumbnail.setImageBitmap(bitmap);
@@ -99,10 +100,27 @@ public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.Playli
         return playlistList.size();
     }
 
+    @Override
+    public void onViewRecycled(@NonNull PlaylistViewHolder holder) {
+        super.onViewRecycled(holder);
+        cancelThumbnail(holder);
+    }
+
+    /**
+     * Cancels the thumbnail load of an item that no longer shows its playlist.
+     */
+    private static void cancelThumbnail(PlaylistViewHolder holder) {
+        if (holder.thumbnailRequest != null) {
+            holder.thumbnailRequest.cancel();
+            holder.thumbnailRequest = null;
+        }
+    }
+
     static class PlaylistViewHolder extends RecyclerView.ViewHolder {
         ShapeableImageView songThumbnail;
         TextView textTitle;
         TextView textSubtitle;
+        ThumbnailLoader.Request thumbnailRequest; // Pending thumbnail load of the first song
 
         public PlaylistViewHolder(@NonNull View itemView) {
             super(itemView);
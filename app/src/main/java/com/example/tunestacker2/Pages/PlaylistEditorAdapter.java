@@ -59,21 +59,24 @@ public class PlaylistEditorAdapter extends RecyclerView.Adapter<PlaylistEditorAd
         holder.songTitle.setText(song.getTitle());
 
         // Set placeholder first (important for recycling!)
+        cancelThumbnail(holder);
         holder.thumbnail.setImageResource(ThumbnailLoader.DEFAULT_THUMBNAIL);
 
         // Tag the view to track recycling
         holder.thumbnail.setTag(song.getAudioUri().toString());
 
         // Load the thumbnail asynchronously
-        Bitmap img = ThumbnailLoader.loadThumbnailSync(song);
+        Bitmap img = ThumbnailLoader.acquireThumbnailSync(song);
         if (img != null) {
-            holder.thumbnail.setImageBitmap(img);
+            showThumbnail(holder, img);
         } else {
             holder.thumbnail.setImageResource(ThumbnailLoader.DEFAULT_THUMBNAIL);
-            ThumbnailLoader.loadLargeThumbnailAsync(song, context.getApplicationContext(), bitmap -> {
+            holder.thumbnailRequest = ThumbnailLoader.acquireLargeThumbnailAsync(song, context.getApplicationContext(), bitmap -> {
                 if (holder != null && holder.thumbnail != null &&
                         holder.thumbnail.getTag().equals(song.getAudioUri().toString())) {
-                    holder.thumbnail.setImageBitmap(bitmap);
+                    showThumbnail(holder, bitmap);
+                } else {
+                    ThumbnailLoader.releaseThumbnail(bitmap);
                 }
             });
         }
@@ -116,6 +119,37 @@ public class PlaylistEditorAdapter extends RecyclerView.Adapter<PlaylistEditorAd
         return songs.size();
     }
 
+    @Override
+    public void onViewRecycled(@NonNull SongViewHolder holder) {
+        super.onViewRecycled(holder);
+        cancelThumbnail(holder);
+    }
+
+    /**
+     * Cancels the thumbnail load of a row that no longer shows its song, and releases the
+     * thumbnail it displayed so the bitmap can be reused once it leaves the cache.
+     */
+    private static void cancelThumbnail(SongViewHolder holder) {
+        if (holder.thumbnailRequest != null) {
+            holder.thumbnailRequest.cancel();
+            holder.thumbnailRequest = null;
+        }
+        if (holder.thumbnailBitmap != null) {
+            holder.thumbnail.setImageResource(ThumbnailLoader.DEFAULT_THUMBNAIL);
+            ThumbnailLoader.releaseThumbnail(holder.thumbnailBitmap);
+            holder.thumbnailBitmap = null;
+        }
+    }
+
+    /**
+     * Displays an acquired thumbnail in a row, releasing the one it displayed before.
+     */
+    private static void showThumbnail(SongViewHolder holder, Bitmap bitmap) {
+        holder.thumbnail.setImageBitmap(bitmap);
+        if (holder.thumbnailBitmap != null) ThumbnailLoader.releaseThumbnail(holder.thumbnailBitmap);
+        holder.thumbnailBitmap = bitmap;
+    }
+
     /**
      * Opens the options dialog for a song.
      * @param anchor
@@ -178,6 +212,8 @@ public class PlaylistEditorAdapter extends RecyclerView.Adapter<PlaylistEditorAd
         TextView songTitle;
         ImageButton optionsButton;
         CheckBox checkBox;
+        ThumbnailLoader.Request thumbnailRequest; // Pending thumbnail load of the bound song
+        Bitmap thumbnailBitmap;                   // Acquired thumbnail the row displays, released when rebound
 
         public SongViewHolder(@NonNull View itemView) {
             super(itemView);
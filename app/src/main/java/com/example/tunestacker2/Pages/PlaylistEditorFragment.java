@@ -360,11 +360,20 @@ public class PlaylistEditorFragment extends Fragment {
             }
         });
         playlistRecyclerView.setAdapter(adapter);
+        ThumbnailPrefetcher prefetcher = new ThumbnailPrefetcher(requireContext(), pos ->
+                pos >= 0 && pos < songList.size() ? songList.get(pos) : null, true);
 
-        // Scroll listener to show/hide button
+        // Scroll listener to show/hide button and prefetch thumbnails
         playlistRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+                prefetcher.onScrollStateChanged(recyclerView, newState);
+            }
+
             @Override
             public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                prefetcher.onScrolled(recyclerView, dy);
+
                 LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
                 if (layoutManager != null) {
                     int firstVisiblePosition = layoutManager.findFirstVisibleItemPosition();
@@ -7,6 +7,7 @@ import android.os.Bundle;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
@@ -53,6 +54,7 @@ public class PlaylistFragment extends Fragment {
 
     // --- Constants ---
     private static final int GRID_SPAN_COUNT = 2; // Number of columns in the playlist grid
+    private static final String DIFF_KEY = "playlist_list"; // Latest-wins key of the playlist diffs
 
     // --- UI Elements ---
     private SwipeRefreshLayout swipeRefreshLayout;
@@ -63,6 +65,8 @@ public class PlaylistFragment extends Fragment {
     // --- Adapters and Data ---
     private PlaylistAdapter playlistAdapter;
     private List<Playlist> playlistList = new ArrayList<>();
+    private List<Playlist> shownPlaylists = null; // Playlist state list currently displayed
+    private int applyGeneration = 0;              // Incremented per applied version, so stale diffs are dropped
 
     // --- Listener ---
     private PlaylistFragmentListener listener;
@@ -309,12 +313,84 @@ public class PlaylistFragment extends Fragment {
                 return;
             }
 
-            playlistList.clear();
-            playlistList.addAll(playlists);
-            playlistList.sort(Playlist.LATEST_COMPARATOR);
-            playlistAdapter.notifyDataSetChanged();
+            // State lists are immutable, the same list means nothing changed
+            if (playlists != shownPlaylists) {
+                shownPlaylists = playlists;
+                applyPlaylists(playlists);
+            }
 
             if(swipeRefreshLayout != null) swipeRefreshLayout.setRefreshing(false);
         });
     }
+
+    /**
+     * Displays a new version of the playlists, only rebinding the items that changed.
+     * Edited playlists are new instances, so unchanged items are found by identity.
+     * The diff is computed on a background thread; a diff is dropped if a newer version was
+     * applied in the meantime.
+     *
+     * @param playlists The playlists of the current playlist state.
+     */
+    private void applyPlaylists(List<Playlist> playlists) {
+        int apply = ++applyGeneration;
+        List<Playlist> oldList = new ArrayList<>(playlistList);
+        List<Playlist> newList = new ArrayList<>(playlists);
+
+        DataManager.getInstance().diffAsync(DIFF_KEY, () -> {
+            newList.sort(Playlist.LATEST_COMPARATOR);
+            return calculatePlaylistDiff(oldList, newList);
+        }, diff -> {
+            if (apply != applyGeneration || playlistAdapter == null) return;
+
+            playlistList.clear();
+            playlistList.addAll(newList);
+            if (diff != null) {
+                diff.dispatchUpdatesTo(playlistAdapter);
+            } else {
+                playlistAdapter.notifyDataSetChanged();
+            }
+        });
+    }
+
+    /**
+     * Computes the difference between two versions of the playlists.
+     *
+     * @param oldList The displayed playlists.
+     * @param newList The playlists to display.
+     * @return The diff.
+     */
+    private static DiffUtil.DiffResult calculatePlaylistDiff(List<Playlist> oldList, List<Playlist> newList) {
+        return DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldList.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newList.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPos, int newPos) {
+                Playlist oldItem = oldList.get(oldPos);
+                Playlist newItem = newList.get(newPos);
+                if (oldItem == newItem) return true;
+                if (oldItem.getJsonUri() != null) return oldItem.getJsonUri().equals(newItem.getJsonUri());
+                return oldItem.getTitle().equals(newItem.getTitle());
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPos, int newPos) {
+                Playlist oldItem = oldList.get(oldPos);
+                Playlist newItem = newList.get(newPos);
+                if (oldItem == newItem) return true;
+
+                // A reload builds new instances, compare what the item displays
+                return oldItem.getTitle().equals(newItem.getTitle())
+                        && oldItem.getSongs().size() == newItem.getSongs().size()
+                        && (oldItem.getSongs().isEmpty() || oldItem.getSongs().get(0).equals(newItem.getSongs().get(0)));
+            }
+        });
+    }
 }
\ No newline at end of file
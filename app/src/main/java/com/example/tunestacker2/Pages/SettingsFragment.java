@@ -20,19 +20,23 @@ import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.Spinner;
+import android.widget.TextView;
 
 import com.example.tunestacker2.Data.DataManager;
+import com.example.tunestacker2.Data.ThumbnailPreloader;
 import com.example.tunestacker2.R;
 import com.google.android.material.materialswitch.MaterialSwitch;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * A {@link Fragment} subclass responsible for displaying and managing application settings.
  * This includes selecting the audio download directory, choosing the file format,
- * toggling thumbnail embedding, managing auto-updates, and forcing library updates.
+ * toggling thumbnail embedding, managing auto-updates, and forcing library updates. It also shows
+ * the progress of the thumbnail pre-extraction.
  *
  * Activities containing this fragment must implement the {@link UpdateRequestListener} interface
  * to handle update requests and directory changes triggered by this fragment.
@@ -64,6 +68,7 @@ public class SettingsFragment extends Fragment {
     private MaterialSwitch embedMetadataSwitch;
     private MaterialSwitch autoUpdateSwitch;
     private Button forceUpdateButton;
+    private TextView thumbnailPreloadText;
 
     // Activity Result Launcher
     private ActivityResultLauncher<Intent> openDirectoryLauncher;
@@ -74,6 +79,9 @@ public class SettingsFragment extends Fragment {
     // Listener interface for communicating events back to the hosting Activity.
     private SettingsFragment.UpdateRequestListener listener;
 
+    // Shows the progress of the thumbnail pre-extraction while the fragment is visible
+    private final ThumbnailPreloader.PreloadListener preloadListener = this::displayPreloadProgress;
+
 
     /**
      * Required empty public constructor for Fragment instantiation.
@@ -130,6 +138,18 @@ public class SettingsFragment extends Fragment {
         setupInitialSettingsAndListeners();
     }
 
+    @Override
+    public void onStart() {
+        super.onStart();
+        DataManager.getInstance().addThumbnailPreloadListener(preloadListener);
+    }
+
+    @Override
+    public void onStop() {
+        super.onStop();
+        DataManager.getInstance().removeThumbnailPreloadListener(preloadListener);
+    }
+
     /**
      * Called when the fragment is being detached from its Activity.
      * Cleans up the listener reference to avoid memory leaks.
@@ -154,6 +174,7 @@ public class SettingsFragment extends Fragment {
         embedMetadataSwitch = view.findViewById(R.id.embedMetadataSwitch);
         forceUpdateButton = view.findViewById(R.id.forceUpdateButton);
         autoUpdateSwitch = view.findViewById(R.id.autoUpdateSwitch);
+        thumbnailPreloadText = view.findViewById(R.id.thumbnailPreloadText);
     }
 
     /**
@@ -288,4 +309,26 @@ public class SettingsFragment extends Fragment {
         }
         pickDirectoryButton.setText(uri.toString());
     }
+
+    /**
+     * Updates the thumbnail status text with the progress of the pre-extraction.
+     *
+     * @param processed      Songs handled so far.
+     * @param total          Songs that needed their thumbnails extracted.
+     * @param songsPerSecond Extraction throughput since the job started.
+     * @param paused         True while the job waits for the battery or charger.
+     */
+    private void displayPreloadProgress(int processed, int total, float songsPerSecond, boolean paused) {
+        if (thumbnailPreloadText == null) return;
+
+        if (processed >= total) {
+            thumbnailPreloadText.setText("Up to date");
+        } else if (paused) {
+            thumbnailPreloadText.setText(String.format(Locale.getDefault(),
+                    "%d / %d, waiting for charger", processed, total));
+        } else {
+            thumbnailPreloadText.setText(String.format(Locale.getDefault(),
+                    "%d / %d (%.1f songs/s)", processed, total, songsPerSecond));
+        }
+    }
 }
\ No newline at end of file
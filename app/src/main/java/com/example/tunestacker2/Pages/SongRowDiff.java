@@ -0,0 +1,208 @@
+package com.example.tunestacker2.Pages;
+
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.tunestacker2.MusicPlayer.SongTable;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+
+/**
+ * Difference between two displayed lists of song table rows, computed on a background thread
+ * and dispatched to an adapter as item range notifications.
+ * <p>
+ * Filtering, streaming scan chunks and deleting songs never re-order the rows both lists share,
+ * so in the common case the diff is found in a single linear pass: shared rows stay, the other old
+ * rows are removed and the other new rows are inserted. Only re-ordered lists fall back to
+ * {@link DiffUtil}, and lists too large for it (a re-sort of the whole library) are reloaded.
+ */
+final class SongRowDiff {
+
+    // --- Constants ---
+    private static final int DIFF_UTIL_LIMIT = 4000; // Largest old + new size diffed with DiffUtil
+    private static final int INSERT = 0;
+    private static final int REMOVE = 1;
+    private static final int CHANGE = 2;
+
+    // --- Data Members ---
+    private int[] ops = new int[24]; // (type, position, count) triples, in dispatch order
+    private int opCount = 0;
+    private DiffUtil.DiffResult diffResult = null;
+    private boolean reload = false;
+
+
+    private SongRowDiff() {
+    }
+
+    /**
+     * Computes the updates that turn the old rows into the new rows. Rows of different tables are
+     * matched by document id.
+     *
+     * @param oldTable The table of the old rows.
+     * @param oldRows  The old rows, in display order.
+     * @param oldCount The number of old rows.
+     * @param newTable The table of the new rows.
+     * @param newRows  The new rows, in display order.
+     * @param newCount The number of new rows.
+     * @return The diff.
+     */
+    static SongRowDiff calculate(SongTable oldTable, int[] oldRows, int oldCount,
+                                 SongTable newTable, int[] newRows, int newCount) {
+        SongRowDiff diff = new SongRowDiff();
+
+        // Old rows as rows of the new table, -1 if the song is gone
+        boolean sameRows = newTable.extendsTable(oldTable);
+        int[] oldInNew = new int[oldCount];
+        for (int i = 0; i < oldCount; i++) {
+            oldInNew[i] = sameRows ? oldRows[i] : newTable.findRow(oldTable.getDocumentId(oldRows[i]));
+        }
+
+        int[] newPosition = new int[newTable.size()];
+        Arrays.fill(newPosition, -1);
+        for (int j = 0; j < newCount; j++) {
+            newPosition[newRows[j]] = j;
+        }
+        BitSet inOld = new BitSet(newTable.size());
+        int last = -1;
+        boolean ordered = true;
+        for (int i = 0; i < oldCount; i++) {
+            int row = oldInNew[i];
+            if (row < 0) continue;
+            inOld.set(row);
+
+            int position = newPosition[row];
+            if (position < 0) continue;
+            if (position < last) ordered = false;
+            last = position;
+        }
+
+        if (ordered) {
+            diff.linearDiff(oldTable, oldRows, oldCount, oldInNew, newTable, newRows, newCount, newPosition, inOld);
+        } else if (oldCount + newCount <= DIFF_UTIL_LIMIT) {
+            diff.diffResult = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+                @Override
+                public int getOldListSize() {
+                    return oldCount;
+                }
+
+                @Override
+                public int getNewListSize() {
+                    return newCount;
+                }
+
+                @Override
+                public boolean areItemsTheSame(int oldPos, int newPos) {
+                    return oldInNew[oldPos] == newRows[newPos];
+                }
+
+                @Override
+                public boolean areContentsTheSame(int oldPos, int newPos) {
+                    return newTable.sameContents(newRows[newPos], oldTable, oldRows[oldPos]);
+                }
+            }, false);
+        } else {
+            diff.reload = true;
+        }
+        return diff;
+    }
+
+    /**
+     * Notifies an adapter of the updates. The adapter must already display the new rows.
+     *
+     * @param adapter The adapter.
+     */
+    void dispatchUpdatesTo(RecyclerView.Adapter<?> adapter) {
+        if (reload) {
+            adapter.notifyDataSetChanged();
+            return;
+        }
+        dispatchUpdatesTo(new AdapterListUpdateCallback(adapter));
+    }
+
+    /**
+     * Reports the updates as item ranges. Has nothing to report if the lists have to be
+     * reloaded, see {@link #isReload()}.
+     *
+     * @param callback The callback receiving the updates in order.
+     */
+    void dispatchUpdatesTo(ListUpdateCallback callback) {
+        if (reload) return;
+        if (diffResult != null) {
+            diffResult.dispatchUpdatesTo(callback);
+            return;
+        }
+
+        for (int i = 0; i < opCount; i += 3) {
+            int position = ops[i + 1];
+            int count = ops[i + 2];
+            switch (ops[i]) {
+                case INSERT: callback.onInserted(position, count); break;
+                case REMOVE: callback.onRemoved(position, count); break;
+                case CHANGE: callback.onChanged(position, count, null); break;
+            }
+        }
+    }
+
+    /**
+     * @return True if the lists differ too much to diff and the whole list has to be reloaded.
+     */
+    boolean isReload() {
+        return reload;
+    }
+
+    // --- Helper Methods ---
+
+    /**
+     * Walks both lists once. The shared rows are in the same order in both lists, so the k-th
+     * shared old row is the k-th shared new row.
+     */
+    private void linearDiff(SongTable oldTable, int[] oldRows, int oldCount, int[] oldInNew,
+                            SongTable newTable, int[] newRows, int newCount, int[] newPosition, BitSet inOld) {
+        int i = 0;
+        int j = 0;
+        int position = 0; // Position in the list as updated so far
+        while (i < oldCount || j < newCount) {
+            if (i < oldCount && (oldInNew[i] < 0 || newPosition[oldInNew[i]] < 0)) {
+                add(REMOVE, position);
+                i++;
+            } else if (j < newCount && !inOld.get(newRows[j])) {
+                add(INSERT, position);
+                position++;
+                j++;
+            } else {
+                if (!newTable.sameContents(newRows[j], oldTable, oldRows[i])) {
+                    add(CHANGE, position);
+                }
+                position++;
+                i++;
+                j++;
+            }
+        }
+    }
+
+    /**
+     * Records a single-item update, merging it into the previous update if they form a range.
+     */
+    private void add(int type, int position) {
+        if (opCount > 0 && ops[opCount - 3] == type) {
+            int start = ops[opCount - 2];
+            int count = ops[opCount - 1];
+            // Removals repeat the same position, insertions and changes advance it
+            if ((type == REMOVE && position == start) || (type != REMOVE && position == start + count)) {
+                ops[opCount - 1] = count + 1;
+                return;
+            }
+        }
+
+        if (opCount + 3 > ops.length) {
+            ops = Arrays.copyOf(ops, ops.length * 2);
+        }
+        ops[opCount++] = type;
+        ops[opCount++] = position;
+        ops[opCount++] = 1;
+    }
+}
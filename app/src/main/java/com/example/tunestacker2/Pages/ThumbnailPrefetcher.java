@@ -0,0 +1,131 @@
+package com.example.tunestacker2.Pages;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.tunestacker2.MusicPlayer.Song;
+import com.example.tunestacker2.MusicPlayer.ThumbnailLoader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+
+/**
+ * Loads the thumbnails of the rows a list is scrolling towards before they are bound.
+ * <p>
+ * Fed from the scroll listener of a RecyclerView with a {@link LinearLayoutManager}. The scroll
+ * velocity is smoothed over the last frames and turned into the number of rows that will come
+ * into view within {@link #LOOKAHEAD_MS}; those rows are handed to
+ * {@link ThumbnailLoader#prefetchThumbnails}, nearest first. During a fast fling the rows that
+ * will be on screen when it stops are not known yet, so nothing is prefetched until the list
+ * slows down or settles.
+ */
+public class ThumbnailPrefetcher {
+
+    // --- Constants ---
+    private static final long LOOKAHEAD_MS = 600;          // How far ahead in time to prefetch
+    private static final int MIN_AHEAD = 4;                // Rows prefetched while scrolling slowly or settled
+    private static final int MAX_AHEAD = 24;
+    private static final float FLING_ROWS_PER_SECOND = 40; // Faster scrolling is throttled
+    private static final float SMOOTHING = 0.3f;           // Weight of the newest frame in the velocity
+
+    // --- Data Members ---
+    private final Context context;
+    private final IntFunction<Song> songAt;
+    private final boolean large;
+    private float velocity = 0;     // Pixels per millisecond, positive when scrolling down
+    private long lastScrollTime = 0;
+    private int direction = 1;
+    private int prefetchedFrom = -1; // Range of positions of the latest prefetch
+    private int prefetchedTo = -1;
+    private int prefetchedCount = -1; // Item count at the latest prefetch, positions change with it
+
+
+    /**
+     * @param context The context used to load thumbnails.
+     * @param songAt  Returns the song at an adapter position.
+     * @param large   Whether the list shows the 256x256 instead of the 64x64 thumbnails.
+     */
+    public ThumbnailPrefetcher(Context context, IntFunction<Song> songAt, boolean large) {
+        this.context = context.getApplicationContext();
+        this.songAt = songAt;
+        this.large = large;
+    }
+
+    /**
+     * Call from {@link RecyclerView.OnScrollListener#onScrolled}.
+     *
+     * @param recyclerView The scrolled list.
+     * @param dy           The vertical scroll amount.
+     */
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dy) {
+        if (dy == 0) return;
+
+        long now = SystemClock.uptimeMillis();
+        long elapsed = Math.max(1, now - lastScrollTime);
+        float instant = dy / (float) elapsed;
+        velocity = elapsed > 100 ? instant : velocity + (instant - velocity) * SMOOTHING;
+        lastScrollTime = now;
+        direction = dy > 0 ? 1 : -1;
+
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        if (layoutManager == null) return;
+
+        int first = layoutManager.findFirstVisibleItemPosition();
+        View firstView = first != RecyclerView.NO_POSITION ? layoutManager.findViewByPosition(first) : null;
+        if (firstView == null || firstView.getHeight() == 0) return;
+
+        float rowsPerSecond = Math.abs(velocity) * 1000 / firstView.getHeight();
+        if (rowsPerSecond > FLING_ROWS_PER_SECOND) return;
+
+        int ahead = Math.round(rowsPerSecond * LOOKAHEAD_MS / 1000);
+        prefetch(layoutManager, Math.max(MIN_AHEAD, Math.min(MAX_AHEAD, ahead)));
+    }
+
+    /**
+     * Call from {@link RecyclerView.OnScrollListener#onScrollStateChanged}.
+     *
+     * @param recyclerView The scrolled list.
+     * @param newState     The new scroll state.
+     */
+    public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+        if (newState != RecyclerView.SCROLL_STATE_IDLE) return;
+
+        // Settled, warm the next rows in the direction the user was going
+        velocity = 0;
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        if (layoutManager != null) prefetch(layoutManager, MIN_AHEAD);
+    }
+
+    /**
+     * Prefetches the rows just outside the visible ones in the scroll direction, unless the
+     * latest prefetch already covers them.
+     */
+    private void prefetch(LinearLayoutManager layoutManager, int ahead) {
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        int count = layoutManager.getItemCount();
+        if (first == RecyclerView.NO_POSITION || last == RecyclerView.NO_POSITION) return;
+
+        int from = direction > 0 ? last + 1 : Math.max(0, first - ahead);
+        int to = direction > 0 ? Math.min(count - 1, last + ahead) : first - 1;
+        if (from > to) return;
+        if (count == prefetchedCount && from >= prefetchedFrom && to <= prefetchedTo) return;
+        prefetchedFrom = from;
+        prefetchedTo = to;
+        prefetchedCount = count;
+
+        List<Song> songs = new ArrayList<>(to - from + 1);
+        for (int i = 0; i <= to - from; i++) {
+            Song song = songAt.apply(direction > 0 ? from + i : to - i);
+            if (song != null) songs.add(song);
+        }
+        ThumbnailLoader.prefetchThumbnails(songs, context, large);
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.tunestacker2.Data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of {@link PlaylistChange}: detecting the edit between two playlist versions
+ * and applying it again.
+ */
+public class PlaylistChangeTest {
+
+    private static PlaylistCodec.Decoded version(long lastPlayed, String... songNames) {
+        return new PlaylistCodec.Decoded("Mix", lastPlayed, new ArrayList<>(Arrays.asList(songNames)));
+    }
+
+    private static PlaylistChange assertReplays(PlaylistCodec.Decoded before, PlaylistCodec.Decoded after) {
+        PlaylistChange change = PlaylistChange.between(before, after);
+        assertNotNull(change);
+
+        PlaylistCodec.Decoded replayed = change.applyTo(before);
+        assertNotNull(replayed);
+        assertEquals(after.name, replayed.name);
+        assertEquals(after.lastPlayed, replayed.lastPlayed);
+        assertEquals(after.songNames, replayed.songNames);
+        return change;
+    }
+
+    @Test
+    public void between_onlyTimeChanged() {
+        PlaylistChange change = assertReplays(version(1, "a", "b"), version(2, "a", "b"));
+
+        assertEquals(PlaylistChange.NONE, change.type);
+    }
+
+    @Test
+    public void between_appendedSongsOnlyRecordTheNewSongs() {
+        PlaylistChange change = assertReplays(version(1, "a", "b"), version(1, "a", "b", "c", "d"));
+
+        assertEquals(PlaylistChange.APPEND, change.type);
+        assertEquals(Arrays.asList("c", "d"), change.songNames);
+        assertReplays(version(1), version(1, "a"));
+    }
+
+    @Test
+    public void between_removedSongIsRecordedByPosition() {
+        PlaylistChange first = assertReplays(version(1, "a", "b", "c"), version(1, "b", "c"));
+        PlaylistChange middle = assertReplays(version(1, "a", "b", "c"), version(1, "a", "c"));
+        PlaylistChange last = assertReplays(version(1, "a", "b", "c"), version(1, "a", "b"));
+
+        assertEquals(PlaylistChange.REMOVE, first.type);
+        assertEquals(0, first.from);
+        assertEquals(1, middle.from);
+        assertEquals(2, last.from);
+        assertTrue(middle.songNames.isEmpty());
+    }
+
+    @Test
+    public void between_removedDuplicateSongReplays() {
+        assertReplays(version(1, "a", "a", "a"), version(1, "a", "a"));
+        assertReplays(version(1, "a", "b", "a", "b"), version(1, "a", "b", "b"));
+    }
+
+    @Test
+    public void between_movedSongIsRecordedByPositions() {
+        PlaylistChange down = assertReplays(version(1, "a", "b", "c", "d"), version(1, "b", "c", "a", "d"));
+        PlaylistChange up = assertReplays(version(1, "a", "b", "c", "d"), version(1, "a", "d", "b", "c"));
+
+        assertEquals(PlaylistChange.MOVE, down.type);
+        assertEquals(0, down.from);
+        assertEquals(2, down.to);
+        assertEquals(PlaylistChange.MOVE, up.type);
+        assertEquals(3, up.from);
+        assertEquals(1, up.to);
+    }
+
+    @Test
+    public void between_otherEditsReplaceTheList() {
+        PlaylistChange change = assertReplays(version(1, "a", "b", "c"), version(1, "c", "x"));
+
+        assertEquals(PlaylistChange.REPLACE, change.type);
+        assertEquals(Arrays.asList("c", "x"), change.songNames);
+    }
+
+    @Test
+    public void between_renameIsNotAChange() {
+        PlaylistCodec.Decoded renamed = new PlaylistCodec.Decoded("Other", 1, Collections.singletonList("a"));
+
+        assertNull(PlaylistChange.between(version(1, "a"), renamed));
+    }
+
+    @Test
+    public void applyTo_rejectsChangesThatDoNotFit() {
+        PlaylistChange remove = PlaylistChange.between(version(1, "a", "b", "c"), version(1, "a", "b"));
+        PlaylistChange move = PlaylistChange.between(version(1, "a", "b", "c"), version(1, "b", "c", "a"));
+
+        assertNull(remove.applyTo(version(1, "a")));
+        assertNull(move.applyTo(version(1, "a", "b")));
+    }
+
+    @Test
+    public void between_randomEditsReplay() {
+        Random random = new Random(7);
+        List<String> songs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) songs.add("song" + random.nextInt(10));
+
+        for (int step = 0; step < 2000; step++) {
+            PlaylistCodec.Decoded before = new PlaylistCodec.Decoded("Mix", step, new ArrayList<>(songs));
+            switch (random.nextInt(4)) {
+                case 0:
+                    songs.add("song" + random.nextInt(10));
+                    break;
+                case 1:
+                    if (!songs.isEmpty()) songs.remove(random.nextInt(songs.size()));
+                    break;
+                case 2:
+                    if (!songs.isEmpty()) songs.add(random.nextInt(songs.size()), songs.remove(random.nextInt(songs.size())));
+                    break;
+                default:
+                    Collections.shuffle(songs, random);
+                    break;
+            }
+            assertReplays(before, new PlaylistCodec.Decoded("Mix", step + 1, new ArrayList<>(songs)));
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.tunestacker2.Data;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of {@link PlaylistCodec}: encoding and decoding playlist documents.
+ */
+public class PlaylistCodecTest {
+
+    private static PlaylistCodec.Decoded roundTrip(PlaylistCodec.Decoded contents) throws IOException {
+        StringWriter out = new StringWriter();
+        PlaylistCodec.encode(out, contents);
+        return PlaylistCodec.decode(new StringReader(out.toString()));
+    }
+
+    private static void assertSameContents(PlaylistCodec.Decoded expected, PlaylistCodec.Decoded actual) {
+        assertNotNull(actual);
+        assertEquals(expected.name, actual.name);
+        assertEquals(expected.lastPlayed, actual.lastPlayed);
+        assertEquals(expected.songNames, actual.songNames);
+    }
+
+    @Test
+    public void roundTrip_keepsNameTimeAndSongOrder() throws IOException {
+        PlaylistCodec.Decoded contents = new PlaylistCodec.Decoded("Road Trip", 1700000000123L,
+                Arrays.asList("Song B", "Song A", "Song C"));
+
+        assertSameContents(contents, roundTrip(contents));
+    }
+
+    @Test
+    public void roundTrip_keepsEmptyPlaylists() throws IOException {
+        PlaylistCodec.Decoded contents = new PlaylistCodec.Decoded("Empty", 0, Collections.emptyList());
+
+        assertSameContents(contents, roundTrip(contents));
+    }
+
+    @Test
+    public void roundTrip_keepsSpecialCharacters() throws IOException {
+        PlaylistCodec.Decoded contents = new PlaylistCodec.Decoded("Ünïcode \"quoted\" <tag> & more", Long.MAX_VALUE,
+                Arrays.asList("Back\\slash", "Line\nbreak", "日本語", "Emoji 🎵"));
+
+        assertSameContents(contents, roundTrip(contents));
+    }
+
+    @Test
+    public void roundTrip_keepsLargePlaylists() throws IOException {
+        List<String> songNames = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) songNames.add("Song " + i);
+        PlaylistCodec.Decoded contents = new PlaylistCodec.Decoded("Large", 42, songNames);
+
+        assertSameContents(contents, roundTrip(contents));
+    }
+
+    @Test
+    public void decode_acceptsAnyFieldOrderAndSkipsUnknownFields() throws IOException {
+        String json = "{\"songs\": [\" Padded \", 7, true], \"extra\": {\"nested\": [1, 2]},"
+                + " \"lastPlayed\": 99, \"name\": \"Mixed\"}";
+
+        PlaylistCodec.Decoded decoded = PlaylistCodec.decode(new StringReader(json));
+
+        assertSameContents(new PlaylistCodec.Decoded("Mixed", 99, Arrays.asList("Padded", "7", "true")), decoded);
+    }
+
+    @Test
+    public void decode_rejectsDocumentsThatAreNotPlaylists() throws IOException {
+        assertNull(PlaylistCodec.decode(new StringReader("[1, 2, 3]")));
+        assertNull(PlaylistCodec.decode(new StringReader("{\"name\": \"No songs\", \"lastPlayed\": 1}")));
+        assertNull(PlaylistCodec.decode(new StringReader("{\"name\": \"Bad\", \"lastPlayed\": 1, \"songs\": \"x\"}")));
+        assertNull(PlaylistCodec.decode(new StringReader("{\"songs\": [], \"lastPlayed\": 1}")));
+    }
+
+    @Test(expected = IOException.class)
+    public void decode_failsOnTruncatedDocuments() throws IOException {
+        PlaylistCodec.decode(new StringReader("{\"name\": \"Cut\", \"lastPlayed\": 1, \"songs\": [\"a\""));
+    }
+}
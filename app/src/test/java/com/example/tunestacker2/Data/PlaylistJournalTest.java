@@ -0,0 +1,201 @@
+package com.example.tunestacker2.Data;
+
+import android.content.Context;
+import android.net.Uri;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of {@link PlaylistJournal}: replaying uncommitted chains after a restart and
+ * truncating the journal once everything was written. Each restart is simulated by closing the
+ * journal and reading its file with a new instance.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PlaylistJournalTest {
+
+    private static final Uri DIRECTORY = Uri.parse("content://com.example.documents/tree/music");
+
+    private Context context;
+    private File journalFile;
+    private final List<PlaylistJournal> opened = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        journalFile = new File(context.getFilesDir(), "playlist_journal.bin");
+        journalFile.delete();
+    }
+
+    @After
+    public void tearDown() {
+        for (PlaylistJournal journal : opened) {
+            journal.close();
+        }
+        journalFile.delete();
+    }
+
+    private PlaylistJournal open() {
+        PlaylistJournal journal = new PlaylistJournal(context);
+        opened.add(journal);
+        return journal;
+    }
+
+    /**
+     * Closes a journal like a killed process would leave it, and reads it on the next start.
+     */
+    private PlaylistJournal restart(PlaylistJournal journal) {
+        journal.close();
+        return open();
+    }
+
+    private static PlaylistCodec.Decoded version(String name, long lastPlayed, String... songNames) {
+        return new PlaylistCodec.Decoded(name, lastPlayed, new ArrayList<>(Arrays.asList(songNames)));
+    }
+
+    private static void assertContents(PlaylistCodec.Decoded expected, PlaylistJournal.PendingState state) {
+        assertEquals(expected.name, state.contents.name);
+        assertEquals(expected.lastPlayed, state.contents.lastPlayed);
+        assertEquals(expected.songNames, state.contents.songNames);
+    }
+
+    /**
+     * Journals a chain of versions the way the write queue does: the first one whole, the others
+     * as changes to the previous version.
+     */
+    private static long journalChain(PlaylistJournal journal, String fileName, PlaylistCodec.Decoded... versions) {
+        long chain = journal.append(DIRECTORY, fileName, versions[0]);
+        for (int i = 1; i < versions.length; i++) {
+            journal.appendChange(chain, PlaylistChange.between(versions[i - 1], versions[i]));
+        }
+        return chain;
+    }
+
+    @Test
+    public void readPending_emptyWithoutJournal() {
+        assertTrue(open().readPending().isEmpty());
+        assertFalse(journalFile.exists());
+    }
+
+    @Test
+    public void readPending_replaysTheChangesOfAnUncommittedChain() {
+        PlaylistJournal journal = open();
+        PlaylistCodec.Decoded last = version("Mix", 4, "b", "c", "a", "d");
+        journalChain(journal, "Mix.json",
+                version("Mix", 1, "a", "b"),
+                version("Mix", 2, "a", "b", "c", "d"),
+                version("Mix", 3, "a", "b", "c", "x", "d"),
+                version("Mix", 3, "a", "b", "c", "d"),
+                last);
+
+        List<PlaylistJournal.PendingState> pending = restart(journal).readPending();
+
+        assertEquals(1, pending.size());
+        assertEquals(DIRECTORY, pending.get(0).directoryUri);
+        assertEquals("Mix.json", pending.get(0).fileName);
+        assertEquals(0, pending.get(0).failedReplays);
+        assertContents(last, pending.get(0));
+    }
+
+    @Test
+    public void readPending_latestChainOfAPlaylistWins() {
+        PlaylistJournal journal = open();
+        journalChain(journal, "Mix.json", version("Mix", 1, "a"));
+        journalChain(journal, "Mix.json", version("Mix", 2, "b"), version("Mix", 3, "b", "c"));
+
+        List<PlaylistJournal.PendingState> pending = restart(journal).readPending();
+
+        assertEquals(1, pending.size());
+        assertContents(version("Mix", 3, "b", "c"), pending.get(0));
+    }
+
+    @Test
+    public void commit_truncatesOnceEveryChainWasWritten() {
+        PlaylistJournal journal = open();
+        long first = journalChain(journal, "One.json", version("One", 1, "a"));
+        long second = journalChain(journal, "Two.json", version("Two", 1, "b"));
+
+        journal.commit(DIRECTORY, "One.json", first);
+        journal = restart(journal);
+        assertTrue(journalFile.exists());
+
+        List<PlaylistJournal.PendingState> pending = journal.readPending();
+        assertEquals(1, pending.size());
+        assertEquals("Two.json", pending.get(0).fileName);
+
+        journal.commit(DIRECTORY, "Two.json", second);
+        journal = restart(journal);
+        assertFalse(journalFile.exists());
+        assertTrue(journal.readPending().isEmpty());
+    }
+
+    @Test
+    public void commit_ofAnOlderChainKeepsTheNewerOne() {
+        PlaylistJournal journal = open();
+        long older = journalChain(journal, "Mix.json", version("Mix", 1, "a"));
+        journalChain(journal, "Mix.json", version("Mix", 2, "a", "b"));
+
+        journal.commit(DIRECTORY, "Mix.json", older);
+        List<PlaylistJournal.PendingState> pending = restart(journal).readPending();
+
+        assertEquals(1, pending.size());
+        assertContents(version("Mix", 2, "a", "b"), pending.get(0));
+    }
+
+    @Test
+    public void recordFailedReplay_countsAcrossStarts() {
+        PlaylistJournal journal = open();
+        journalChain(journal, "Mix.json", version("Mix", 1, "a"));
+
+        for (int start = 1; start <= 2; start++) {
+            journal = restart(journal);
+            List<PlaylistJournal.PendingState> pending = journal.readPending();
+            assertEquals(1, pending.size());
+            journal.recordFailedReplay(pending.get(0));
+        }
+
+        List<PlaylistJournal.PendingState> pending = restart(journal).readPending();
+        assertEquals(2, pending.get(0).failedReplays);
+    }
+
+    @Test
+    public void readPending_ignoresATornRecord() throws IOException {
+        PlaylistJournal journal = open();
+        journalChain(journal, "Mix.json", version("Mix", 1, "a"), version("Mix", 2, "a", "b"));
+        journal.close();
+
+        // Half a record: a length and checksum header without its payload
+        try (FileOutputStream out = new FileOutputStream(journalFile, true)) {
+            out.write(new byte[]{0, 0, 0, 40, 1, 2, 3, 4, 9, 9});
+        }
+
+        List<PlaylistJournal.PendingState> pending = open().readPending();
+        assertEquals(1, pending.size());
+        assertContents(version("Mix", 2, "a", "b"), pending.get(0));
+    }
+
+    @Test
+    public void readPending_continuesTheSequenceOfThePreviousProcess() {
+        PlaylistJournal journal = open();
+        long first = journalChain(journal, "Mix.json", version("Mix", 1, "a"));
+
+        journal = restart(journal);
+        journal.readPending();
+        long next = journal.append(DIRECTORY, "Other.json", version("Other", 1));
+
+        assertTrue(next > first);
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.tunestacker2.MusicPlayer;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of {@link SongSearchIndex}: substring search over the trigram index and the
+ * ranked, typo-tolerant mode.
+ */
+public class SongSearchIndexTest {
+
+    private static SongTable tableOf(String... titles) {
+        SongTable.Builder builder = new SongTable.Builder(null, titles.length);
+        for (int i = 0; i < titles.length; i++) {
+            builder.add("doc" + i, titles[i], 1000);
+        }
+        return builder.build();
+    }
+
+    private static BitSet rows(int... rows) {
+        BitSet set = new BitSet();
+        for (int row : rows) set.set(row);
+        return set;
+    }
+
+    // --- Search ---
+
+    @Test
+    public void search_emptyQueryMatchesEveryRow() {
+        SongSearchIndex index = SongSearchIndex.of(tableOf("One", "Two", "Three"));
+
+        assertEquals(rows(0, 1, 2), index.search(""));
+        assertEquals(rows(0, 1, 2), index.search("   "));
+        assertEquals(rows(0, 1, 2), index.search(null));
+    }
+
+    @Test
+    public void search_findsTrigramCandidatesIgnoringCaseAndAccents() {
+        SongSearchIndex index = SongSearchIndex.of(tableOf("Halo - Beyoncé", "Love Story", "Glove Box", "Yellow"));
+
+        assertEquals(rows(1, 2), index.search("LOVE"));
+        assertEquals(rows(0), index.search("beyonce"));
+        assertEquals(rows(1), index.search("ve st"));
+    }
+
+    @Test
+    public void search_missingTrigramMatchesNothing() {
+        SongSearchIndex index = SongSearchIndex.of(tableOf("Love Story", "Glove Box"));
+
+        assertTrue(index.search("lovx").isEmpty());
+        assertTrue(index.search("zzz").isEmpty());
+    }
+
+    @Test
+    public void search_shortQueryScansEveryTitle() {
+        SongSearchIndex index = SongSearchIndex.of(tableOf("Love Story", "Yellow", "Halo"));
+
+        assertEquals(rows(0, 1, 2), index.search("o"));
+        assertEquals(rows(0, 1, 2), index.search("lo"));
+        assertEquals(rows(2), index.search("ha"));
+    }
+
+    @Test
+    public void search_extendedQueryNarrowsThePreviousMatches() {
+        SongSearchIndex index = SongSearchIndex.of(tableOf("Love Story", "Lovely Day", "Glove Box", "Yellow"));
+
+        assertEquals(rows(0, 1, 2, 3), index.search("l"));
+        assertEquals(rows(0, 1, 2), index.search("lov"));
+        assertEquals(rows(1), index.search("lovel"));
+        assertEquals(rows(1), index.search("lovely d"));
+    }
+
+    @Test
+    public void search_shorterQueryDoesNotReuseNarrowedMatches() {
+        SongSearchIndex index = SongSearchIndex.of(tableOf("Love Story", "Lovely Day", "Glove Box", "Yellow"));
+
+        assertEquals(rows(1), index.search("lovely"));
+        assertEquals(rows(0, 1, 2), index.search("love"));
+        assertEquals(rows(0, 1, 2, 3), index.search("lo"));
+    }
+
+    // --- Rank ---
+
+    @Test
+    public void rank_blankQueryMatchesNothing() {
+        SongSearchIndex index = SongSearchIndex.of(tableOf("Love Story"));
+
+        assertEquals(0, index.rank("").length);
+        assertEquals(0, index.rank(" - ").length);
+    }
+
+    @Test
+    public void rank_ordersExactWordBeforePrefixBeforeInnerMatch() {
+        SongSearchIndex index = SongSearchIndex.of(tableOf("Glove Box", "Lovely Day", "Love Story"));
+
+        assertArrayEquals(new int[]{2, 1, 0}, index.rank("love"));
+    }
+
+    @Test
+    public void rank_everyTokenHasToMatch() {
+        SongSearchIndex index = SongSearchIndex.of(tableOf("Love Story", "Story Time"));
+
+        assertArrayEquals(new int[]{0}, index.rank("story love"));
+        assertEquals(0, index.rank("love zzz").length);
+    }
+
+    @Test
+    public void rank_wholePhraseRanksFirst() {
+        SongSearchIndex index = SongSearchIndex.of(tableOf("Story of Love", "Love Story"));
+
+        assertArrayEquals(new int[]{1, 0}, index.rank("love story"));
+    }
+
+    @Test
+    public void rank_toleratesOneTypoInMediumTokens() {
+        SongSearchIndex index = SongSearchIndex.of(tableOf("Love Story", "Yellow"));
+
+        assertArrayEquals(new int[]{0}, index.rank("storx"));
+        assertEquals(0, index.rank("stxrx").length);
+    }
+
+    @Test
+    public void rank_toleratesTwoTyposInLongTokens() {
+        SongSearchIndex index = SongSearchIndex.of(tableOf("Symphony No. 5", "Yellow"));
+
+        assertArrayEquals(new int[]{0}, index.rank("sympbomy"));
+        assertEquals(0, index.rank("sympboxx").length);
+    }
+
+    @Test
+    public void rank_shortTokensDoNotTolerateTypos() {
+        SongSearchIndex index = SongSearchIndex.of(tableOf("Car Song"));
+
+        assertArrayEquals(new int[]{0}, index.rank("car"));
+        assertEquals(0, index.rank("cat").length);
+    }
+
+    @Test
+    public void rank_prefersRecentlyModifiedOnEqualMatches() {
+        SongTable table = new SongTable.Builder(null, 3)
+                .add("old", "Same Song", 1000)
+                .add("new", "Same Song", 3000)
+                .add("mid", "Same Song", 2000)
+                .build();
+
+        assertArrayEquals(new int[]{1, 2, 0}, SongSearchIndex.of(table).rank("same"));
+    }
+}
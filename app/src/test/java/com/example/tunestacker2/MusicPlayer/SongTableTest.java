@@ -0,0 +1,115 @@
+package com.example.tunestacker2.MusicPlayer;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of {@link SongTable}: the stable row sort and the document id lookup.
+ */
+public class SongTableTest {
+
+    private static SongTable tableOf(long... modified) {
+        SongTable.Builder builder = new SongTable.Builder(null, modified.length);
+        for (int i = 0; i < modified.length; i++) {
+            builder.add("doc" + i, "Song " + i, modified[i]);
+        }
+        return builder.build();
+    }
+
+    // --- Sort ---
+
+    @Test
+    public void sort_ordersShortAndLongRunsLikeAStableSort() {
+        Random random = new Random(42);
+        for (int size : new int[]{0, 1, 2, 7, 8, 9, 100, 1000}) {
+            long[] modified = new long[size];
+            for (int i = 0; i < size; i++) {
+                modified[i] = random.nextInt(10); // Many ties
+            }
+            SongTable table = tableOf(modified);
+
+            int[] rows = table.allRows();
+            SongTable.sort(rows, rows.length, table.newestFirst());
+
+            Integer[] expected = new Integer[size];
+            for (int i = 0; i < size; i++) expected[i] = i;
+            Arrays.sort(expected, (a, b) -> Long.compare(modified[b], modified[a]));
+            for (int i = 0; i < size; i++) {
+                assertEquals("size " + size + ", position " + i, (int) expected[i], rows[i]);
+            }
+        }
+    }
+
+    @Test
+    public void sort_keepsEqualRowsInTheirOrder() {
+        SongTable table = tableOf(5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5);
+        int[] rows = {11, 3, 7, 0, 9, 1, 10, 2, 8, 4, 6, 5};
+        int[] before = rows.clone();
+
+        SongTable.sort(rows, rows.length, table.oldestFirst());
+
+        assertArrayEquals(before, rows);
+    }
+
+    @Test
+    public void sort_onlySortsTheLeadingRows() {
+        SongTable table = tableOf(4, 3, 2, 1, 0);
+        int[] rows = {0, 1, 2, 3, 4};
+
+        SongTable.sort(rows, 3, table.oldestFirst());
+
+        assertArrayEquals(new int[]{2, 1, 0, 3, 4}, rows);
+    }
+
+    @Test
+    public void alphabetical_ignoresCaseAndAccents() {
+        SongTable table = new SongTable.Builder(null, 4)
+                .add("a", "banana", 0)
+                .add("b", "Éclair", 0)
+                .add("c", "cherry", 0)
+                .add("d", "Apple", 0)
+                .build();
+        int[] rows = table.allRows();
+
+        SongTable.sort(rows, rows.length, table.alphabetical());
+
+        assertArrayEquals(new int[]{3, 0, 2, 1}, rows);
+    }
+
+    // --- Lookup ---
+
+    @Test
+    public void findRow_findsEveryDocument() {
+        long[] modified = new long[1000];
+        SongTable table = tableOf(modified);
+
+        for (int row = 0; row < table.size(); row++) {
+            assertEquals(row, table.findRow("doc" + row));
+        }
+    }
+
+    @Test
+    public void findRow_unknownDocumentIsMissing() {
+        SongTable table = tableOf(1, 2, 3);
+
+        assertEquals(-1, table.findRow("doc3"));
+        assertEquals(-1, table.findRow("doc"));
+        assertEquals(-1, table.findRow((String) null));
+        assertEquals(-1, SongTable.EMPTY.findRow("doc0"));
+    }
+
+    @Test
+    public void findRow_findsAppendedRows() {
+        SongTable base = tableOf(1, 2);
+        SongTable extended = new SongTable.Builder(base, null, 1).add("extra", "Extra", 3).build();
+
+        assertEquals(2, extended.findRow("extra"));
+        assertEquals(-1, base.findRow("extra"));
+        assertTrue(extended.extendsTable(base));
+        assertEquals(SongTable.stableId("extra"), extended.getStableId(2));
+    }
+}
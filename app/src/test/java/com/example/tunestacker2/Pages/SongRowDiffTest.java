@@ -0,0 +1,170 @@
+package com.example.tunestacker2.Pages;
+
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import com.example.tunestacker2.MusicPlayer.SongTable;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of {@link SongRowDiff}: the linear diff of lists that keep their order, and
+ * the fallbacks for re-ordered lists.
+ */
+public class SongRowDiffTest {
+
+    /**
+     * Records the updates, and applies them to a list of document ids.
+     */
+    private static final class Recorder implements ListUpdateCallback {
+        final List<String> updates = new ArrayList<>();
+        final List<String> ids;
+
+        Recorder(SongTable table, int[] rows) {
+            ids = new ArrayList<>();
+            for (int row : rows) ids.add(table.getDocumentId(row));
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            updates.add("insert " + position + " " + count);
+            for (int i = 0; i < count; i++) ids.add(position, null);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            updates.add("remove " + position + " " + count);
+            for (int i = 0; i < count; i++) ids.remove(position);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            updates.add("move " + fromPosition + " " + toPosition);
+            ids.add(toPosition, ids.remove(fromPosition));
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            updates.add("change " + position + " " + count);
+        }
+    }
+
+    private static SongTable tableOf(String... ids) {
+        SongTable.Builder builder = new SongTable.Builder(null, ids.length);
+        for (String id : ids) {
+            builder.add(id, "Title " + id, 1000);
+        }
+        return builder.build();
+    }
+
+    private static Recorder dispatch(SongTable oldTable, int[] oldRows, SongTable newTable, int[] newRows) {
+        SongRowDiff diff = SongRowDiff.calculate(oldTable, oldRows, oldRows.length, newTable, newRows, newRows.length);
+        assertFalse(diff.isReload());
+
+        Recorder recorder = new Recorder(oldTable, oldRows);
+        diff.dispatchUpdatesTo(recorder);
+
+        // Every kept row ends up where the new list shows it
+        assertEquals(newRows.length, recorder.ids.size());
+        for (int i = 0; i < newRows.length; i++) {
+            String id = recorder.ids.get(i);
+            if (id != null) assertEquals(newTable.getDocumentId(newRows[i]), id);
+        }
+        return recorder;
+    }
+
+    @Test
+    public void calculate_unchangedListHasNoUpdates() {
+        SongTable table = tableOf("a", "b", "c");
+
+        Recorder recorder = dispatch(table, new int[]{0, 1, 2}, table, new int[]{0, 1, 2});
+
+        assertTrue(recorder.updates.isEmpty());
+    }
+
+    @Test
+    public void calculate_filteringRemovesTheHiddenRows() {
+        SongTable table = tableOf("a", "b", "c", "d", "e");
+
+        Recorder recorder = dispatch(table, new int[]{0, 1, 2, 3, 4}, table, new int[]{0, 2, 4});
+
+        assertEquals(Arrays.asList("remove 1 1", "remove 2 1"), recorder.updates);
+    }
+
+    @Test
+    public void calculate_mergesAdjacentUpdatesIntoRanges() {
+        SongTable table = tableOf("a", "b", "c", "d", "e");
+
+        Recorder recorder = dispatch(table, new int[]{0, 4}, table, new int[]{0, 1, 2, 3, 4});
+        assertEquals(Arrays.asList("insert 1 3"), recorder.updates);
+
+        recorder = dispatch(table, new int[]{0, 1, 2, 3, 4}, table, new int[]{4});
+        assertEquals(Arrays.asList("remove 0 4"), recorder.updates);
+    }
+
+    @Test
+    public void calculate_appendedScanChunkIsInsertedAtTheEnd() {
+        SongTable base = tableOf("a", "b", "c");
+        SongTable extended = new SongTable.Builder(base, null, 2)
+                .add("d", "Title d", 1000)
+                .add("e", "Title e", 1000)
+                .build();
+
+        Recorder recorder = dispatch(base, base.allRows(), extended, extended.allRows());
+
+        assertEquals(Arrays.asList("insert 3 2"), recorder.updates);
+    }
+
+    @Test
+    public void calculate_matchesRowsOfDifferentTablesByDocumentId() {
+        SongTable oldTable = tableOf("a", "b", "c", "d");
+        SongTable newTable = tableOf("d", "a", "c"); // Rescanned in another order, "b" deleted
+
+        Recorder recorder = dispatch(oldTable, new int[]{0, 1, 2, 3}, newTable, new int[]{1, 2, 0});
+
+        assertEquals(Arrays.asList("remove 1 1"), recorder.updates);
+    }
+
+    @Test
+    public void calculate_changedTitleIsReportedAsChange() {
+        SongTable oldTable = tableOf("a", "b", "c");
+        SongTable newTable = new SongTable.Builder(null, 3)
+                .add("a", "Title a", 1000)
+                .add("b", "Retagged", 1000)
+                .add("c", "Title c", 2000)
+                .build();
+
+        Recorder recorder = dispatch(oldTable, oldTable.allRows(), newTable, newTable.allRows());
+
+        assertEquals(Arrays.asList("change 1 2"), recorder.updates);
+    }
+
+    @Test
+    public void calculate_reorderedListIsDiffed() {
+        SongTable table = tableOf("a", "b", "c", "d", "e");
+
+        dispatch(table, new int[]{0, 1, 2, 3, 4}, table, new int[]{4, 3, 2, 1, 0});
+        dispatch(table, new int[]{0, 1, 2, 3}, table, new int[]{1, 0, 4, 3});
+    }
+
+    @Test
+    public void calculate_largeReorderedListIsReloaded() {
+        String[] ids = new String[3000];
+        for (int i = 0; i < ids.length; i++) ids[i] = "doc" + i;
+        SongTable table = tableOf(ids);
+        int[] reversed = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) reversed[i] = ids.length - 1 - i;
+
+        SongRowDiff diff = SongRowDiff.calculate(table, table.allRows(), ids.length, table, reversed, ids.length);
+
+        assertTrue(diff.isReload());
+        Recorder recorder = new Recorder(table, table.allRows());
+        diff.dispatchUpdatesTo(recorder);
+        assertTrue(recorder.updates.isEmpty());
+    }
+}